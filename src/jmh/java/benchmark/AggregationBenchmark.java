@@ -0,0 +1,66 @@
+package benchmark;
+
+import domain.DailyTotal;
+import domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.TimeSeries;
+import service.TransactionTotals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summeringarna bakom FinanceManagers rapporter (månad, vecka, dag) och
+ * dagsaggregeringen till diagrammen, över historiker från 1k till 10M rader.
+ * Varje fråga gäller en period mitt i historiken.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregationBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    private List<Transaction> history;
+    private LocalDate day;
+
+    @Setup
+    public void setUp() {
+        history = Histories.generate(rows, 42);
+        day = Histories.START.plusDays(Histories.DAYS / 2);
+    }
+
+    @Benchmark
+    public double monthlyIncome() {
+        return TransactionTotals.monthlyIncome(history, day.getYear(), day.getMonthValue());
+    }
+
+    @Benchmark
+    public double monthlyExpenses() {
+        return TransactionTotals.monthlyExpenses(history, day.getYear(), day.getMonthValue());
+    }
+
+    @Benchmark
+    public double weeklyIncome() {
+        return TransactionTotals.weeklyIncome(history, day.getYear(), 26);
+    }
+
+    @Benchmark
+    public double dailyExpenses() {
+        return TransactionTotals.dailyExpenses(history, day);
+    }
+
+    @Benchmark
+    public List<DailyTotal> aggregateDaily() {
+        return TimeSeries.aggregateDaily(history);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import repository.storage.TransactionCsvDataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Läsning och skrivning av hela CSV-filen (CsvDataStore.readAll/writeAll via
+ * TransactionCsvDataStore) för historiker från 1k till 10M rader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvStoreBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    private List<Transaction> history;
+    private File readFile;
+    private File writeFile;
+    private TransactionCsvDataStore readStore;
+    private TransactionCsvDataStore writeStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        history = Histories.generate(rows, 42);
+        readFile = Files.createTempFile("pf-jmh-read", ".csv").toFile();
+        writeFile = Files.createTempFile("pf-jmh-write", ".csv").toFile();
+        readStore = new TransactionCsvDataStore(readFile);
+        writeStore = new TransactionCsvDataStore(writeFile);
+        readStore.writeAll(history);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(readFile.toPath());
+        Files.deleteIfExists(writeFile.toPath());
+    }
+
+    @Benchmark
+    public List<Transaction> readAll() {
+        return readStore.readAll();
+    }
+
+    @Benchmark
+    public void writeAll() {
+        writeStore.writeAll(history);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import repository.storage.TransactionLineConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * En rad i taget: TransactionLineConverter.fromLine (split, LocalDate.parse,
+ * Double.parseDouble) och Transaction.toFileFormat. Tiden är per rad.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LineFormatBenchmark {
+
+    private static final int BATCH = 4096;
+
+    private final TransactionLineConverter converter = new TransactionLineConverter();
+    private Transaction[] transactions;
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        List<Transaction> history = Histories.generate(BATCH, 42);
+        transactions = history.toArray(new Transaction[0]);
+        lines = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            lines[i] = transactions[i].toFileFormat();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void parseLine(Blackhole bh) throws Exception {
+        for (String line : lines) {
+            bh.consume(converter.fromLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void toFileFormat(Blackhole bh) {
+        for (Transaction t : transactions) {
+            bh.consume(t.toFileFormat());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package app;
+
+import domain.DailyTotal;
+import domain.Transaction;
+import repository.storage.DataSink;
+import repository.storage.TransactionStores;
+import service.FinanceManager;
+import service.TransactionImporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Batchläge för PersonalFinanceApp: kör ett kommando för en användare och avslutar,
+ * utan menyn – t.ex. för nattliga jobb.
+ *
+ * <pre>
+ *   PersonalFinanceApp --user anna [--password ...] import bank.csv
+ *   PersonalFinanceApp --user anna export utdrag.csv [från] [till]
+ *   PersonalFinanceApp --user anna export arkiv.pfc 2020-01-01 2020-12-31
+ *   PersonalFinanceApp --user anna report month 2020-01-01 2024-12-31
+ * </pre>
+ * Lösenordet kan i stället ges i miljövariabeln PF_PASSWORD (hamnar då inte i skalets historik).
+ *
+ * Import och export strömmas: import läser filen rad för rad och sparar i JDBC-batcher (rader
+ * som redan finns hoppas över, se TransactionImporter), och export läser med en databascursor
+ * och skriver direkt till filen. Rapporten är en GROUP BY-fråga i databasen; den ger en rad
+ * per period (några tusen även för dagar över tio år), så den hämtas som en lista och skrivs sedan ut.
+ * Filformatet väljs av filändelsen (som i TransactionStores); .pfc är kolumnformatet,
+ * ungefär en fjärdedel av CSV:ns storlek.
+ * Sist skrivs antal rader, tid och genomströmning ut.
+ */
+public class BatchRunner {
+
+    // Exit-koder
+    static final int OK = 0;
+    static final int USAGE = 1;
+    static final int LOGIN_FAILED = 2;
+    static final int FAILED = 3;
+
+    private final FinanceManager financeManager;
+
+    public BatchRunner(FinanceManager financeManager) {
+        this.financeManager = financeManager;
+    }
+
+    /**
+     * Tolkar argumenten, loggar in och kör kommandot. Returnerar exit-kod.
+     */
+    public int run(String[] args) {
+        String user = null;
+        String password = System.getenv("PF_PASSWORD");
+        List<String> command = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--user" -> user = i + 1 < args.length ? args[++i] : null;
+                case "--password" -> password = i + 1 < args.length ? args[++i] : null;
+                default -> command.add(args[i]);
+            }
+        }
+
+        if (user == null || password == null || command.isEmpty()) {
+            printUsage();
+            return USAGE;
+        }
+        if (!financeManager.login(user, password)) {
+            System.out.println("Felaktigt användarnamn eller lösenord för: " + user);
+            return LOGIN_FAILED;
+        }
+
+        try {
+            return switch (command.get(0)) {
+                case "import" -> command.size() == 2 ? importFile(new File(command.get(1))) : usage();
+                case "export" -> command.size() >= 2 && command.size() <= 4
+                        ? exportFile(new File(command.get(1)), date(command, 2), date(command, 3))
+                        : usage();
+                case "report" -> command.size() == 4
+                        ? report(command.get(1), LocalDate.parse(command.get(2)), LocalDate.parse(command.get(3)))
+                        : usage();
+                default -> usage();
+            };
+        } catch (RuntimeException e) {
+            System.out.println("Batchjobbet misslyckades: " + e.getMessage());
+            return FAILED;
+        } finally {
+            financeManager.logout();
+        }
+    }
+
+    // Läser filen strömmande och sparar de nya raderna i batcher (dubbletter hoppas över)
+    private int importFile(File file) {
+        if (!file.exists()) {
+            System.out.println("Filen finns inte: " + file.getAbsolutePath());
+            return FAILED;
+        }
+
+        long start = System.nanoTime();
+        TransactionImporter.Result result;
+        try (Stream<Transaction> rows = TransactionStores.forFile(file).stream()) {
+            Iterator<Transaction> it = rows.iterator();
+            result = financeManager.importTransactions(it);
+        }
+        printStats("Läste", result.getRead(), file.length(), start);
+        System.out.printf("Nya: %d, dubbletter som hoppades över: %d%n", result.getImported(), result.getDuplicates());
+        return OK;
+    }
+
+    // Skriver transaktionerna i intervallet till filen medan de läses från databasen
+    private int exportFile(File file, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        int[] written = {0};
+
+        try (DataSink<Transaction> sink = TransactionStores.forFile(file).openSink()) {
+            financeManager.exportTransactions(from, to, tx -> {
+                try {
+                    sink.write(tx);
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            sink.commit();
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Kunde inte skriva till fil: " + e.getMessage());
+            return FAILED;
+        }
+        printStats("Exporterade", written[0], file.length(), start);
+        return OK;
+    }
+
+    // En rad per period: periodens första dag;inkomst;utgifter;netto
+    private int report(String period, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        List<DailyTotal> totals = financeManager.getTotalsByPeriod(period, from, to);
+
+        System.out.println("period;inkomst;utgifter;netto");
+        for (DailyTotal t : totals) {
+            System.out.printf("%s;%.2f;%.2f;%.2f%n", t.getDate(), t.getIncome(), t.getExpenses(), t.getNet());
+        }
+        printStats("Rapporterade", totals.size(), 0, start);
+        return OK;
+    }
+
+    private static LocalDate date(List<String> command, int index) {
+        return index < command.size() ? LocalDate.parse(command.get(index)) : null;
+    }
+
+    private static void printStats(String what, long rows, long bytes, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        if (bytes > 0) {
+            System.out.printf("%s %d rader på %.2f s (%.0f rader/s, %.1f MB/s)%n",
+                    what, rows, seconds, rows / seconds, bytes / (1024.0 * 1024.0) / seconds);
+        } else {
+            System.out.printf("%s %d rader på %.2f s (%.0f rader/s)%n", what, rows, seconds, rows / seconds);
+        }
+    }
+
+    private int usage() {
+        printUsage();
+        return USAGE;
+    }
+
+    private static void printUsage() {
+        System.out.println("Användning: PersonalFinanceApp --user <namn> [--password <lösen>] <kommando>");
+        System.out.println("  import <fil>                      importera transaktioner från fil");
+        System.out.println("  export <fil> [från] [till]        exportera (datum YYYY-MM-DD), .csv eller .pfc");
+        System.out.println("  report <day|week|month|year> <från> <till>");
+        System.out.println("Lösenordet kan också ges i miljövariabeln PF_PASSWORD.");
+    }
+}
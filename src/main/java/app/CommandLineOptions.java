@@ -0,0 +1,31 @@
+package app;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tolkar kommandoradsval på formen --namn värde (eller bara --namn för en flagga).
+ * Används av DataGenerator och benchmarkerna i test.
+ */
+public final class CommandLineOptions {
+
+    private CommandLineOptions() {
+    }
+
+    /**
+     * Valen som namn → värde (tom text för en flagga). Ett argument som inte börjar
+     * med -- och inte är ett värde ger IllegalArgumentException.
+     */
+    public static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Okänt argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            options.put(key, hasValue ? args[++i] : "");
+        }
+        return options;
+    }
+}
@@ -0,0 +1,209 @@
+package app;
+
+import domain.Transaction;
+import repository.Database;
+import repository.JdbcUserRepository;
+import repository.TransactionCopyWriter;
+import repository.storage.DataSink;
+import repository.storage.TransactionStores;
+import service.SyntheticHistory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Skapar testdata i stor skala: en påhittad historik per användare (se SyntheticHistory),
+ * antingen som filer som FileTransactionRepository kan öppna eller direkt i databasen.
+ *
+ * <pre>
+ *   java app.DataGenerator --users 1000 --out data/            en CSV-fil per användare
+ *   java app.DataGenerator --users 1000 --out data/ --ext .pfb  annat filformat
+ *   java app.DataGenerator --users 100000 --db                  användare + transaktioner via COPY
+ * </pre>
+ * Övriga val: --from och --to (datum, standard 2015-01-01 – 2024-12-31), --seed (42),
+ * --threads (antal kärnor, med --db högst jdbc.pool.max), och för --db: --prefix (användarnamn prefix-N, standard "gen"),
+ * --password (allas lösenord, standard "generated") och --no-change-log.
+ *
+ * Samma frö ger samma data. Användarna fördelas på trådarna och varje tråd skriver sina
+ * egna filer eller sin egen COPY, så det skalar med antalet kärnor (och databasens disk).
+ * Med --no-change-log stängs triggern för ändringsloggen av under körningen
+ * (kräver att man äger tabellen), annars får varje rad även en rad i transaction_changes.
+ */
+public class DataGenerator {
+
+    // Användare per COPY (en COPY = en transaktion i databasen)
+    private static final int USERS_PER_COPY = 100;
+    // Användare per omgång när användarna skapas
+    private static final int USERS_PER_BATCH = 10_000;
+
+    private final long seed;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int threads;
+    private final LongAdder rows = new LongAdder();
+
+    public DataGenerator(long seed, LocalDate from, LocalDate to, int threads) {
+        this.seed = seed;
+        this.from = from;
+        this.to = to;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "100"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (options.containsKey("db") && !options.containsKey("out")) {
+            // Varje tråd håller en connection under hela sin COPY, så fler trådar än
+            // poolen rymmer skulle bara vänta tills lånet går ut
+            int max = Database.getPool().getMaxSize();
+            if (threads > max) {
+                System.out.println("Använder " + max + " trådar (jdbc.pool.max) i stället för " + threads + ".");
+                threads = max;
+            }
+        }
+        DataGenerator generator = new DataGenerator(
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                LocalDate.parse(options.getOrDefault("from", "2015-01-01")),
+                LocalDate.parse(options.getOrDefault("to", "2024-12-31")),
+                threads);
+
+        long start = System.nanoTime();
+        if (options.containsKey("out")) {
+            File dir = new File(options.get("out"));
+            long bytes = generator.writeFiles(users, dir, options.getOrDefault("ext", ".csv"));
+            generator.printStats(start, bytes);
+        } else if (options.containsKey("db")) {
+            generator.writeDatabase(users,
+                    options.getOrDefault("prefix", "gen"),
+                    options.getOrDefault("password", "generated"),
+                    options.containsKey("no-change-log"));
+            generator.printStats(start, 0);
+        } else {
+            System.out.println("Ange --out <katalog> eller --db (se klassens dokumentation för fler val).");
+        }
+    }
+
+    /**
+     * Skriver en fil per användare (user-00000.csv, ...) i dir. Returnerar totalt antal bytes.
+     */
+    public long writeFiles(int users, File dir, String extension) throws Exception {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Kunde inte skapa katalog: " + dir);
+        }
+        LongAdder bytes = new LongAdder();
+        runParallel(users, 1, first -> {
+            File file = new File(dir, String.format("user-%05d%s", first, extension));
+            try (DataSink<Transaction> sink = TransactionStores.forFile(file).openSink()) {
+                SyntheticHistory history = new SyntheticHistory(seed, first, from, to);
+                long n = 0;
+                while (history.hasNext()) {
+                    sink.write(history.next());
+                    n++;
+                }
+                sink.commit();
+                rows.add(n);
+            }
+            bytes.add(file.length());
+        });
+        return bytes.sum();
+    }
+
+    /**
+     * Skapar användarna prefix-0 ... prefix-(users-1) och deras transaktioner i databasen.
+     */
+    public void writeDatabase(int users, String prefix, String password, boolean skipChangeLog) throws Exception {
+        Map<Integer, Integer> userIds = new HashMap<>();
+        JdbcUserRepository userRepository = new JdbcUserRepository();
+        for (int first = 0; first < users; first += USERS_PER_BATCH) {
+            List<String> names = new ArrayList<>();
+            for (int i = first; i < Math.min(users, first + USERS_PER_BATCH); i++) {
+                names.add(prefix + "-" + i);
+            }
+            Map<String, Integer> ids = userRepository.registerUsers(names, password);
+            for (int i = 0; i < names.size(); i++) {
+                userIds.put(first + i, ids.get(names.get(i)));
+            }
+        }
+        System.out.println("Användare klara: " + users + " (lösenord: " + password + ")");
+
+        if (skipChangeLog) setChangeLogTrigger(false);
+        try {
+            runParallel(users, USERS_PER_COPY, first -> {
+                try (TransactionCopyWriter writer = new TransactionCopyWriter()) {
+                    for (int u = first; u < Math.min(users, first + USERS_PER_COPY); u++) {
+                        int userId = userIds.get(u);
+                        SyntheticHistory history = new SyntheticHistory(seed, u, from, to);
+                        while (history.hasNext()) {
+                            writer.write(userId, history.next());
+                        }
+                    }
+                    rows.add(writer.finish());
+                }
+            });
+        } finally {
+            if (skipChangeLog) setChangeLogTrigger(true);
+        }
+    }
+
+    // En uppgift för användarna first .. first+chunk-1 (eller bara first när chunk = 1)
+    private interface Chunk {
+        void run(int first) throws Exception;
+    }
+
+    // Delar ut användarna i bitar om chunk till trådarna och väntar tills alla är klara
+    private void runParallel(int users, int chunk, Chunk task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    int first;
+                    while ((first = next.getAndAdd(chunk)) < users) {
+                        task.run(first);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void setChangeLogTrigger(boolean enabled) throws SQLException {
+        String sql = "ALTER TABLE transactions " + (enabled ? "ENABLE" : "DISABLE") + " TRIGGER trg_transactions_change_log";
+        try (Connection c = Database.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private void printStats(long startNanos, long bytes) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long total = rows.sum();
+        if (bytes > 0) {
+            System.out.printf("Skapade %d rader på %.1f s (%.0f rader/s, %.1f MB/s)%n",
+                    total, seconds, total / seconds, bytes / (1024.0 * 1024.0) / seconds);
+        } else {
+            System.out.printf("Skapade %d rader på %.1f s (%.0f rader/s)%n", total, seconds, total / seconds);
+        }
+    }
+}
@@ -6,10 +6,14 @@ import domain.Transaction;         // Min modell för en transaktion
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Scanner;
 
 
 public class PersonalFinanceApp {
+    // Antal transaktioner per sida i listningen
+    private static final int PAGE_SIZE = 20;
+
     private FinanceManager financeManager;  // Min logik/”service”
     private Scanner scanner;                // Läser in användarens val/inputs
 
@@ -86,38 +90,112 @@ public class PersonalFinanceApp {
 
         // Skapar min transaktion och skickar till FinanceManager
         Transaction transaction = new Transaction(date, amount, description);
-        financeManager.addTransaction(transaction);
+        try {
+            financeManager.addTransaction(transaction);
+        } catch (RuntimeException e) {
+            System.out.println("Transaktionen kunde inte sparas: " + e.getMessage());
+        }
     }
 
-    // Tar bort en transaktion
+    // Tar bort en transaktion: användaren bläddrar/filtrerar fram den och väljer dess id
     private void removeTransaction() {
         System.out.println("\n=== Ta bort transaktion ===");
 
-        if (financeManager.getTransactionCount() == 0) {
-            System.out.println("Inga transaktioner att ta bort.");
+        Transaction selected = browseTransactions(true);
+        if (selected == null) return;
+
+        System.out.print("Ta bort \"" + selected + "\"? (j/n): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("j")) {
+            System.out.println("Avbryter...");
             return;
         }
 
-        financeManager.printAllTransactions();
-        int index = getIntInput(
-                "Ange index för transaktion att ta bort (eller 'exit' för att avbryta): "
-        );
-        if (index == -1) return;
+        try {
+            if (!financeManager.removeTransactionById(selected.getId())) {
+                System.out.println("Transaktionen fanns inte längre.");
+                return;
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Transaktionen kunde inte tas bort: " + e.getMessage());
+            return;
+        }
 
-// Hämta alla transaktioner
-        var all = financeManager.getAllTransactions();
+        System.out.println("Transaktion borttagen.");
+    }
 
-        if (index < 0 || index >= all.size()) {
-            System.out.println("Ogiltigt index.");
-            return;
+    /**
+     * Visar transaktionerna en sida i taget, med valfritt filter (datumintervall eller
+     * text i beskrivningen). Bara sidan som visas hämtas från databasen.
+     * Med select = true kan användaren välja en rad på sidan via dess id, som då returneras
+     * (utan att något behöver hämtas igen). Annars, eller vid avbrott, returneras null.
+     */
+    private Transaction browseTransactions(boolean select) {
+        System.out.print("Filtrera? (Enter = alla, d = datumintervall, s = sök i beskrivning): ");
+        String mode = scanner.nextLine().trim().toLowerCase();
+
+        LocalDate from = null;
+        LocalDate to = null;
+        String text = null;
+        if (mode.equals("d")) {
+            from = getDateInput("Från datum (YYYY-MM-DD): ");
+            if (from == null) return null;
+            to = getDateInput("Till datum (YYYY-MM-DD, Enter för idag): ");
+            if (to == null) return null;
+        } else if (mode.equals("s")) {
+            System.out.print("Sök efter: ");
+            text = scanner.nextLine().trim();
         }
 
-// Hämta rätt Transaction och ta bort via ID
-        Transaction selected = all.get(index);
-        financeManager.removeTransaction(selected);
+        int total = financeManager.getTransactionCount(from, to, text);
+        if (total == 0) {
+            System.out.println("Inga transaktioner hittades.");
+            return null;
+        }
+        int pages = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+        int page = 0;
+
+        while (true) {
+            List<Transaction> rows = financeManager.getTransactionPage(from, to, text, page * PAGE_SIZE, PAGE_SIZE);
+            System.out.printf("%n=== Sida %d av %d (%d transaktioner) ===%n", page + 1, pages, total);
+            System.out.printf("%8s  %s%n", "id", "datum | belopp | typ | beskrivning");
+            for (Transaction t : rows) {
+                System.out.printf("%8d  %s%n", t.getId(), t);
+            }
 
-        System.out.println("Transaktion borttagen.");
+            System.out.print("[n] nästa, [f] föregående, " + (select ? "id för att välja, " : "") + "[q] avsluta: ");
+            if (!scanner.hasNextLine()) return null;
+            String input = scanner.nextLine().trim().toLowerCase();
 
+            switch (input) {
+                case "n", "" -> {
+                    if (page + 1 < pages) page++;
+                    else if (input.equals("n")) System.out.println("Det finns inga fler sidor.");
+                    else return null; // Enter på sista sidan = klar
+                }
+                case "f" -> {
+                    if (page > 0) page--;
+                    else System.out.println("Du är redan på första sidan.");
+                }
+                case "q", "exit" -> {
+                    return null;
+                }
+                default -> {
+                    if (!select) {
+                        System.out.println("Ogiltigt val.");
+                        continue;
+                    }
+                    try {
+                        int id = Integer.parseInt(input);
+                        for (Transaction t : rows) {
+                            if (t.getId() == id) return t;
+                        }
+                        System.out.println("Id " + id + " finns inte på den här sidan.");
+                    } catch (NumberFormatException e) {
+                        System.out.println("Ogiltigt val.");
+                    }
+                }
+            }
+        }
     }
 
     // Visar nuvarande kontobalans
@@ -135,9 +213,9 @@ public class PersonalFinanceApp {
         }
     }
 
-    // Visar alla transaktioner
+    // Visar transaktionerna sida för sida (med valfritt filter)
     private void showAllTransactions() {
-        financeManager.printAllTransactions();
+        browseTransactions(false);
     }
 
     // Visar rapporter för olika tidsperioder
@@ -308,8 +386,12 @@ public class PersonalFinanceApp {
         return date;
     }
 
-    // Main-metoden som startar programmet (terminal-versionen)
+    // Main-metoden som startar programmet (terminal-versionen).
+    // Med argument körs ett batchkommando i stället för menyn (se BatchRunner).
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(new BatchRunner(new FinanceManager()).run(args));
+        }
         PersonalFinanceApp app = new PersonalFinanceApp();
         app.start();
     }
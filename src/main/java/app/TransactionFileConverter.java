@@ -0,0 +1,41 @@
+package app;
+
+import domain.Transaction;
+import repository.storage.BinaryTransactionStore;
+import repository.storage.TransactionStores;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Kommandoradsverktyg som konverterar transaktionsfiler mellan CSV och binärt format.
+ * Formatet väljs utifrån filändelsen: .pfb = binärt, allt annat = CSV.
+ *
+ * Exempel:
+ *   java app.TransactionFileConverter ~/.personalfinance/transactions.csv ~/.personalfinance/transactions.pfb
+ */
+public class TransactionFileConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Användning: TransactionFileConverter <från-fil> <till-fil>");
+            System.out.println("Filändelse " + BinaryTransactionStore.EXTENSION + " = binärt format, annars CSV.");
+            System.exit(1);
+        }
+
+        File from = new File(args[0]);
+        File to = new File(args[1]);
+        if (!from.exists()) {
+            System.out.println("Filen finns inte: " + from.getAbsolutePath());
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        List<Transaction> all = TransactionStores.forFile(from).readAll();
+        TransactionStores.forFile(to).writeAll(all);
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Konverterade %d transaktioner på %d ms (%d → %d bytes)%n",
+                all.size(), ms, from.length(), to.length());
+    }
+}
@@ -0,0 +1,44 @@
+package domain;
+
+import java.time.LocalDate;
+
+/**
+ * Summerade inkomster och utgifter för en dag (en "bucket" i diagrammen),
+ * eller för en längre period (vecka/månad/år) som börjar den dagen.
+ * Utgifter lagras som ett positivt tal.
+ */
+public class DailyTotal {
+
+    private final LocalDate date;
+    private final double income;
+    private final double expenses;
+
+    public DailyTotal(LocalDate date, double income, double expenses) {
+        if (date == null) throw new IllegalArgumentException("Datum får inte vara null");
+        this.date = date;
+        this.income = income;
+        this.expenses = expenses;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public double getIncome() {
+        return income;
+    }
+
+    public double getExpenses() {
+        return expenses;
+    }
+
+    // Dagens netto (inkomst - utgift)
+    public double getNet() {
+        return income - expenses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s | +%.2f kr | -%.2f kr", date, income, expenses);
+    }
+}
@@ -0,0 +1,45 @@
+package domain;
+
+/**
+ * En ändring i en användares transaktioner: en rad som lagts till eller tagits bort.
+ * Ändringarna har ett löpnummer (sequence) som bara ökar, så den som speglar
+ * transaktionerna kan fråga efter "allt efter nummer N" i stället för att hämta om allt.
+ * Vid borttagning är transaktionen raden som den såg ut när den togs bort.
+ */
+public class TransactionChange {
+
+    public enum Kind {
+        INSERT,
+        DELETE
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final Transaction transaction;
+
+    public TransactionChange(long sequence, Kind kind, Transaction transaction) {
+        if (kind == null || transaction == null) {
+            throw new IllegalArgumentException("Ändringen måste ha typ och transaktion");
+        }
+        this.sequence = sequence;
+        this.kind = kind;
+        this.transaction = transaction;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + kind + " " + transaction;
+    }
+}
@@ -0,0 +1,198 @@
+package gui;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Point2D;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.StackPane;
+import javafx.util.StringConverter;
+import service.Downsampler;
+import service.TimeSeries;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Översikt med inkomster, utgifter och balans över tid.
+ *
+ * Diagrammet ritas från dagssummor (TimeSeries), inte från enskilda transaktioner,
+ * och varje serie tunnas ut med LTTB till ungefär en punkt per pixel i bredd.
+ * Oavsett hur många dagar det finns får diagrammet alltså bara några hundra punkter,
+ * så zoom (scrollhjulet) och storleksändring ritar om direkt. Dubbelklick visar allt igen.
+ */
+public class DashboardView extends BorderPane {
+
+    // Minsta synliga intervall i dagar när man zoomar in
+    private static final double MIN_SPAN_DAYS = 7;
+
+    private final NumberAxis xAxis = new NumberAxis();
+    private final NumberAxis yAxis = new NumberAxis();
+    private final LineChart<Number, Number> chart = new LineChart<>(xAxis, yAxis);
+    private final XYChart.Series<Number, Number> incomeSeries = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> expenseSeries = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> balanceSeries = new XYChart.Series<>();
+    private final ProgressIndicator loadingIndicator = new ProgressIndicator();
+    private final Label emptyLabel = new Label("Inga transaktioner att visa.");
+
+    private TimeSeries series;
+    // Synligt intervall i epochDay
+    private double viewFrom;
+    private double viewTo;
+    // Så att flera ändringar i samma puls bara ger en omritning
+    private boolean redrawQueued = false;
+
+    /**
+     * @param loader hämtar dagssummorna (körs i bakgrunden)
+     * @param executor där hämtningen körs (inte FX-tråden)
+     */
+    public DashboardView(Supplier<TimeSeries> loader, Executor executor) {
+        incomeSeries.setName("Inkomster");
+        expenseSeries.setName("Utgifter");
+        balanceSeries.setName("Balans");
+
+        xAxis.setAutoRanging(false);
+        xAxis.setForceZeroInRange(false);
+        xAxis.setTickLabelFormatter(new StringConverter<>() {
+            @Override
+            public String toString(Number day) {
+                return LocalDate.ofEpochDay(day.longValue()).toString();
+            }
+
+            @Override
+            public Number fromString(String s) {
+                return LocalDate.parse(s).toEpochDay();
+            }
+        });
+        yAxis.setLabel("kr");
+
+        chart.setCreateSymbols(false);
+        chart.setAnimated(false);
+        chart.getData().add(incomeSeries);
+        chart.getData().add(expenseSeries);
+        chart.getData().add(balanceSeries);
+
+        chart.widthProperty().addListener((obs, oldW, newW) -> requestRedraw());
+        chart.setOnScroll(this::zoom);
+        chart.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) resetZoom();
+        });
+
+        loadingIndicator.setMaxSize(60, 60);
+        emptyLabel.setVisible(false);
+        setCenter(new StackPane(chart, emptyLabel, loadingIndicator));
+
+        load(loader, executor);
+    }
+
+    private void load(Supplier<TimeSeries> loader, Executor executor) {
+        Task<TimeSeries> task = new Task<>() {
+            @Override
+            protected TimeSeries call() {
+                return loader.get();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            loadingIndicator.setVisible(false);
+            series = task.getValue();
+            emptyLabel.setVisible(series.size() == 0);
+            resetZoom();
+        });
+        task.setOnFailed(e -> {
+            loadingIndicator.setVisible(false);
+            emptyLabel.setText("Kunde inte hämta översikten.");
+            emptyLabel.setVisible(true);
+        });
+        executor.execute(task);
+    }
+
+    private void resetZoom() {
+        if (series == null || series.size() == 0) return;
+        double[] days = series.getDays();
+        viewFrom = days[0];
+        viewTo = Math.max(days[days.length - 1], days[0] + 1);
+        requestRedraw();
+    }
+
+    // Zoomar runt dagen under muspekaren
+    private void zoom(ScrollEvent e) {
+        if (series == null || series.size() == 0 || e.getDeltaY() == 0) return;
+
+        Point2D p = xAxis.sceneToLocal(e.getSceneX(), e.getSceneY());
+        double anchor = xAxis.getValueForDisplay(p.getX()).doubleValue();
+        anchor = Math.max(viewFrom, Math.min(viewTo, anchor));
+
+        double factor = e.getDeltaY() > 0 ? 0.8 : 1.25;
+        double[] days = series.getDays();
+        double min = days[0];
+        double max = Math.max(days[days.length - 1], min + 1);
+
+        double span = Math.max(MIN_SPAN_DAYS, (viewTo - viewFrom) * factor);
+        double from = anchor - (anchor - viewFrom) * span / (viewTo - viewFrom);
+        double to = from + span;
+
+        // Håll intervallet inom datat
+        if (from < min) {
+            to += min - from;
+            from = min;
+        }
+        if (to > max) {
+            from -= to - max;
+            to = max;
+        }
+        viewFrom = Math.max(min, from);
+        viewTo = to;
+        requestRedraw();
+        e.consume();
+    }
+
+    private void requestRedraw() {
+        if (redrawQueued) return;
+        redrawQueued = true;
+        Platform.runLater(() -> {
+            redrawQueued = false;
+            redraw();
+        });
+    }
+
+    private void redraw() {
+        if (series == null || series.size() == 0) return;
+
+        xAxis.setLowerBound(viewFrom);
+        xAxis.setUpperBound(viewTo);
+        xAxis.setTickUnit(Math.max(1, Math.ceil((viewTo - viewFrom) / 8)));
+
+        // Synliga punkter plus en på var sida så att linjerna når kanterna
+        int from = Math.max(0, series.indexAtOrAfter(viewFrom) - 1);
+        int to = Math.min(series.size(), series.indexAtOrAfter(viewTo + 1) + 1);
+
+        // Ungefär en punkt per pixel
+        int threshold = Math.max(3, (int) chart.getWidth());
+
+        double[] days = series.getDays();
+        incomeSeries.setData(points(days, series.getIncome(), from, to, threshold));
+        expenseSeries.setData(points(days, series.getExpenses(), from, to, threshold));
+        balanceSeries.setData(points(days, series.getBalance(), from, to, threshold));
+    }
+
+    private static ObservableList<XYChart.Data<Number, Number>> points(
+            double[] x, double[] y, int from, int to, int threshold) {
+        int[] picked = Downsampler.lttb(x, y, from, to, threshold);
+        List<XYChart.Data<Number, Number>> data = new ArrayList<>(picked.length);
+        for (int i : picked) {
+            data.add(new XYChart.Data<>(x[i], y[i]));
+        }
+        return FXCollections.observableArrayList(data);
+    }
+}
@@ -0,0 +1,104 @@
+package gui;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Historik för ångra/gör om i GUI:t, med ett tak för hur många ändringar som sparas.
+ *
+ * En ändring vet själv hur den ångras och görs om. Historiken håller bara ordningen:
+ * en ny ändring tömmer gör om-listan, och när taket nås glöms den äldsta bort.
+ * Används bara från FX-tråden.
+ */
+public class EditHistory {
+
+    /**
+     * En ändring som kan ångras och göras om.
+     */
+    public interface Edit {
+        void undo();
+
+        void redo();
+    }
+
+    private final int limit;
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    private final ReadOnlyBooleanWrapper canUndo = new ReadOnlyBooleanWrapper(false);
+    private final ReadOnlyBooleanWrapper canRedo = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * @param limit max antal ändringar som kan ångras
+     */
+    public EditHistory(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Sparar en ändring som redan är gjord.
+     */
+    public void record(Edit edit) {
+        undoStack.push(edit);
+        if (undoStack.size() > limit) {
+            undoStack.removeLast();
+        }
+        redoStack.clear();
+        update();
+    }
+
+    /**
+     * Ångrar senaste ändringen (om det finns någon).
+     */
+    public void undo() {
+        Edit edit = undoStack.poll();
+        if (edit == null) return;
+        redoStack.push(edit);
+        update();
+        edit.undo();
+    }
+
+    /**
+     * Gör om senast ångrade ändringen (om det finns någon).
+     */
+    public void redo() {
+        Edit edit = redoStack.poll();
+        if (edit == null) return;
+        undoStack.push(edit);
+        update();
+        edit.redo();
+    }
+
+    /**
+     * Glömmer en ändring, t.ex. när den inte kunde sparas och redan har rullats tillbaka.
+     */
+    public void forget(Edit edit) {
+        undoStack.remove(edit);
+        redoStack.remove(edit);
+        update();
+    }
+
+    /**
+     * Tömmer historiken (t.ex. vid utloggning).
+     */
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        update();
+    }
+
+    public ReadOnlyBooleanProperty canUndoProperty() {
+        return canUndo.getReadOnlyProperty();
+    }
+
+    public ReadOnlyBooleanProperty canRedoProperty() {
+        return canRedo.getReadOnlyProperty();
+    }
+
+    private void update() {
+        canUndo.set(!undoStack.isEmpty());
+        canRedo.set(!redoStack.isEmpty());
+    }
+}
@@ -2,17 +2,30 @@ package gui;
 
 import service.FinanceManager;
 import domain.Transaction;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import gui.ThemeManager;
+import service.StartupWarmup;
+import service.TransactionSearchIndex;
 import java.time.LocalDate;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 // JavaFX-applikation som ansvarar för hela GUI:t (inloggning, menyer, vyer)
 public class FinanceAppFX extends Application {
@@ -21,15 +34,69 @@ public class FinanceAppFX extends Application {
     private FinanceManager financeManager;
     // Tabell som visar alla transaktioner för inloggad användare
     private TableView<Transaction> transactionTable;
+    // Tabellens lista – hämtar bara de sidor som syns, och ändras en rad i taget (så scrollen behålls)
+    private PagedTransactionList transactionData;
+    // Visas ovanpå tabellen medan transaktionerna räknas
+    private ProgressIndicator loadingIndicator;
     // Visar aktuell balans för inloggad användare
     private Label balanceLabel;
+    // Balansen hämtas som en SUM i databasen och justeras vid varje ändring
+    private double balance;
+
+    // All databasåtkomst från GUI:t körs här, en i taget, så att FX-tråden aldrig blockeras
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "finance-background");
+        t.setDaemon(true);
+        return t;
+    });
+    // Pågående hämtning av balansen (avbryts om en ny startas)
+    private Task<Double> balanceTask;
+    // Ångra/gör om för tillägg och borttagningar
+    private final EditHistory history = new EditHistory(50);
+    // Rader som lagts till i den här sessionen och syns i tabellen, nycklade på objektet
+    // i tabellen (används bara på FX-tråden). En borttagning av en sådan rad måste gå via
+    // samma TrackedRow, annars tas id 0 bort om sparningen inte hunnit bli klar.
+    private final Map<Transaction, TrackedRow> trackedRows = new IdentityHashMap<>();
+
+    // Sökningar körs mot indexet i minnet på en egen tråd, så de inte står i kö bakom databasen
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "finance-search");
+        t.setDaemon(true);
+        return t;
+    });
+    // Sökfälten ovanför tabellen
+    private HBox searchBar;
+    private TextField searchField;
+    private TextField minAmountField;
+    private TextField maxAmountField;
+    private DatePicker fromPicker;
+    private DatePicker toPicker;
+    private Label searchStatus;
+    // Väntar tills användaren slutat skriva en stund innan sökningen körs
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(200));
+    // Pågående sökning (avbryts när en ny startas)
+    private Task<TransactionSearchIndex.Result> searchTask;
     // Thema
     private Scene scene;
 
     // Startpunkt för JavaFX-applikationen – bygger upp hela gränssnittet
     @Override
     public void start(Stage primaryStage) {
+        // Databasen värms upp i bakgrunden och stilmallarna läses in på FX-tråden
+        // medan login-dialogen visas (dialogen kör FX-händelser under tiden)
+        StartupWarmup.start();
+        Platform.runLater(() -> {
+            long t0 = System.nanoTime();
+            ThemeManager.preload();
+            StartupWarmup.logPhase("stilmallar", t0);
+        });
+
         financeManager = new FinanceManager();
+        transactionData = new PagedTransactionList(
+                financeManager::getTransactionPage,
+                financeManager::getTransactionCount,
+                backgroundExecutor,
+                e -> showAlert("Kunde inte ladda transaktioner.", Alert.AlertType.ERROR));
 
         // Visa login-dialog (avslutar endast om Cancel)
         if (!showLoginDialog()) {
@@ -37,6 +104,7 @@ public class FinanceAppFX extends Application {
             return;
         }
 
+        long windowStart = System.nanoTime();
         primaryStage.setTitle("Personal Finance App");
 
         // Vänster panel som innehåller alla menyknappar
@@ -53,6 +121,16 @@ public class FinanceAppFX extends Application {
         btnRemove.setOnAction(e -> removeSelectedTransaction());
 
 
+        Button btnUndo = new Button("Ångra");
+        btnUndo.setPrefWidth(180);
+        btnUndo.setOnAction(e -> history.undo());
+        btnUndo.disableProperty().bind(history.canUndoProperty().not());
+
+        Button btnRedo = new Button("Gör om");
+        btnRedo.setPrefWidth(180);
+        btnRedo.setOnAction(e -> history.redo());
+        btnRedo.disableProperty().bind(history.canRedoProperty().not());
+
         Button btnRefresh = new Button("Uppdatera lista");
         btnRefresh.setPrefWidth(180);
         btnRefresh.setOnAction(e -> refreshTable());
@@ -61,17 +139,24 @@ public class FinanceAppFX extends Application {
         btnReports.setPrefWidth(180);
         btnReports.setOnAction(e -> showReportsDialog());
 
+        Button btnDashboard = new Button("Översikt");
+        btnDashboard.setPrefWidth(180);
+        btnDashboard.setOnAction(e -> showDashboard());
+
         Button btnLogout = new Button("Logga ut");
         btnLogout.setPrefWidth(180);
         btnLogout.setOnAction(e -> {
             financeManager.logout();
+            transactionData.clear();
+            history.clear();
+            clearSearch();
 
             if (!showLoginDialog()) {
                 primaryStage.close();
                 return;
             }
                 refreshTable();
-                updateBalanceLabel();
+                loadSearchIndex();
 
         });
         Button btnTheme = new Button("Byt tema");
@@ -86,11 +171,10 @@ public class FinanceAppFX extends Application {
         });
 
         balanceLabel = new Label();
-        updateBalanceLabel();
 
         leftPanel.getChildren().addAll(
                 new Label("=== MENY ==="),
-                btnAdd, btnRemove, btnRefresh, btnReports,
+                btnAdd, btnRemove, btnUndo, btnRedo, btnRefresh, btnReports, btnDashboard,
                 btnTheme, btnLogout, btnExit,
                 new Separator(),
                 balanceLabel
@@ -111,7 +195,16 @@ public class FinanceAppFX extends Application {
         descCol.setCellValueFactory(new PropertyValueFactory<>("description"));
 
         transactionTable.getColumns().addAll(dateCol, amountCol, descCol);
+        transactionTable.setItems(transactionData);
+
+        loadingIndicator = new ProgressIndicator();
+        loadingIndicator.setMaxSize(60, 60);
+        loadingIndicator.visibleProperty().bind(transactionData.countingProperty());
+        StackPane tablePane = new StackPane(transactionTable, loadingIndicator);
+        VBox.setVgrow(tablePane, Priority.ALWAYS);
+        VBox centerPane = new VBox(5, createSearchBar(), tablePane);
         refreshTable();
+        loadSearchIndex();
 
         btnRemove.disableProperty().bind(
                 transactionTable.getSelectionModel()
@@ -122,12 +215,15 @@ public class FinanceAppFX extends Application {
         // Huvudlayout där meny ligger till vänster och innehåll i mitten
         BorderPane root = new BorderPane();
         root.setLeft(leftPanel);
-        root.setCenter(transactionTable);
+        root.setCenter(centerPane);
 
         scene = new Scene(root, 800, 500);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), history::undo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), history::redo);
         ThemeManager.applyTheme(scene, ThemeManager.Theme.LIGHT);
         primaryStage.setScene(scene);
         primaryStage.show();
+        StartupWarmup.logPhase("huvudfönster", windowStart);
 
 
 
@@ -247,36 +343,320 @@ public class FinanceAppFX extends Application {
             return null;
         });
 
-        dialog.showAndWait().ifPresent(t -> {
-            financeManager.addTransaction(t);
-            refreshTable();
-        });
+        dialog.showAndWait().ifPresent(this::addTransaction);
+    }
+
+    // === Ändringar (visas direkt, sparas i bakgrunden, kan ångras) ===
+
+    // En rad som ändras optimistiskt. shown är objektet i tabellen och persisted det som
+    // finns i databasen (null om inget). persisted ändras bara på bakgrundstråden, så
+    // ändringar av samma rad ser varandra i den ordning de gjordes.
+    private static final class TrackedRow {
+        Transaction shown;
+        boolean visible;
+        volatile Transaction persisted;
+    }
+
+    // Lägger till en ny transaktion (kan ångras)
+    private void addTransaction(Transaction t) {
+        TrackedRow row = new TrackedRow();
+        row.shown = t;
+        EditHistory.Edit edit = new EditHistory.Edit() {
+            @Override
+            public void undo() {
+                deleteRow(row, this);
+            }
+
+            @Override
+            public void redo() {
+                addRow(row, this);
+            }
+        };
+        addRow(row, edit);
+        history.record(edit);
     }
 
-    // Tar bort den transaktion som användaren markerat i tabellen
+    // Tar bort den transaktion som användaren markerat i tabellen (kan ångras)
     private void removeSelectedTransaction() {
         Transaction t = transactionTable.getSelectionModel().getSelectedItem();
         if (t == null) return;
 
-        financeManager.removeTransaction(t);
-        refreshTable();
+        TrackedRow row = trackedRows.get(t);
+        if (row == null) {
+            // En rad som hämtats från databasen (har redan sitt id)
+            row = new TrackedRow();
+            row.shown = t;
+            row.visible = true;
+            row.persisted = t;
+        }
+        TrackedRow target = row;
+        EditHistory.Edit edit = new EditHistory.Edit() {
+            @Override
+            public void undo() {
+                addRow(target, this);
+            }
+
+            @Override
+            public void redo() {
+                deleteRow(target, this);
+            }
+        };
+        deleteRow(target, edit);
+        history.record(edit);
     }
 
+    // Visar raden direkt (sist, där databasen sorterar nya rader) och sparar den i bakgrunden.
+    // Misslyckas sparningen tas raden bort ur tabellen igen.
+    private void addRow(TrackedRow row, EditHistory.Edit edit) {
+        Transaction source = row.shown;
+        Transaction pending = new Transaction(source.getDate(), source.getAmount(), source.getDescription());
+        row.shown = pending;
+        row.visible = true;
+        trackedRows.put(pending, row);
+
+        transactionData.append(pending);
+        if (transactionTable.getItems() == transactionData) {
+            transactionTable.scrollTo(transactionData.size() - 1);
+        }
+        balance += pending.getAmount();
+        updateBalanceLabel();
 
+        Task<Transaction> task = new Task<>() {
+            @Override
+            protected Transaction call() {
+                row.persisted = null;
+                Transaction saved = financeManager.addTransaction(pending);
+                row.persisted = saved;
+                return saved;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // Den väntande raden byts mot den sparade (med id), om den fortfarande visas
+            Transaction saved = task.getValue();
+            if (row.visible && row.shown == pending) {
+                transactionData.replace(pending, saved);
+                row.shown = saved;
+                trackedRows.remove(pending);
+                trackedRows.put(saved, row);
+            }
+            if (transactionTable.getItems() != transactionData) {
+                runSearch(); // indexet är uppdaterat – sök om så att raden syns om den matchar
+            }
+        });
+        task.setOnFailed(e -> {
+            if (row.visible && row.shown == pending) {
+                int index = transactionData.indexOfLoaded(pending);
+                if (index >= 0) transactionData.removeAt(index);
+                else transactionData.refresh();
+                row.visible = false;
+                trackedRows.remove(pending);
+                balance -= pending.getAmount();
+                updateBalanceLabel();
+            }
+            history.forget(edit);
+            showAlert("Kunde inte spara transaktionen. Ändringen har ångrats.", Alert.AlertType.ERROR);
+        });
+        backgroundExecutor.submit(task);
+    }
 
-    // Hämtar alla transaktioner och uppdaterar tabellen och balansen
-    private void refreshTable() {
-        ObservableList<Transaction> data =
-                FXCollections.observableArrayList(financeManager.getAllTransactions());
-        transactionTable.setItems(data);
+    // Tar bort raden ur tabellen direkt och ur databasen i bakgrunden. Uppgifterna körs i
+    // ordning, så en rad som fortfarande sparas tas bort först när den fått sitt id.
+    // Misslyckas borttagningen (eller fanns raden inte) läggs raden tillbaka på samma plats.
+    private void deleteRow(TrackedRow row, EditHistory.Edit edit) {
+        Transaction shown = row.shown;
+        int index = transactionData.indexOfLoaded(shown);
+        if (index >= 0) transactionData.removeAt(index);
+        row.visible = false;
+        trackedRows.remove(shown);
+        balance -= shown.getAmount();
         updateBalanceLabel();
+
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                Transaction persisted = row.persisted;
+                if (persisted == null) return null; // sparades aldrig, inget att ta bort
+                if (!financeManager.removeTransaction(persisted)) {
+                    throw new IllegalStateException("Transaktionen " + persisted.getId() + " finns inte");
+                }
+                row.persisted = null;
+                return null;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // Raden fanns inte bland de hämtade sidorna (t.ex. vald bland sökträffar) → räkna om
+            if (index < 0) transactionData.refresh();
+            if (transactionTable.getItems() != transactionData) runSearch();
+        });
+        task.setOnFailed(e -> {
+            if (index >= 0) transactionData.insertAt(index, shown);
+            else transactionData.refresh();
+            row.visible = true;
+            trackedRows.put(shown, row);
+            balance += shown.getAmount();
+            updateBalanceLabel();
+            history.forget(edit);
+            showAlert("Kunde inte ta bort transaktionen. Ändringen har ångrats.", Alert.AlertType.ERROR);
+        });
+        backgroundExecutor.submit(task);
+    }
+
+
+
+    // Räknar om raderna (sidorna hämtas när de syns) och hämtar balansen, allt i bakgrunden
+    private void refreshTable() {
+        transactionData.refresh();
+
+        if (balanceTask != null && balanceTask.isRunning()) {
+            balanceTask.cancel();
+        }
+        Task<Double> task = new Task<>() {
+            @Override
+            protected Double call() {
+                return financeManager.getBalance();
+            }
+        };
+        balanceTask = task;
+        task.setOnSucceeded(e -> {
+            if (task != balanceTask) return; // en nyare hämtning har startats
+            balance = task.getValue();
+            updateBalanceLabel();
+        });
+        backgroundExecutor.submit(task);
+    }
+
+    // === Sökning ===
+
+    // Sökfält för beskrivning, belopp och datum. Varje ändring startar om fördröjningen,
+    // så sökningen körs först när användaren slutat skriva.
+    private HBox createSearchBar() {
+        searchField = new TextField();
+        searchField.setPromptText("Sök beskrivning");
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+
+        minAmountField = new TextField();
+        minAmountField.setPromptText("Från kr");
+        minAmountField.setPrefWidth(80);
+        maxAmountField = new TextField();
+        maxAmountField.setPromptText("Till kr");
+        maxAmountField.setPrefWidth(80);
+
+        fromPicker = new DatePicker();
+        fromPicker.setPromptText("Från datum");
+        fromPicker.setPrefWidth(120);
+        toPicker = new DatePicker();
+        toPicker.setPromptText("Till datum");
+        toPicker.setPrefWidth(120);
+
+        Button btnClear = new Button("Rensa");
+        btnClear.setOnAction(e -> clearSearch());
+
+        searchStatus = new Label();
+        searchDelay.setOnFinished(e -> runSearch());
+
+        searchField.textProperty().addListener((obs, o, n) -> searchDelay.playFromStart());
+        minAmountField.textProperty().addListener((obs, o, n) -> searchDelay.playFromStart());
+        maxAmountField.textProperty().addListener((obs, o, n) -> searchDelay.playFromStart());
+        fromPicker.valueProperty().addListener((obs, o, n) -> searchDelay.playFromStart());
+        toPicker.valueProperty().addListener((obs, o, n) -> searchDelay.playFromStart());
+
+        searchBar = new HBox(5, searchField, minAmountField, maxAmountField,
+                fromPicker, toPicker, btnClear, searchStatus);
+        searchBar.setAlignment(Pos.CENTER_LEFT);
+        searchBar.setPadding(new Insets(5, 5, 0, 5));
+        searchBar.setDisable(true); // tills indexet är inläst
+        return searchBar;
+    }
+
+    // Läser in sökindexet i bakgrunden efter inloggning
+    private void loadSearchIndex() {
+        searchBar.setDisable(true);
+        searchStatus.setText("Indexerar...");
+
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                financeManager.loadSearchIndex();
+                return null;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (!financeManager.isSearchReady()) return; // utloggad under tiden
+            searchBar.setDisable(false);
+            searchStatus.setText("");
+        });
+        task.setOnFailed(e -> searchStatus.setText("Sökning ej tillgänglig"));
+        backgroundExecutor.submit(task);
     }
 
-    // Uppdaterar och visar aktuell balans för inloggad användare
+    // Kör sökningen på söktråden; en tidigare sökning som inte hunnit bli klar avbryts
+    private void runSearch() {
+        searchDelay.stop();
+        if (searchTask != null) {
+            searchTask.cancel();
+            searchTask = null;
+        }
+
+        TransactionSearchIndex.Query query;
+        try {
+            query = new TransactionSearchIndex.Query(
+                    searchField.getText(),
+                    parseAmount(minAmountField.getText()),
+                    parseAmount(maxAmountField.getText()),
+                    fromPicker.getValue(),
+                    toPicker.getValue());
+        } catch (NumberFormatException ex) {
+            searchStatus.setText("Ogiltigt belopp");
+            return;
+        }
+
+        if (query.isEmpty() || !financeManager.isSearchReady()) {
+            transactionTable.setItems(transactionData);
+            searchStatus.setText("");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Task<TransactionSearchIndex.Result> task = new Task<>() {
+            @Override
+            protected TransactionSearchIndex.Result call() {
+                return financeManager.search(query, this::isCancelled);
+            }
+        };
+        searchTask = task;
+        task.setOnSucceeded(e -> {
+            if (task != searchTask) return; // en nyare sökning har startats
+            TransactionSearchIndex.Result result = task.getValue();
+            transactionTable.setItems(new SearchResultList(result));
+            searchStatus.setText(String.format("%d träffar (%d ms)",
+                    result.size(), (System.nanoTime() - start) / 1_000_000));
+        });
+        task.setOnFailed(e -> {
+            if (task != searchTask || task.getException() instanceof CancellationException) return;
+            searchStatus.setText("Sökningen misslyckades");
+        });
+        searchExecutor.submit(task);
+    }
+
+    // Tömmer sökfälten och visar alla transaktioner igen
+    private void clearSearch() {
+        searchField.clear();
+        minAmountField.clear();
+        maxAmountField.clear();
+        fromPicker.setValue(null);
+        toPicker.setValue(null);
+        runSearch();
+    }
+
+    // Tomt fält = inget villkor; tillåter decimalkomma
+    private static Double parseAmount(String text) {
+        if (text == null || text.isBlank()) return null;
+        return Double.parseDouble(text.trim().replace(',', '.'));
+    }
+
+    // Visar aktuell balans för inloggad användare
     private void updateBalanceLabel() {
-        balanceLabel.setText(
-                String.format("Balans: %.2f kr", financeManager.getBalance())
-        );
+        balanceLabel.setText(String.format("Balans: %.2f kr", balance));
     }
 
     // === Visa rapporter (alla nivåer i en dialog) ===
@@ -378,6 +758,21 @@ public class FinanceAppFX extends Application {
         dialog.showAndWait();
     }
 
+    // === Översikt med diagram (dagssummor hämtas i bakgrunden) ===
+    private void showDashboard() {
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Översikt");
+        dialog.setHeaderText("Scrolla för att zooma, dubbelklicka för att visa allt");
+        applyThemeToDialog(dialog);
+
+        DashboardView view = new DashboardView(financeManager::getDailySeries, backgroundExecutor);
+        view.setPrefSize(800, 450);
+        dialog.getDialogPane().setContent(view);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        dialog.setResizable(true);
+        dialog.showAndWait();
+    }
+
     private void applyThemeToDialog(Dialog<?> dialog) {
         dialog.getDialogPane().getStylesheets().clear();
 
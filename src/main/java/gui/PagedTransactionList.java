@@ -0,0 +1,329 @@
+package gui;
+
+import domain.Transaction;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ObservableListBase;
+import metrics.CacheStats;
+import metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lista för TableView som bara håller några sidor transaktioner i minnet.
+ *
+ * size() är det totala antalet rader (hämtas med en COUNT), men raderna hämtas
+ * först när tabellen frågar efter dem med get(i). Finns sidan inte i minnet returneras
+ * null (tom rad) och sidan hämtas i bakgrunden; när den kommit meddelas tabellen att
+ * just de raderna ändrats. Nästa sida hämtas i förväg så att scroll nedåt inte hinner
+ * visa tomma rader. Högst MAX_PAGES sidor sparas, de som använts längst sedan kastas.
+ *
+ * Misslyckas en hämtning anropas onError en gång, och sidan hämtas inte igen förrän
+ * vid refresh() eller nästa ändring – annars skulle varje ritning av tabellen starta
+ * en ny hämtning så länge databasen är nere.
+ *
+ * Allt utom sidhämtningen körs på FX-tråden.
+ */
+public class PagedTransactionList extends ObservableListBase<Transaction> {
+
+    /**
+     * Hämtar rader [offset, offset + limit). Körs i bakgrunden.
+     */
+    public interface PageLoader {
+        List<Transaction> load(int offset, int limit);
+    }
+
+    static final int PAGE_SIZE = 100;
+    static final int MAX_PAGES = 20;
+
+    // Träffar/missar i sidcachen för get(), och kastade sidor (JMX, se metrics.Metrics)
+    private static final CacheStats STATS = Metrics.cache("transactionPages");
+
+    private final PageLoader loader;
+    private final Supplier<Integer> counter;
+    private final Executor executor;
+    private final Consumer<Throwable> onError;
+
+    private int size = 0;
+
+    // Sidnummer → rader. Åtkomstordning gör den till en LRU-cache.
+    private final Map<Integer, List<Transaction>> pages = new LinkedHashMap<>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+            boolean evict = size() > MAX_PAGES;
+            if (evict) STATS.evicted();
+            return evict;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    // Sidor som blivit kortare av en borttagning här och ska hämtas om (en gång)
+    private final Set<Integer> shortened = new HashSet<>();
+    // Sidor vars hämtning misslyckats
+    private final Set<Integer> failed = new HashSet<>();
+
+    // Ökas när innehållet ändras så att svar på gamla förfrågningar kan kastas
+    private int generation = 0;
+
+    private final ReadOnlyBooleanWrapper counting = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * @param loader hämtar en sida
+     * @param counter räknar totalt antal rader
+     * @param executor där hämtningarna körs (inte FX-tråden)
+     * @param onError anropas på FX-tråden om en hämtning misslyckas
+     */
+    public PagedTransactionList(PageLoader loader, Supplier<Integer> counter,
+                                Executor executor, Consumer<Throwable> onError) {
+        this.loader = loader;
+        this.counter = counter;
+        this.executor = executor;
+        this.onError = onError;
+        // Läses från JMX-tråden: bara ett int-fält i mappen, högst lite inaktuellt
+        STATS.setSize(pages::size);
+    }
+
+    /**
+     * True medan antalet rader räknas (t.ex. för en laddningsindikator).
+     */
+    public ReadOnlyBooleanProperty countingProperty() {
+        return counting.getReadOnlyProperty();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Raden på plats index, eller null om dess sida inte är hämtad än.
+     */
+    @Override
+    public Transaction get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+        int page = index / PAGE_SIZE;
+        List<Transaction> rows = pages.get(page);
+
+        // Förhämta nästa sida när tabellen närmar sig slutet av den här
+        if (index % PAGE_SIZE >= PAGE_SIZE / 2) {
+            request(page + 1);
+        }
+
+        if (rows == null) {
+            STATS.miss();
+            request(page);
+            return null;
+        }
+        int i = index - page * PAGE_SIZE;
+        if (i >= rows.size()) {
+            // Sidan har blivit kortare efter en borttagning – hämta om den i bakgrunden.
+            // Bara en gång: en sida som kommer tillbaka kort hämtas inte om vid varje ritning.
+            STATS.miss();
+            if (shortened.remove(page)) load(page);
+            return null;
+        }
+        STATS.hit();
+        return rows.get(i);
+    }
+
+    /**
+     * Tömmer cachen och räknar om antalet rader (t.ex. efter inloggning eller "Uppdatera").
+     */
+    public void refresh() {
+        int gen = ++generation;
+        pages.clear();
+        loading.clear();
+        shortened.clear();
+        failed.clear();
+        counting.set(true);
+
+        executor.execute(() -> {
+            try {
+                int count = counter.get();
+                Platform.runLater(() -> {
+                    if (gen != generation) return;
+                    counting.set(false);
+                    resize(count);
+                });
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> {
+                    counting.set(false);
+                    onError.accept(e);
+                });
+            }
+        });
+    }
+
+    /**
+     * Tömmer listan utan att hämta något (t.ex. vid utloggning).
+     */
+    public void clear() {
+        generation++;
+        pages.clear();
+        loading.clear();
+        shortened.clear();
+        failed.clear();
+        resize(0);
+    }
+
+    /**
+     * Lägger till en sparad rad sist (nya rader sorteras sist i databasen).
+     */
+    public void append(Transaction tx) {
+        int index = size;
+        List<Transaction> last = pages.get(index / PAGE_SIZE);
+        if (last != null && last.size() == index % PAGE_SIZE) {
+            last.add(tx);
+        }
+        size++;
+
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    /**
+     * Tar bort raden på plats index. Sidorna efter den förskjuts, så de kastas och hämtas om.
+     */
+    public void removeAt(int index) {
+        if (index < 0 || index >= size) return;
+
+        // Sidan med raden behålls (utan raden) så att tabellen inte blinkar,
+        // men alla sidor efter den har förskjutits ett steg och kastas
+        int firstPage = index / PAGE_SIZE;
+        int i = index - firstPage * PAGE_SIZE;
+        List<Transaction> page = pages.get(firstPage);
+        Transaction removed = page != null && i < page.size() ? page.remove(i) : null;
+        pages.keySet().removeIf(p -> p > firstPage);
+        if (page != null) shortened.add(firstPage);
+        shortened.removeIf(p -> p > firstPage);
+        failed.clear();
+        generation++;
+        loading.clear();
+        size--;
+
+        beginChange();
+        nextRemove(index, removed);
+        endChange();
+    }
+
+    /**
+     * Lägger in en rad på plats index (t.ex. när en borttagning misslyckades och ska ångras).
+     * Sidorna efter den förskjuts, så de kastas och hämtas om.
+     */
+    public void insertAt(int index, Transaction tx) {
+        index = Math.max(0, Math.min(index, size));
+
+        int firstPage = index / PAGE_SIZE;
+        int i = index - firstPage * PAGE_SIZE;
+        List<Transaction> page = pages.get(firstPage);
+        if (page != null && i <= page.size()) {
+            page.add(i, tx);
+        }
+        pages.keySet().removeIf(p -> p > firstPage);
+        shortened.removeIf(p -> p > firstPage);
+        failed.clear();
+        generation++;
+        loading.clear();
+        size++;
+
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    /**
+     * Byter ut en rad mot en annan på samma plats (t.ex. när en väntande rad har sparats
+     * och fått sitt id). Returnerar false om raden inte finns bland de hämtade sidorna.
+     */
+    public boolean replace(Transaction old, Transaction replacement) {
+        int index = indexOfLoaded(old);
+        if (index < 0) return false;
+
+        List<Transaction> page = pages.get(index / PAGE_SIZE);
+        page.set(index % PAGE_SIZE, replacement);
+
+        beginChange();
+        nextSet(index, old);
+        endChange();
+        return true;
+    }
+
+    /**
+     * Platsen för just det här objektet bland de hämtade sidorna, eller -1.
+     * (Jämför identitet – sidor som hämtats om innehåller nya objekt.)
+     */
+    public int indexOfLoaded(Transaction tx) {
+        for (Map.Entry<Integer, List<Transaction>> e : pages.entrySet()) {
+            List<Transaction> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i) == tx) return e.getKey() * PAGE_SIZE + i;
+            }
+        }
+        return -1;
+    }
+
+    // Hämtar en sida i bakgrunden om den inte redan finns (eller nyss misslyckades)
+    private void request(int page) {
+        if (!pages.containsKey(page) && !failed.contains(page)) load(page);
+    }
+
+    // Hämtar (eller hämtar om) en sida i bakgrunden om den inte redan är på väg
+    private void load(int page) {
+        if (page < 0 || page * PAGE_SIZE >= size) return;
+        if (!loading.add(page)) return;
+
+        int gen = generation;
+        executor.execute(() -> {
+            try {
+                List<Transaction> rows = new ArrayList<>(loader.load(page * PAGE_SIZE, PAGE_SIZE));
+                Platform.runLater(() -> pageLoaded(gen, page, rows));
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> pageFailed(gen, page, e));
+            }
+        });
+    }
+
+    // Felet visas bara för den första sidan som misslyckas sedan senaste refresh/ändring
+    private void pageFailed(int gen, int page, RuntimeException e) {
+        if (gen != generation) return; // listan har ändrats sedan förfrågan
+        loading.remove(page);
+        boolean first = failed.isEmpty();
+        failed.add(page);
+        if (first) onError.accept(e);
+    }
+
+    private void pageLoaded(int gen, int page, List<Transaction> rows) {
+        if (gen != generation) return; // listan har ändrats sedan förfrågan
+        loading.remove(page);
+        shortened.remove(page);
+        pages.put(page, rows);
+
+        // Raderna gick från null till riktiga värden → meddela tabellen
+        int from = page * PAGE_SIZE;
+        int to = Math.min(size, from + rows.size());
+        if (from >= to) return;
+        beginChange();
+        nextReplace(from, to, Collections.nCopies(to - from, null));
+        endChange();
+    }
+
+    private void resize(int newSize) {
+        int oldSize = size;
+        size = newSize;
+        beginChange();
+        if (oldSize > 0) nextRemove(0, Collections.nCopies(oldSize, null));
+        if (newSize > 0) nextAdd(0, newSize);
+        endChange();
+    }
+}
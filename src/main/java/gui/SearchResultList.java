@@ -0,0 +1,38 @@
+package gui;
+
+import domain.Transaction;
+import javafx.collections.ObservableListBase;
+import service.TransactionSearchIndex;
+
+/**
+ * Oföränderlig lista för TableView över träffarna från en sökning.
+ *
+ * Träffarna kan vara väldigt många, så en Transaction skapas först när tabellen
+ * frågar efter raden och sparas sedan (så att samma rad alltid är samma objekt,
+ * vilket markeringen i tabellen bygger på). En ny sökning ger en ny lista.
+ */
+public class SearchResultList extends ObservableListBase<Transaction> {
+
+    private final TransactionSearchIndex.Result result;
+    private final Transaction[] rows;
+
+    public SearchResultList(TransactionSearchIndex.Result result) {
+        this.result = result;
+        this.rows = new Transaction[result.size()];
+    }
+
+    @Override
+    public Transaction get(int index) {
+        Transaction tx = rows[index];
+        if (tx == null) {
+            tx = result.get(index);
+            rows[index] = tx;
+        }
+        return tx;
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+}
@@ -1,6 +1,11 @@
 package gui;
 
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.StackPane;
 
 public class ThemeManager {
 
@@ -14,20 +19,29 @@ public class ThemeManager {
     // ===== APPLY THEME =====
     public static void applyTheme(Scene scene, Theme theme) {
         scene.getStylesheets().clear();
-
-        if (theme == Theme.DARK) {
-            scene.getStylesheets().add(
-                    ThemeManager.class.getResource("/dark.css").toExternalForm()
-            );
-        } else {
-            scene.getStylesheets().add(
-                    ThemeManager.class.getResource("/light.css").toExternalForm()
-            );
-        }
+        scene.getStylesheets().add(stylesheet(theme));
 
         currentTheme = theme;
     }
 
+    // ===== STYLESHEET URL =====
+    public static String stylesheet(Theme theme) {
+        String name = theme == Theme.DARK ? "/dark.css" : "/light.css";
+        return ThemeManager.class.getResource(name).toExternalForm();
+    }
+
+    // ===== PRELOAD =====
+    // Läser in och tolkar båda stilmallarna i förväg (JavaFX sparar dem efter första
+    // användningen), så att första fönstret och första temabytet går snabbt. Körs på FX-tråden.
+    public static void preload() {
+        StackPane root = new StackPane(new Button(), new Label(), new TextField(), new TableView<>());
+        Scene scene = new Scene(root);
+        for (Theme theme : Theme.values()) {
+            scene.getStylesheets().setAll(stylesheet(theme));
+            root.applyCss();
+        }
+    }
+
     // ===== TOGGLE BUTTON =====
     public static void toggle(Scene scene) {
         if (currentTheme == Theme.DARK) {
@@ -0,0 +1,73 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Räknare för en cache. Cachen anropar hit/miss/evicted och storleken läses
+ * från den när någon frågar (size måste då tåla att anropas från en annan tråd).
+ * Skapas och registreras via Metrics.cache.
+ */
+public final class CacheStats implements CacheStatsMXBean {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile IntSupplier size = () -> 0;
+
+    CacheStats() {
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public void evicted() {
+        evictions.increment();
+    }
+
+    /**
+     * Var storleken hämtas (senaste cachen som angett den vinner).
+     */
+    public void setSize(IntSupplier size) {
+        this.size = size;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public int getSize() {
+        return size.getAsInt();
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+}
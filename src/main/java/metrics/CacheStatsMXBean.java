@@ -0,0 +1,25 @@
+package metrics;
+
+/**
+ * Träffar och missar för en cache, som de syns via JMX.
+ */
+public interface CacheStatsMXBean {
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    /**
+     * Andel träffar (0–1) sedan start eller reset.
+     */
+    double getHitRatio();
+
+    /**
+     * Antal poster i cachen just nu.
+     */
+    int getSize();
+
+    void reset();
+}
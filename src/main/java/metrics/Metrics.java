@@ -0,0 +1,72 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Samlar appens mätvärden och publicerar dem som MBeans i JVM:ens MBean-server,
+ * under domänen "personalfinance". De syns i JConsole/VisualVM (fliken MBeans) och
+ * kan skrapas med t.ex. Prometheus jmx_exporter:
+ * <pre>
+ *   personalfinance:type=JdbcTransactionRepository,name=findAllForUser   (OperationStats)
+ *   personalfinance:type=ConnectionPool,name=default                      (ConnectionPoolMXBean)
+ *   personalfinance:type=Cache,name=transactionPages                      (CacheStats)
+ * </pre>
+ * Typ och namn är vanliga identifierare (inga kommatecken, kolon eller citattecken).
+ * Samma typ och namn ger samma objekt, så flera instanser av ett repository delar
+ * räknare. Går registreringen inte (t.ex. utan java.management) fungerar räknarna
+ * ändå, de syns bara inte utåt.
+ */
+public final class Metrics {
+
+    public static final String DOMAIN = "personalfinance";
+
+    private static final ConcurrentMap<String, Object> BEANS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Räknare och latens för operationen name i type (oftast klassens namn).
+     */
+    public static OperationStats operation(String type, String name) {
+        return (OperationStats) BEANS.computeIfAbsent(key(type, name), k -> publish(k, new OperationStats()));
+    }
+
+    /**
+     * Räknare för cachen name.
+     */
+    public static CacheStats cache(String name) {
+        return (CacheStats) BEANS.computeIfAbsent(key("Cache", name), k -> publish(k, new CacheStats()));
+    }
+
+    /**
+     * Publicerar ett eget MXBean-objekt (ersätter ett tidigare med samma typ och namn).
+     */
+    public static void register(String type, String name, Object mxBean) {
+        String key = key(type, name);
+        BEANS.put(key, publish(key, mxBean));
+    }
+
+    private static String key(String type, String name) {
+        return DOMAIN + ":type=" + type + ",name=" + name;
+    }
+
+    private static <T> T publish(String key, T bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(key);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException | RuntimeException | LinkageError e) {
+            System.out.println("Kunde inte publicera mätvärden " + key + ": " + e.getMessage());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,100 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Antal anrop, fel och latens för en operation. Den publika metoden tar tiden runt
+ * en privat metod som gör själva jobbet:
+ * <pre>
+ *   public List&lt;Transaction&gt; findAll() {
+ *       long start = FIND_ALL.start();
+ *       try {
+ *           return doFindAll();
+ *       } catch (RuntimeException e) {
+ *           FIND_ALL.failed();
+ *           throw e;
+ *       } finally {
+ *           FIND_ALL.stop(start);
+ *       }
+ *   }
+ * </pre>
+ * Ett fel som fångas och bara skrivs ut (utan undantag) räknas med failed() i catch-blocket.
+ * Varken start, stop eller failed låser eller skapar objekt, så det går att ha
+ * i varje anrop. Skapas och registreras via Metrics.operation.
+ */
+public final class OperationStats implements OperationStatsMXBean {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    OperationStats() {
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Anropet är klart (lyckat eller inte): registrerar tiden sedan start.
+     */
+    public void stop(long start) {
+        latency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Anropet misslyckades (räknas utöver stop).
+     */
+    public void failed() {
+        errors.increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return latency.totalNanos() / 1e6;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.meanNanos() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.percentile(0.50) / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latency.percentile(0.90) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.maxNanos() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+/**
+ * Det som syns i JConsole (eller hämtas via JMX) för en operation, t.ex. findAllForUser.
+ * Tiderna är i millisekunder och gäller sedan start eller senaste reset.
+ */
+public interface OperationStatsMXBean {
+
+    long getCount();
+
+    long getErrors();
+
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
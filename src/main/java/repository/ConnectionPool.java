@@ -0,0 +1,334 @@
+package repository;
+
+import metrics.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enkel pool med JDBC-connections, så att varje fråga inte behöver öppna en ny
+ * (TCP + inloggning mot Postgres tar lätt 10–50 ms).
+ *
+ * getConnection() lånar en ledig connection, eller öppnar en ny om färre än max är öppna,
+ * annars väntas det på en ledig (eller på att en plats blir ledig när en trasig kastas).
+ * En connection som legat oanvänd över en minut kontrolleras med isValid innan den lånas
+ * ut, så efter en omstart av databasen får anroparna nya connections i stället för fel.
+ * Det som lämnas ut är ett omslag runt den riktiga connectionen där close() lämnar
+ * tillbaka den till poolen i stället för att stänga den.
+ * Så fungerar all befintlig try-with-resources-kod som förut.
+ *
+ * Connections som lämnas tillbaka med autocommit av rullas tillbaka och återställs,
+ * och en connection som gått sönder kastas i stället för att lånas ut igen.
+ * Dessutom finns en cache per connection för PreparedStatement i drivrutinen (Postgres),
+ * vilket är varför det lönar sig att förbereda de vanligaste frågorna i förväg.
+ *
+ * Räknarna (lån, väntan, timeouts, öppnade och kastade connections) kan läsas via JMX.
+ */
+public final class ConnectionPool implements ConnectionPoolMXBean {
+
+    // Lediga connections som legat längre än så här kontrolleras innan de lånas ut.
+    // Kontrollen är en extra tur till databasen, och i GUI:t går det oftast några sekunder
+    // mellan lånen, så gränsen får inte vara kortare än så.
+    private static final long VALIDATE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+    // Hur ofta en väntande tråd tittar om det finns plats för en ny connection
+    private static final long WAIT_SLICE_MILLIS = 50;
+
+    // En ledig connection och när den lämnades tillbaka (System.nanoTime)
+    private static final class Idle {
+        final Connection connection;
+        final long since;
+
+        Idle(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long timeoutMillis;
+
+    // Lediga connections (de senast använda först – de är varmast)
+    private final LinkedBlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+    // Antal öppna connections (lediga + utlånade)
+    private final AtomicInteger open = new AtomicInteger();
+
+    // Räknare för JMX
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    /**
+     * @param maxSize max antal öppna connections
+     * @param timeoutMillis hur länge getConnection väntar på en ledig innan den ger upp
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long timeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Lånar en connection. Stäng den (close) för att lämna tillbaka den.
+     */
+    public Connection getConnection() throws SQLException {
+        Connection raw = null;
+        Idle entry;
+        while (raw == null && (entry = idle.pollFirst()) != null) {
+            raw = usable(entry);
+        }
+
+        if (raw == null) {
+            raw = reserve() ? openRaw() : await();
+        }
+        borrows.increment();
+        return wrap(raw);
+    }
+
+    // Väntar på en ledig connection, eller på att en plats frigörs (en kastad connection
+    // lämnar inget i idle som kan väcka den som väntar, därför väntar jag en bit i taget)
+    private Connection await() throws SQLException {
+        waits.increment();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (true) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    timeouts.increment();
+                    throw new SQLException("Ingen ledig databasanslutning inom " + timeoutMillis + " ms");
+                }
+                long slice = Math.min(left, TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MILLIS));
+                Idle entry = idle.pollFirst(slice, TimeUnit.NANOSECONDS);
+                if (entry != null) {
+                    Connection raw = usable(entry);
+                    if (raw != null) return raw;
+                }
+                if (reserve()) return openRaw();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Avbröts i väntan på databasanslutning", e);
+        } finally {
+            waitTime.record(System.nanoTime() - start);
+        }
+    }
+
+    // Den lediga connectionen om den fungerar, annars kastas den (och null returneras)
+    private Connection usable(Idle entry) {
+        Connection raw = entry.connection;
+        try {
+            if (raw.isClosed()) {
+                discard(raw);
+                return null;
+            }
+            if (System.nanoTime() - entry.since > VALIDATE_AFTER_NANOS && !raw.isValid(VALIDATE_TIMEOUT_SECONDS)) {
+                discard(raw);
+                return null;
+            }
+            return raw;
+        } catch (SQLException e) {
+            discard(raw);
+            return null;
+        }
+    }
+
+    /**
+     * Öppnar en ny connection om färre än min är öppna och lånar ut den direkt,
+     * så att anroparen kan värma upp den (t.ex. förbereda frågor) innan den lämnas
+     * tillbaka med close(). Returnerar null om min redan är nått.
+     * Blockerar medan anslutningen öppnas – anropa från en bakgrundstråd.
+     */
+    public Connection openIfBelow(int min) throws SQLException {
+        while (true) {
+            int n = open.get();
+            if (n >= min || n >= maxSize) return null;
+            if (open.compareAndSet(n, n + 1)) return wrap(openRaw());
+        }
+    }
+
+    /**
+     * Antal öppna connections (lediga + utlånade).
+     */
+    @Override
+    public int getOpenCount() {
+        return open.get();
+    }
+
+    /**
+     * Antal lediga connections.
+     */
+    @Override
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public int getBorrowedCount() {
+        return Math.max(0, open.get() - idle.size());
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    @Override
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getConnectionsOpened() {
+        return opened.sum();
+    }
+
+    @Override
+    public long getConnectionsDiscarded() {
+        return discarded.sum();
+    }
+
+    @Override
+    public double getWaitP99Millis() {
+        return waitTime.percentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getWaitMaxMillis() {
+        return waitTime.maxNanos() / 1e6;
+    }
+
+    /**
+     * Stänger alla lediga connections (utlånade stängs när de lämnas tillbaka).
+     */
+    public void close() {
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.connection);
+            open.decrementAndGet();
+        }
+    }
+
+    // Reserverar en plats för en ny connection om max inte är nått
+    private boolean reserve() {
+        while (true) {
+            int n = open.get();
+            if (n >= maxSize) return false;
+            if (open.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    private Connection openRaw() throws SQLException {
+        try {
+            Connection c = DriverManager.getConnection(url, user, password);
+            opened.increment();
+            return c;
+        } catch (SQLException e) {
+            open.decrementAndGet();
+            throw e;
+        }
+    }
+
+    // Lämnar tillbaka en connection (anropas av omslagets close)
+    private void release(Connection raw) {
+        try {
+            if (raw.isClosed()) {
+                discard(raw);
+                return;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            idle.offerFirst(new Idle(raw, System.nanoTime()));
+        } catch (SQLException e) {
+            // Trasig connection → kasta den
+            discard(raw);
+        }
+    }
+
+    // Stänger en trasig connection och frigör dess plats (väntande trådar kan öppna en ny)
+    private void discard(Connection raw) {
+        closeQuietly(raw);
+        open.decrementAndGet();
+        discarded.increment();
+    }
+
+    private Connection wrap(Connection raw) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) {
+                    // equals/hashCode/toString på själva omslaget
+                    return switch (method.getName()) {
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> "Pooled[" + raw + "]";
+                    };
+                }
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!closed) {
+                            closed = true;
+                            release(raw);
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return closed || raw.isClosed();
+                    }
+                    case "unwrap" -> {
+                        return raw.unwrap((Class<?>) args[0]);
+                    }
+                    default -> {
+                        if (closed) throw new SQLException("Anslutningen är redan stängd");
+                    }
+                }
+                try {
+                    return method.invoke(raw, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+            // Redan trasig – inget mer att göra
+        }
+    }
+}
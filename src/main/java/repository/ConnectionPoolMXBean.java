@@ -0,0 +1,41 @@
+package repository;
+
+/**
+ * Poolens läge och räknare, som de syns via JMX (se metrics.Metrics).
+ */
+public interface ConnectionPoolMXBean {
+
+    int getOpenCount();
+
+    int getIdleCount();
+
+    /**
+     * Utlånade just nu (öppna minus lediga).
+     */
+    int getBorrowedCount();
+
+    int getMaxSize();
+
+    long getBorrows();
+
+    /**
+     * Antal lån som fick vänta på en ledig connection (poolen var full).
+     */
+    long getWaits();
+
+    /**
+     * Antal lån som gav upp efter att ha väntat hela timeouten.
+     */
+    long getTimeouts();
+
+    long getConnectionsOpened();
+
+    long getConnectionsDiscarded();
+
+    /**
+     * Väntetid för de lån som fick vänta, i millisekunder.
+     */
+    double getWaitP99Millis();
+
+    double getWaitMaxMillis();
+}
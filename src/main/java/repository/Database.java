@@ -1,8 +1,9 @@
 package repository;
 
+import metrics.Metrics;
+
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
@@ -11,23 +12,34 @@ import java.util.Properties;
  * Klassen:
  * - Läser databasinställningar från application.properties
  * - Laddar JDBC-drivrutin vid uppstart
- * - Tillhandahåller Connection till databasen
+ * - Tillhandahåller Connection till databasen (lånade ur en ConnectionPool)
  */
 public final class Database {
 
     // Filnamn för konfigurationsfilen som ligger i src/main/resources
     private static final String PROPS_PATH = "application.properties";
 
+    // Efter så många körningar av samma PreparedStatement byter Postgres-drivrutinen
+    // till en förberedd sats på servern (prepareThreshold, standard 5)
+    static final int PREPARE_THRESHOLD = 5;
+
     // Databasinställningar som laddas från properties-filen
     private static String url;
     private static String user;
     private static String password;
     private static String driver;
 
+    // Poolens storlek (jdbc.pool.min öppnas i förväg av uppvärmningen)
+    private static int poolMin = 2;
+    private static int poolMax = 8;
+    private static ConnectionPool pool;
+
     // Körs automatiskt när klassen laddas första gången
     static {
         loadProperties();
         loadDriver();
+        pool = new ConnectionPool(url, user, password, poolMax, 10_000);
+        Metrics.register("ConnectionPool", "default", pool);
     }
 
     // Privat konstruktor förhindrar att klassen instansieras
@@ -54,6 +66,8 @@ public final class Database {
             user = p.getProperty("jdbc.user");
             password = p.getProperty("jdbc.password");
             driver = p.getProperty("jdbc.driver");
+            poolMin = Integer.parseInt(p.getProperty("jdbc.pool.min", String.valueOf(poolMin)).trim());
+            poolMax = Integer.parseInt(p.getProperty("jdbc.pool.max", String.valueOf(poolMax)).trim());
 
             // Grundläggande validering av obligatoriska inställningar
             if (url == null || user == null || password == null) {
@@ -83,9 +97,19 @@ public final class Database {
         }
     }
 
-    // Skapar och returnerar en ny databas-connection
+    // Lånar en connection ur poolen (close() lämnar tillbaka den)
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+        return pool.getConnection();
+    }
+
+    // Poolen (för uppvärmning och statistik)
+    public static ConnectionPool getPool() {
+        return pool;
+    }
+
+    // Antal connections som ska vara öppna efter uppvärmningen
+    public static int getPoolMin() {
+        return poolMin;
     }
 
     // Används för att testa om databaskopplingen fungerar
@@ -1,31 +1,138 @@
 package repository;
 
 import domain.Transaction;
-import repository.storage.CsvDataStore;
+import domain.TransactionChange;
+import metrics.Metrics;
+import metrics.OperationStats;
+import repository.storage.AtomicFileWriter;
+import repository.storage.ChangeLog;
+import repository.storage.DataSink;
 import repository.storage.DataStore;
-import repository.storage.LineConverter;
+import repository.storage.DateRangeSource;
+import repository.storage.FsyncPolicy;
+import repository.storage.IndexedTransactionFile;
+import repository.storage.TransactionLineConverter;
+import repository.storage.TransactionFileWatcher;
+import repository.storage.TransactionStores;
+import repository.storage.TrigramIndex;
+import repository.storage.WriteAheadLog;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Min fil-baserade implementation av TransactionRepository.
+ *
+ * Ändringar skrivs inte om hela filen varje gång, utan läggs först i en
+ * write-ahead log (datafil + ".wal"). Med jämna mellanrum görs en checkpoint:
+ * hela listan skrivs till en checkpoint-fil, en markör loggas, och checkpoint-filen
+ * byter plats med datafilen via en atomisk rename. Vid start spelas loggen upp igen,
+ * så en krasch mitt i en skrivning tappar aldrig sparad data.
+ *
+ * I läget STREAMING hålls ingen lista i minnet alls: läsningar strömmar direkt
+ * från filen och skrivningar strömmar den gamla filen genom en DataSink till en
+ * ny fil. Det är långsammare per ändring, men fungerar för filer större än heapen.
+ *
+ * I läget LAZY (bara CSV) läses vid start bara ett radindex (sparat bredvid filen),
+ * så uppstarten går snabbt oavsett historikens längd. count() svaras från indexet,
+ * rader parsas först när de efterfrågas och nya transaktioner läggs till sist i filen.
+ *
+ * Med en blockindelad fil (.pfs eller .pfz) och STREAMING-läge går datumfrågor via
+ * filens blockindex, så bara de block som kan innehålla intervallet läses.
+ *
+ * Med startWatching() (bara vanlig CSV) bevakas datafilen: rader som en annan process
+ * lägger till sist läses in utan att hela filen parsas om, och skrivs filen om utifrån
+ * läses den om helt. En extern omskrivning vinner över ändringar som ännu bara finns i loggen.
+ *
+ * searchDescriptions() söker i beskrivningarna via ett trigramindex som byggs vid första
+ * sökningen och sparas bredvid datafilen (".tri"). Eftersom filen inte har några id:n
+ * är nycklarna radernas position i lagringsordning (samma som findPage).
+ *
+ * Alla tillägg och borttagningar (även rader som en annan process lagt till) får ett
+ * löpnummer i en ChangeLog, så findChangesSince() kan svara med bara det som ändrats.
  */
 public class FileTransactionRepository implements TransactionRepository {
 
-    // Min interna lista (cache i minnet)
-    private final List<Transaction> transactions;
+    /**
+     * Hur datafilen hålls tillgänglig.
+     */
+    public enum LoadMode {
+        /** Hela filen läses in i minnet vid start (standard). */
+        IN_MEMORY,
+        /** Inget i minnet – allt läses och skrivs strömmande mot filen. */
+        STREAMING,
+        /** Bara ett radindex i minnet, rader parsas vid behov (endast CSV). */
+        LAZY
+    }
+
+    // Minsta antal loggposter innan jag gör en checkpoint. Gränsen växer med listans
+    // storlek, så att kostnaden för att skriva om filen slås ut över många ändringar.
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
+    // Posttyper i loggen. En borttagning loggas med hela raden (inte listindex), så att
+    // uppspelningen stämmer även om filen fått nya rader utifrån sedan senaste checkpoint.
+    private static final String ADD = "A;";
+    private static final String DELETE = "D;";
+    private static final String CHECKPOINT = "C";
+
+    // Antal anrop, fel och latens per operation, publiceras via JMX (se metrics.Metrics).
+    // Som i JdbcTransactionRepository tar den publika metoden tiden (inklusive väntan på
+    // låset) och anropar en privat do-metod. Fel = undantag ut ur metoden.
+    private static final String TYPE = "FileTransactionRepository";
+    private static final OperationStats SAVE = Metrics.operation(TYPE, "save");
+    private static final OperationStats DELETE_BY_ID_FOR_USER = Metrics.operation(TYPE, "deleteByIdForUser");
+    private static final OperationStats FIND_ALL = Metrics.operation(TYPE, "findAll");
+    private static final OperationStats FIND_PAGE = Metrics.operation(TYPE, "findPage");
+    private static final OperationStats FIND_BY_DATE_RANGE = Metrics.operation(TYPE, "findByDateRange");
+    private static final OperationStats COUNT = Metrics.operation(TYPE, "count");
+    private static final OperationStats SAVE_ALL = Metrics.operation(TYPE, "saveAll");
+    private static final OperationStats CHECKPOINTS = Metrics.operation(TYPE, "checkpoint");
+    private static final OperationStats FIND_CHANGES_SINCE = Metrics.operation(TYPE, "findChangesSince");
+    private static final OperationStats SEARCH_DESCRIPTIONS = Metrics.operation(TYPE, "searchDescriptions");
+
+    // Min interna lista (cache i minnet), null i STREAMING- och LAZY-läge
+    private List<Transaction> transactions;
+    private final LoadMode loadMode;
+
+    // Radindex över datafilen (bara i LAZY-läge)
+    private IndexedTransactionFile indexed;
+
+    // Bevakning av datafilen (null tills startWatching anropas)
+    private TransactionFileWatcher watcher;
+
+    // Trigramindex över beskrivningarna, nyckel = position (null tills första sökningen,
+    // och efter borttagningar/omskrivningar då positionerna flyttats)
+    private TrigramIndex descriptionIndex;
+    private final File descriptionIndexFile;
 
     // DataStore som hanterar själva fil-läsningen/skrivningen
     private final DataStore<Transaction> dataStore;
 
+    // Checkpoint-fil (samma format som datafilen) och write-ahead log
+    private final File dataFile;
+    private final File checkpointFile;
+    private final WriteAheadLog log;
+    private final TransactionLineConverter converter = new TransactionLineConverter();
+
+    // Antal loggposter sedan senaste checkpoint
+    private int pendingRecords = 0;
+
+    // Hur många ändringar findChangesSince kan svara med innan de äldsta glöms
+    private static final int CHANGE_LOG_CAPACITY = 10_000;
+
+    // De senaste ändringarna med löpnummer (bara i minnet)
+    private final ChangeLog changes = new ChangeLog(CHANGE_LOG_CAPACITY);
+
     // Standardfil: i användarens hemkatalog under.personalfinance
     private static final Path DEFAULT_FOLDER = Paths.get(System.getProperty("user.home"), ".personalfinance");
     private static final Path DEFAULT_FILE = DEFAULT_FOLDER.resolve("transactions.csv");
@@ -34,16 +141,44 @@ public class FileTransactionRepository implements TransactionRepository {
      * Skapar ett repository som använder en specifik fil.
      * Om filePath är null eller tom används standardplatsen i användarens hemkatalog.
      *
-     * @param filePath sökväg till CSV-filen (kan vara null för default)
+     * @param filePath sökväg till datafilen, CSV eller .pfb (kan vara null för default)
      */
     public FileTransactionRepository(String filePath) {
+        this(filePath, FsyncPolicy.GROUP);
+    }
+
+    /**
+     * Skapar ett repository med en viss fsync-policy för loggen.
+     *
+     * @param filePath sökväg till datafilen (kan vara null för default)
+     * @param fsyncPolicy när loggen ska synkas till disk
+     */
+    public FileTransactionRepository(String filePath, FsyncPolicy fsyncPolicy) {
+        this(filePath, fsyncPolicy, LoadMode.IN_MEMORY);
+    }
+
+    /**
+     * Skapar ett repository med valfri fsync-policy och laddningsläge.
+     *
+     * @param filePath sökväg till datafilen (kan vara null för default)
+     * @param fsyncPolicy när loggen ska synkas till disk
+     * @param loadMode IN_MEMORY, STREAMING eller LAZY
+     */
+    public FileTransactionRepository(String filePath, FsyncPolicy fsyncPolicy, LoadMode loadMode) {
         Path path;
         if (filePath == null || filePath.isBlank()) {
             path = DEFAULT_FILE;
         } else {
-            path = Paths.get(filePath);
+            path = Paths.get(filePath).toAbsolutePath();
         }
 
+        // Radindexet bygger på att rader läggs till sist; andra format strömmas i stället
+        if (loadMode == LoadMode.LAZY && !TransactionStores.isAppendableCsv(path.toFile())) {
+            System.out.println("LAZY stöds bara för vanlig CSV, använder STREAMING för: " + path);
+            loadMode = LoadMode.STREAMING;
+        }
+        this.loadMode = loadMode;
+
         // Se till att katalogen finns
         try {
             Files.createDirectories(path.getParent());
@@ -52,14 +187,53 @@ public class FileTransactionRepository implements TransactionRepository {
         }
 
         File file = path.toFile();
+        this.dataFile = file;
+
+        // Checkpoint-filen behåller filändelsen så att samma format väljs
+        this.checkpointFile = path.resolveSibling("ckpt-" + path.getFileName()).toFile();
+        this.descriptionIndexFile = path.resolveSibling(path.getFileName() + TrigramIndex.SUFFIX).toFile();
 
-        // Skapar en CsvDataStore med en converter som kan läsa/skriva Transaction
-        this.dataStore = new CsvDataStore<>(file, new TransactionLineConverter());
+        try {
+            this.log = new WriteAheadLog(path.resolveSibling(path.getFileName() + ".wal").toFile(), fsyncPolicy);
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte öppna loggfil för: " + file, e);
+        }
+
+        // Avslutar en checkpoint som avbröts av en krasch (måste ske innan datafilen läses)
+        List<String> records = readLog();
+        boolean checkpointed = !records.isEmpty() && records.get(records.size() - 1).equals(CHECKPOINT);
+        finishInterruptedCheckpoint(checkpointed);
+
+        // Väljer DataStore utifrån filändelsen (.pfb = binärt, annars CSV)
+        this.dataStore = TransactionStores.forFile(file);
 
-        // Laddar in alla transaktioner från fil direkt vid start
-        this.transactions = new ArrayList<>(dataStore.readAll());
+        // Spelar upp loggen ovanpå datafilen och skriver en ny checkpoint.
+        // (Även i STREAMING-läge görs återställningen i minnet, den behövs bara efter en krasch.)
+        boolean replay = !checkpointed && !records.isEmpty();
+        if (loadMode == LoadMode.IN_MEMORY || replay) {
+            this.transactions = new ArrayList<>(dataStore.readAll());
+        }
+        if (replay) {
+            int replayed = replay(records);
+            System.out.println("Återställde " + replayed + " ändringar från logg: " + log.getFile().getAbsolutePath());
+            try {
+                doCheckpoint();
+            } catch (IllegalStateException e) {
+                // Loggen ligger kvar, så ändringarna spelas upp igen vid nästa start
+                System.out.println(e.getMessage());
+            }
+        } else if (checkpointed) {
+            resetLog();
+        }
 
-        if (!transactions.isEmpty()) {
+        if (loadMode == LoadMode.STREAMING) {
+            this.transactions = null;
+            System.out.println("Strömmar transaktioner från fil: " + file.getAbsolutePath());
+        } else if (loadMode == LoadMode.LAZY) {
+            this.transactions = null;
+            openIndex(false);
+            System.out.println("Indexerade " + indexed.size() + " transaktioner i fil: " + file.getAbsolutePath());
+        } else if (!transactions.isEmpty()) {
             System.out.println("Laddade " + transactions.size() + " transaktioner från fil: " + file.getAbsolutePath());
         } else {
             System.out.println("Inga transaktioner funna. Fil: " + file.getAbsolutePath());
@@ -74,26 +248,123 @@ public class FileTransactionRepository implements TransactionRepository {
     }
 
     /**
-     * Sparar en transaktion (lägger till i listan och skriver till fil).
+     * Sparar en transaktion (lägger till i listan och loggar ändringen).
+     * Flera trådar som sparar samtidigt delar på samma fsync (group commit).
      */
     @Override
     public Transaction save(Transaction tx) {
-        transactions.add(tx);
-        dataStore.writeAll(transactions); // autosave
+        long start = SAVE.start();
+        try {
+            return doSave(tx);
+        } catch (RuntimeException e) {
+            SAVE.failed();
+            throw e;
+        } finally {
+            SAVE.stop(start);
+        }
+    }
+
+    private Transaction doSave(Transaction tx) {
+        if (loadMode == LoadMode.STREAMING) {
+            rewrite(-1, tx);
+            synchronized (this) {
+                descriptionIndex = null; // positionen är okänd utan att räkna hela filen
+            }
+            return tx;
+        }
+        if (loadMode == LoadMode.LAZY) {
+            // Raden läggs sist i datafilen och synkas direkt, så ingen logg behövs
+            synchronized (this) {
+                try {
+                    indexed.append(tx);
+                    if (descriptionIndex != null) descriptionIndex.add(indexed.size() - 1, tx.getDescription());
+                    changes.record(TransactionChange.Kind.INSERT, tx);
+                    resyncWatcher();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Kunde inte spara transaktionen: " + e.getMessage(), e);
+                }
+            }
+            return tx;
+        }
+
+        long seq;
+        synchronized (this) {
+            transactions.add(tx);
+            if (descriptionIndex != null) descriptionIndex.add(transactions.size() - 1, tx.getDescription());
+            changes.record(TransactionChange.Kind.INSERT, tx);
+            seq = log.enqueue(ADD + converter.toLine(tx));
+        }
+        try {
+            commit(seq);
+        } catch (IllegalStateException e) {
+            // Ändringen kom aldrig till disk – ta bort raden igen (och berätta det i ändringsloggen)
+            synchronized (this) {
+                for (int i = transactions.size() - 1; i >= 0; i--) {
+                    if (transactions.get(i) == tx) {
+                        transactions.remove(i);
+                        descriptionIndex = null;
+                        changes.record(TransactionChange.Kind.DELETE, tx);
+                        break;
+                    }
+                }
+            }
+            throw e;
+        }
         return tx;
     }
 
 
     @Override
     public boolean deleteByIdForUser(int transactionId, int userId) {
-        for (int i = 0; i < transactions.size(); i++) {
-            if (transactions.get(i).getId() == transactionId) {
-                transactions.remove(i);
-                dataStore.writeAll(transactions);
-                return true;
+        long start = DELETE_BY_ID_FOR_USER.start();
+        try {
+            return doDeleteByIdForUser(transactionId, userId);
+        } catch (RuntimeException e) {
+            DELETE_BY_ID_FOR_USER.failed();
+            throw e;
+        } finally {
+            DELETE_BY_ID_FOR_USER.stop(start);
+        }
+    }
+
+    private boolean doDeleteByIdForUser(int transactionId, int userId) {
+        if (loadMode != LoadMode.IN_MEMORY) {
+            synchronized (this) {
+                boolean removed = rewrite(transactionId, null);
+                if (removed) descriptionIndex = null;
+                if (removed && loadMode == LoadMode.LAZY) openIndex(true);
+                return removed;
+            }
+        }
+
+        long seq = -1;
+        int index = -1;
+        Transaction removed = null;
+        synchronized (this) {
+            for (int i = 0; i < transactions.size(); i++) {
+                if (transactions.get(i).getId() == transactionId) {
+                    index = i;
+                    removed = transactions.remove(i);
+                    descriptionIndex = null; // raderna efter har flyttats upp ett steg
+                    changes.record(TransactionChange.Kind.DELETE, removed);
+                    seq = log.enqueue(DELETE + converter.toLine(removed));
+                    break;
+                }
             }
         }
-        return false;
+        if (seq < 0) return false;
+        try {
+            commit(seq);
+        } catch (IllegalStateException e) {
+            // Borttagningen kom aldrig till disk – lägg tillbaka raden där den var
+            synchronized (this) {
+                transactions.add(Math.min(index, transactions.size()), removed);
+                descriptionIndex = null;
+                changes.record(TransactionChange.Kind.INSERT, removed);
+            }
+            throw e;
+        }
+        return true;
     }
 
 
@@ -102,17 +373,98 @@ public class FileTransactionRepository implements TransactionRepository {
      */
     @Override
     public List<Transaction> findAll() {
+        long start = FIND_ALL.start();
+        try {
+            return doFindAll();
+        } catch (RuntimeException e) {
+            FIND_ALL.failed();
+            throw e;
+        } finally {
+            FIND_ALL.stop(start);
+        }
+    }
+
+    private synchronized List<Transaction> doFindAll() {
+        if (transactions == null) {
+            try (Stream<Transaction> all = dataStore.stream()) {
+                return all.collect(Collectors.toCollection(ArrayList::new));
+            }
+        }
         return new ArrayList<>(transactions); // returnerar en kopia så listan inte kan ändras utifrån
     }
 
+    /**
+     * Alla transaktioner som en ström. I STREAMING-läge läses de direkt från filen,
+     * så strömmen måste stängas (try-with-resources).
+     */
+    public synchronized Stream<Transaction> streamAll() {
+        if (transactions == null) {
+            return dataStore.stream();
+        }
+        return new ArrayList<>(transactions).stream();
+    }
+
+    /**
+     * Hämtar en sida transaktioner i lagringsordning: [offset, offset + limit).
+     * I LAZY-läge parsas bara raderna på sidan.
+     */
+    public List<Transaction> findPage(int offset, int limit) {
+        long start = FIND_PAGE.start();
+        try {
+            return doFindPage(offset, limit);
+        } catch (RuntimeException e) {
+            FIND_PAGE.failed();
+            throw e;
+        } finally {
+            FIND_PAGE.stop(start);
+        }
+    }
+
+    private synchronized List<Transaction> doFindPage(int offset, int limit) {
+        if (indexed != null) {
+            return indexed.page(offset, limit);
+        }
+        if (transactions == null) {
+            try (Stream<Transaction> all = dataStore.stream()) {
+                return all.skip(offset).limit(limit).collect(Collectors.toList());
+            }
+        }
+        int from = Math.min(offset, transactions.size());
+        int to = (int) Math.min(transactions.size(), (long) from + limit);
+        return new ArrayList<>(transactions.subList(from, to));
+    }
+
     /**
      * Hittar transaktioner mellan två datum (inklusive).
      */
     @Override
     public List<Transaction> findByDateRange(LocalDate from, LocalDate to) {
-        return transactions.stream()
-                .filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to))
-                .collect(Collectors.toList());
+        long start = FIND_BY_DATE_RANGE.start();
+        try {
+            return doFindByDateRange(from, to);
+        } catch (RuntimeException e) {
+            FIND_BY_DATE_RANGE.failed();
+            throw e;
+        } finally {
+            FIND_BY_DATE_RANGE.stop(start);
+        }
+    }
+
+    private List<Transaction> doFindByDateRange(LocalDate from, LocalDate to) {
+        synchronized (this) {
+            if (indexed != null) {
+                return indexed.findByDateRange(from, to);
+            }
+            // Blockindelad fil (.pfs/.pfz): läs bara de block som kan innehålla intervallet
+            if (transactions == null && dataStore instanceof DateRangeSource blocks) {
+                return blocks.findByDateRange(from, to);
+            }
+        }
+        try (Stream<Transaction> all = streamAll()) {
+            return all
+                    .filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to))
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
@@ -120,40 +472,430 @@ public class FileTransactionRepository implements TransactionRepository {
      */
     @Override
     public int count() {
+        long start = COUNT.start();
+        try {
+            return doCount();
+        } catch (RuntimeException e) {
+            COUNT.failed();
+            throw e;
+        } finally {
+            COUNT.stop(start);
+        }
+    }
+
+    private synchronized int doCount() {
+        if (indexed != null) {
+            return indexed.size();
+        }
+        if (transactions == null) {
+            try (Stream<Transaction> all = dataStore.stream()) {
+                return (int) all.count();
+            }
+        }
         return transactions.size();
     }
 
     /**
-     * Skriver ner hela listan till fil.
+     * Ersätter hela listan och skriver en checkpoint direkt.
      */
     @Override
     public void saveAll(List<Transaction> all) {
+        long start = SAVE_ALL.start();
+        try {
+            doSaveAll(all);
+        } catch (RuntimeException e) {
+            SAVE_ALL.failed();
+            throw e;
+        } finally {
+            SAVE_ALL.stop(start);
+        }
+    }
+
+    private synchronized void doSaveAll(List<Transaction> all) {
+        descriptionIndex = null;
+        changes.reset();
+        if (loadMode != LoadMode.IN_MEMORY) {
+            dataStore.writeAll(all);
+            if (loadMode == LoadMode.LAZY) openIndex(true);
+            resyncWatcher();
+            return;
+        }
         transactions.clear();
         transactions.addAll(all);
-        dataStore.writeAll(transactions);
+        checkpoint();
     }
 
-    // === Inre klass: Konverterar mellan Transaction och CSV-rad ===
+    /**
+     * Skriver hela listan till datafilen och tömmer loggen.
+     * Ordning: checkpoint-fil (synkad) → markör i loggen → atomisk rename → töm loggen.
+     * Markören skrivs bara om checkpoint-filen blev komplett; annars kastas
+     * IllegalStateException och datafil och logg lämnas orörda.
+     */
+    public void checkpoint() {
+        long start = CHECKPOINTS.start();
+        try {
+            doCheckpoint();
+        } catch (RuntimeException e) {
+            CHECKPOINTS.failed();
+            throw e;
+        } finally {
+            CHECKPOINTS.stop(start);
+        }
+    }
 
-    private static class TransactionLineConverter implements LineConverter<Transaction> {
+    private synchronized void doCheckpoint() {
+        if (transactions == null) return; // STREAMING: inget i minnet att skriva
 
-        @Override
-        public Transaction fromLine(String line) throws Exception {
-            String[] parts = line.split(";", 3);
-            if (parts.length != 3) {
-                throw new IllegalArgumentException("Ogiltig rad (fel antal fält): " + line);
+        // Filen skapas inte i förväg: den finns bara om sinken committats, annars
+        // skulle en tom checkpoint-fil kunna flyttas över datafilen vid omstart
+        try (DataSink<Transaction> sink = TransactionStores.forOutputFile(checkpointFile).openSink()) {
+            for (Transaction t : transactions) {
+                sink.write(t);
             }
+            sink.commit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte skriva checkpoint: " + e.getMessage(), e);
+        }
+        try {
+            log.appendAndSync(CHECKPOINT);
+            AtomicFileWriter.move(checkpointFile.toPath(), dataFile.toPath());
+            log.reset();
+            pendingRecords = 0;
+            resyncWatcher();
+            // Datafilen stämmer nu med listan, så indexet kan sparas med den nya stämpeln
+            if (descriptionIndex != null) writeDescriptionIndex();
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte skriva checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    // Väntar tills loggposten är skriven och gör checkpoint när loggen blivit lång.
+    // Gick det inte att skriva kastas IllegalStateException, och anroparen tar tillbaka
+    // sin ändring i minnet.
+    private void commit(long seq) {
+        try {
+            log.awaitDurable(seq);
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte spara ändringen: " + e.getMessage(), e);
+        }
+        synchronized (this) {
+            if (++pendingRecords >= Math.max(CHECKPOINT_INTERVAL, transactions.size())) {
+                try {
+                    checkpoint();
+                } catch (IllegalStateException e) {
+                    // Ändringen finns redan i loggen; nästa ändring försöker igen
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Skriver om filen strömmande (STREAMING-läge): den gamla filen läses post för post
+     * och skrivs till en DataSink, utan den första posten med removeId och med append sist.
+     * Returnerar true om något ändrades.
+     */
+    private synchronized boolean rewrite(int removeId, Transaction append) {
+        Transaction removed = null;
+        try (DataSink<Transaction> sink = dataStore.openSink()) {
+            try (Stream<Transaction> existing = dataStore.stream()) {
+                Iterator<Transaction> it = existing.iterator();
+                while (it.hasNext()) {
+                    Transaction t = it.next();
+                    if (removed == null && removeId >= 0 && t.getId() == removeId) {
+                        removed = t;
+                        continue;
+                    }
+                    sink.write(t);
+                }
+            }
+            if (append != null) {
+                sink.write(append);
+            }
+            if (removed != null || append != null) {
+                sink.commit();
+                resyncWatcher();
+                if (removed != null) changes.record(TransactionChange.Kind.DELETE, removed);
+                if (append != null) changes.record(TransactionChange.Kind.INSERT, append);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte skriva till fil: " + e.getMessage(), e);
+        }
+        return removed != null || append != null;
+    }
+
+    // === Ändringar ===
+
+    /**
+     * Ändringar efter since ur ändringsloggen i minnet (de senaste CHANGE_LOG_CAPACITY).
+     * Null om de inte finns kvar, t.ex. efter omstart eller när hela filen skrivits om.
+     */
+    @Override
+    public List<TransactionChange> findChangesSince(long since, int limit) {
+        long start = FIND_CHANGES_SINCE.start();
+        try {
+            return doFindChangesSince(since, limit);
+        } catch (RuntimeException e) {
+            FIND_CHANGES_SINCE.failed();
+            throw e;
+        } finally {
+            FIND_CHANGES_SINCE.stop(start);
+        }
+    }
+
+    private List<TransactionChange> doFindChangesSince(long since, int limit) {
+        return changes.since(since, limit);
+    }
+
+    @Override
+    public long latestChangeSequence() {
+        return changes.latest();
+    }
+
+    // === Sökning ===
+
+    /**
+     * Söker i beskrivningarna (trigram, tål felstavning) och returnerar positionerna
+     * för träffarna, bäst först, från offset och högst limit stycken.
+     * Raderna kan sedan hämtas med findPage(position, 1). Positionerna gäller till nästa
+     * borttagning; då kastas indexet och byggs om (hela filen läses) vid nästa sökning.
+     */
+    @Override
+    public List<Integer> searchDescriptions(String query, int offset, int limit) {
+        long start = SEARCH_DESCRIPTIONS.start();
+        try {
+            return doSearchDescriptions(query, offset, limit);
+        } catch (RuntimeException e) {
+            SEARCH_DESCRIPTIONS.failed();
+            throw e;
+        } finally {
+            SEARCH_DESCRIPTIONS.stop(start);
+        }
+    }
 
-            LocalDate date = LocalDate.parse(parts[0]);
-            double amount = Double.parseDouble(parts[1]);
-            String description = parts[2];
+    private synchronized List<Integer> doSearchDescriptions(String query, int offset, int limit) {
+        if (descriptionIndex == null) {
+            descriptionIndex = loadDescriptionIndex();
+        }
+        return descriptionIndex.search(query, offset, limit);
+    }
+
+    // Läser det sparade indexet om det gäller för datafilen, annars byggs det om
+    private TrigramIndex loadDescriptionIndex() {
+        // Med ändringar som bara finns i loggen stämmer inte filen med listan
+        boolean fileIsCurrent = transactions == null || pendingRecords == 0;
 
-            return new Transaction(date, amount, description);
+        if (fileIsCurrent) {
+            TrigramIndex saved = TrigramIndex.read(descriptionIndexFile, dataFileStamp());
+            if (saved != null && (transactions == null || saved.size() == transactions.size())) {
+                return saved;
+            }
         }
 
-        @Override
-        public String toLine(Transaction item) {
-            return item.toFileFormat();
+        TrigramIndex index = new TrigramIndex();
+        try (Stream<Transaction> all = streamAll()) {
+            int[] position = {0};
+            all.forEach(t -> index.add(position[0]++, t.getDescription()));
+        }
+        descriptionIndex = index;
+        if (fileIsCurrent) writeDescriptionIndex();
+        return index;
+    }
+
+    private void writeDescriptionIndex() {
+        try {
+            descriptionIndex.write(descriptionIndexFile, dataFileStamp());
+        } catch (IOException e) {
+            System.out.println("Kunde inte spara sökindex: " + e.getMessage());
+        }
+    }
+
+    // Ändras när datafilen skrivs om eller växer
+    private long dataFileStamp() {
+        return dataFile.length() * 31 + dataFile.lastModified();
+    }
+
+    // === Bevakning ===
+
+    /**
+     * Börjar bevaka datafilen efter ändringar från andra processer (bara vanlig CSV).
+     * Nya rader läggs in i repositoryt och skickas sedan vidare till listener (kan vara null).
+     */
+    public synchronized TransactionFileWatcher startWatching(TransactionFileWatcher.Listener listener) {
+        if (!TransactionStores.isAppendableCsv(dataFile)) {
+            throw new IllegalStateException("Bevakning stöds bara för vanlig CSV: " + dataFile);
+        }
+        if (watcher != null) {
+            throw new IllegalStateException("Datafilen bevakas redan: " + dataFile);
+        }
+
+        // Låset är repositoryt självt, så egna skrivningar och bevakningen går aldrig samtidigt
+        watcher = new TransactionFileWatcher(dataFile, this, new TransactionFileWatcher.Listener() {
+            @Override
+            public void onAppended(List<Transaction> added) {
+                applyAppended(added);
+                if (listener != null) listener.onAppended(added);
+            }
+
+            @Override
+            public void onReloaded(List<Transaction> all) {
+                List<Transaction> current = applyReloaded(all);
+                if (listener != null) listener.onReloaded(current);
+            }
+        });
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            watcher = null;
+            throw new IllegalStateException("Kunde inte bevaka datafil: " + dataFile, e);
+        }
+        return watcher;
+    }
+
+    /**
+     * Slutar bevaka datafilen.
+     */
+    public synchronized void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            System.out.println("Kunde inte stänga bevakning: " + e.getMessage());
+        }
+        watcher = null;
+    }
+
+    // Körs under låset när någon annan lagt till rader sist i filen
+    private void applyAppended(List<Transaction> added) {
+        for (Transaction t : added) {
+            changes.record(TransactionChange.Kind.INSERT, t);
+        }
+        // Nya rader hamnar sist, så deras positioner börjar vid nuvarande antal
+        int first = loadMode == LoadMode.LAZY ? indexed.size() : transactions != null ? transactions.size() : -1;
+        if (descriptionIndex != null) {
+            if (first < 0) {
+                descriptionIndex = null;
+            } else {
+                for (int i = 0; i < added.size(); i++) {
+                    descriptionIndex.add(first + i, added.get(i).getDescription());
+                }
+            }
+        }
+
+        if (loadMode == LoadMode.LAZY) {
+            openIndex(false); // indexet läser bara den nya svansen
+        } else if (transactions != null) {
+            // Loggen spelas upp ovanpå filen (som nu har raderna), och borttagningar
+            // loggas med innehåll, så ingen checkpoint behövs här
+            transactions.addAll(added);
+        }
+        System.out.println("Läste in " + added.size() + " nya transaktioner från fil: " + dataFile.getAbsolutePath());
+    }
+
+    // Körs under låset när filen skrivits om utifrån. Egna ändringar som bara finns i
+    // loggen (sedan senaste checkpoint) spelas upp ovanpå den nya filen och skrivs sedan
+    // till den, annars skulle de försvinna. Returnerar listan som nu gäller.
+    private List<Transaction> applyReloaded(List<Transaction> all) {
+        descriptionIndex = null;
+        changes.reset();
+        if (loadMode == LoadMode.LAZY) {
+            openIndex(true);
+        } else if (transactions != null) {
+            transactions = new ArrayList<>(all);
+            int replayed = replay(readLog());
+            if (replayed > 0) {
+                System.out.println("Spelade upp " + replayed + " egna ändringar ovanpå den nya filen");
+                try {
+                    doCheckpoint();
+                } catch (IllegalStateException e) {
+                    // Loggen ligger kvar och skrivs vid nästa checkpoint
+                    System.out.println(e.getMessage());
+                }
+            } else {
+                resetLog();
+                pendingRecords = 0;
+            }
+            all = new ArrayList<>(transactions);
+        }
+        System.out.println("Filen har skrivits om, läste in " + all.size() + " transaktioner: " + dataFile.getAbsolutePath());
+        return all;
+    }
+
+    private void resyncWatcher() {
+        if (watcher != null) watcher.resync();
+    }
+
+    // Öppnar radindexet (LAZY). Efter en omskrivning kastas det gamla indexet först.
+    private void openIndex(boolean rebuild) {
+        try {
+            if (indexed != null) indexed.close();
+            if (rebuild) Files.deleteIfExists(Paths.get(dataFile.getPath() + IndexedTransactionFile.INDEX_SUFFIX));
+            indexed = IndexedTransactionFile.open(dataFile);
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte indexera datafil: " + dataFile, e);
+        }
+    }
+
+    // === Återställning ===
+
+    private List<String> readLog() {
+        try {
+            return log.readRecords();
+        } catch (IOException e) {
+            System.out.println("Kunde inte läsa logg: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Om markören finns är checkpoint-filen komplett → slutför rename:en. Annars är den skräp.
+    private void finishInterruptedCheckpoint(boolean checkpointed) {
+        try {
+            if (checkpointed && checkpointFile.exists()) {
+                AtomicFileWriter.move(checkpointFile.toPath(), dataFile.toPath());
+            } else if (!checkpointed) {
+                Files.deleteIfExists(checkpointFile.toPath());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Kunde inte återställa checkpoint för: " + dataFile, e);
+        }
+    }
+
+    // Applicerar loggposter på listan i samma ordning som de skrevs
+    private int replay(List<String> records) {
+        int applied = 0;
+        for (String record : records) {
+            try {
+                if (record.startsWith(ADD)) {
+                    transactions.add(converter.fromLine(record.substring(ADD.length())));
+                } else if (record.startsWith(DELETE)) {
+                    removeForReplay(record.substring(DELETE.length()));
+                } else {
+                    continue;
+                }
+                applied++;
+            } catch (Exception e) {
+                System.out.println("Kunde inte spela upp loggpost: " + record);
+            }
+        }
+        return applied;
+    }
+
+    // Tar bort första transaktionen med samma rad
+    private void removeForReplay(String payload) {
+        for (int i = 0; i < transactions.size(); i++) {
+            if (converter.toLine(transactions.get(i)).equals(payload)) {
+                transactions.remove(i);
+                return;
+            }
+        }
+        throw new IllegalStateException("Hittade ingen transaktion att ta bort");
+    }
+
+    private void resetLog() {
+        try {
+            log.reset();
+        } catch (IOException e) {
+            System.out.println("Kunde inte tömma logg: " + e.getMessage());
         }
     }
 }
@@ -1,13 +1,23 @@
 package repository;
 
+import domain.DailyTotal;
 import domain.Transaction;
+import domain.TransactionChange;
+import metrics.Metrics;
+import metrics.OperationStats;
 import repository.storage.LineConverter;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  *JDBC-baserad implementation av TransactionRepository.
@@ -18,8 +28,51 @@ import java.util.List;
  */
 public final class JdbcTransactionRepository implements repository.TransactionRepository {
 
-    // Mapping index -> id
-    private final List<Integer> lastFetchedIds = new ArrayList<>();
+    // Antal rader per hämtning när många rader strömmas
+    private static final int FETCH_SIZE = 10_000;
+
+    // Frågorna som körs direkt efter inloggning (antal rader, första sidan, balansen).
+    // De förbereds i förväg av warmUp, så samma SQL-sträng måste användas här och där.
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM transactions WHERE user_id = ?";
+    private static final String SUM_SQL = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE user_id = ?";
+    private static final String PAGE_SQL = """
+        SELECT id, date, amount, description
+        FROM transactions
+        WHERE user_id = ?
+        ORDER BY created_at ASC, id ASC
+        LIMIT ? OFFSET ?
+    """;
+
+    // Antal anrop, fel och latens per publik operation, publiceras via JMX (se metrics.Metrics).
+    // Varje publik metod tar bara tiden och anropar en privat do-metod med själva frågan.
+    // Fel = undantag ut ur metoden, eller ett SQLException som fångas och bara skrivs ut.
+    private static final String TYPE = "JdbcTransactionRepository";
+    private static final OperationStats FIND_ALL_FOR_USER = Metrics.operation(TYPE, "findAllForUser");
+    private static final OperationStats FOR_EACH_FOR_USER = Metrics.operation(TYPE, "forEachForUser");
+    private static final OperationStats FOR_EACH_IN_DATE_RANGE_FOR_USER = Metrics.operation(TYPE, "forEachInDateRangeForUser");
+    private static final OperationStats FOR_EACH_CONTENT_HASH_FOR_USER = Metrics.operation(TYPE, "forEachContentHashForUser");
+    private static final OperationStats FIND_EXISTING_CONTENT_HASHES_FOR_USER = Metrics.operation(TYPE, "findExistingContentHashesForUser");
+    private static final OperationStats INSERT_IMPORTED_FOR_USER = Metrics.operation(TYPE, "insertImportedForUser");
+    private static final OperationStats FIND_TOTALS_BY_PERIOD_FOR_USER = Metrics.operation(TYPE, "findTotalsByPeriodForUser");
+    private static final OperationStats SAVE_FOR_USER = Metrics.operation(TYPE, "saveForUser");
+    private static final OperationStats DELETE_BY_ID_FOR_USER = Metrics.operation(TYPE, "deleteByIdForUser");
+    private static final OperationStats FIND_BY_DATE_RANGE_FOR_USER = Metrics.operation(TYPE, "findByDateRangeForUser");
+    private static final OperationStats SAVE_ALL_FOR_USER = Metrics.operation(TYPE, "saveAllForUser");
+    private static final OperationStats FIND_PAGE_FOR_USER = Metrics.operation(TYPE, "findPageForUser");
+    private static final OperationStats FIND_FILTERED_PAGE_FOR_USER = Metrics.operation(TYPE, "findFilteredPageForUser");
+    private static final OperationStats COUNT_FILTERED_FOR_USER = Metrics.operation(TYPE, "countFilteredForUser");
+    private static final OperationStats SUM_FOR_USER = Metrics.operation(TYPE, "sumForUser");
+    private static final OperationStats FIND_DAILY_TOTALS_FOR_USER = Metrics.operation(TYPE, "findDailyTotalsForUser");
+    private static final OperationStats SEARCH_DESCRIPTIONS_FOR_USER = Metrics.operation(TYPE, "searchDescriptionsForUser");
+    private static final OperationStats FIND_CHANGES_SINCE_FOR_USER = Metrics.operation(TYPE, "findChangesSinceForUser");
+    private static final OperationStats LATEST_CHANGE_SEQUENCE_FOR_USER = Metrics.operation(TYPE, "latestChangeSequenceForUser");
+    private static final OperationStats COUNT_FOR_USER = Metrics.operation(TYPE, "countForUser");
+    private static final OperationStats SUM_YEARLY_INCOME_FOR_USER = Metrics.operation(TYPE, "sumYearlyIncomeForUser");
+    private static final OperationStats SUM_YEARLY_EXPENSES_FOR_USER = Metrics.operation(TYPE, "sumYearlyExpensesForUser");
+    private static final OperationStats COUNT = Metrics.operation(TYPE, "count");
+
+    // Så många av de senaste ändringarna per user sparas i transaction_changes (som i fil-lagret)
+    private static final int CHANGE_LOG_RETENTION = 10_000;
 
     public JdbcTransactionRepository() {
         // Ingen init krävs
@@ -27,11 +80,10 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
 
     /* ---------- Hjälpmetoder ---------- */
 
-    // Konstruerar en Transaction från ResultSet (hanterar nullable date)
+    // Konstruerar en Transaction från ResultSet (date är NOT NULL, se schema.sql)
     private Transaction fromResultSet(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
-        Date d = rs.getDate("date");
-        LocalDate date = d != null ? d.toLocalDate() : null;
+        LocalDate date = rs.getDate("date").toLocalDate();
         double amount = rs.getDouble("amount");
         String description = rs.getString("description");
 
@@ -39,15 +91,51 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
     }
 
 
+    /**
+     * Förbereder frågorna som körs direkt efter inloggning på en connection (vid uppstart).
+     * Varje fråga körs med ett user_id som inte finns, så många gånger att drivrutinen
+     * byter till en förberedd sats på servern och sparar den i connectionens cache.
+     * Samtidigt laddas drivrutinens klasser och JIT:en får något att jobba med.
+     */
+    public static void warmUp(Connection c) throws SQLException {
+        for (int i = 0; i < Database.PREPARE_THRESHOLD; i++) {
+            try (PreparedStatement ps = c.prepareStatement(COUNT_SQL)) {
+                ps.setInt(1, -1);
+                ps.executeQuery().close();
+            }
+            try (PreparedStatement ps = c.prepareStatement(SUM_SQL)) {
+                ps.setInt(1, -1);
+                ps.executeQuery().close();
+            }
+            try (PreparedStatement ps = c.prepareStatement(PAGE_SQL)) {
+                ps.setInt(1, -1);
+                ps.setInt(2, 100);
+                ps.setInt(3, 0);
+                ps.executeQuery().close();
+            }
+        }
+    }
+
     /* ---------- Metoder som arbetar per-user ---------- */
 
     /**
      *  Hämtar alla transaktioner för en specifik userId.
-     *  Uppdaterar lastFetchedIds så att deleteByIndexForUser kan användas.
+     *  Repositoryt har inget eget tillstånd, så flera trådar kan dela på det.
      */
     public List<Transaction> findAllForUser(int userId) {
+        long start = FIND_ALL_FOR_USER.start();
+        try {
+            return doFindAllForUser(userId);
+        } catch (RuntimeException e) {
+            FIND_ALL_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_ALL_FOR_USER.stop(start);
+        }
+    }
+
+    private List<Transaction> doFindAllForUser(int userId) {
         List<Transaction> list = new ArrayList<>();
-        lastFetchedIds.clear();
 
         String sql = """
         SELECT t.id, t.date, t.amount, t.description
@@ -64,13 +152,11 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    int id = rs.getInt("id");
-                    Transaction t = fromResultSet(rs);
-                    list.add(t);
-                    lastFetchedIds.add(id);
+                    list.add(fromResultSet(rs));
                 }
             }
         } catch (SQLException e) {
+            FIND_ALL_FOR_USER.failed();
             System.out.println("Jag kunde inte läsa transaktioner: " + e.getMessage());
         }
 
@@ -78,12 +164,312 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
     }
 
 
+    /**
+     * Går igenom alla transaktioner för en user i samma ordning som findAllForUser,
+     * utan att lägga dem i en lista. Raderna hämtas i omgångar (fetch size) så att
+     * även en mycket stor historik kan läsas med lite minne – i Postgres kräver det
+     * att autocommit är av under frågan. Kastar RuntimeException om läsningen misslyckas.
+     */
+    public void forEachForUser(int userId, Consumer<Transaction> action) {
+        long start = FOR_EACH_FOR_USER.start();
+        try {
+            doForEachForUser(userId, action);
+        } catch (RuntimeException e) {
+            FOR_EACH_FOR_USER.failed();
+            throw e;
+        } finally {
+            FOR_EACH_FOR_USER.stop(start);
+        }
+    }
+
+    private void doForEachForUser(int userId, Consumer<Transaction> action) {
+        String sql = """
+        SELECT id, date, amount, description
+        FROM transactions
+        WHERE user_id = ?
+        ORDER BY created_at ASC, id ASC
+    """;
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setInt(1, userId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(fromResultSet(rs));
+                    }
+                }
+                c.commit();
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // Kastas så att ett halvt inläst sökindex inte ser ut som ett helt
+            throw new RuntimeException("Kunde inte läsa transaktioner", e);
+        }
+    }
+
+    /**
+     * Går igenom en users transaktioner i ett datumintervall, sorterade på datum,
+     * utan att lägga dem i en lista (strömmande cursor som i forEachForUser).
+     * from/to får vara null (= inget villkor åt det hållet). Kastar RuntimeException
+     * om läsningen misslyckas.
+     */
+    public void forEachInDateRangeForUser(int userId, LocalDate from, LocalDate to, Consumer<Transaction> action) {
+        long start = FOR_EACH_IN_DATE_RANGE_FOR_USER.start();
+        try {
+            doForEachInDateRangeForUser(userId, from, to, action);
+        } catch (RuntimeException e) {
+            FOR_EACH_IN_DATE_RANGE_FOR_USER.failed();
+            throw e;
+        } finally {
+            FOR_EACH_IN_DATE_RANGE_FOR_USER.stop(start);
+        }
+    }
+
+    private void doForEachInDateRangeForUser(int userId, LocalDate from, LocalDate to, Consumer<Transaction> action) {
+        StringBuilder sql = new StringBuilder("SELECT id, date, amount, description FROM transactions WHERE user_id = ?");
+        if (from != null) sql.append(" AND date >= ?");
+        if (to != null) sql.append(" AND date <= ?");
+        sql.append(" ORDER BY date ASC, id ASC");
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                ps.setFetchSize(FETCH_SIZE);
+                int i = 1;
+                ps.setInt(i++, userId);
+                if (from != null) ps.setDate(i++, Date.valueOf(from));
+                if (to != null) ps.setDate(i, Date.valueOf(to));
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(fromResultSet(rs));
+                    }
+                }
+                c.commit();
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // Kastas så att en export inte committar en halv fil
+            throw new RuntimeException("Kunde inte läsa transaktioner", e);
+        }
+    }
+
+    /**
+     * Går igenom innehållshasharna (content_hash) för en users importerade rader,
+     * strömmande. Rader som lagts till för hand har ingen hash och hoppas över.
+     */
+    public void forEachContentHashForUser(int userId, LongConsumer action) {
+        long start = FOR_EACH_CONTENT_HASH_FOR_USER.start();
+        try {
+            doForEachContentHashForUser(userId, action);
+        } catch (RuntimeException e) {
+            FOR_EACH_CONTENT_HASH_FOR_USER.failed();
+            throw e;
+        } finally {
+            FOR_EACH_CONTENT_HASH_FOR_USER.stop(start);
+        }
+    }
+
+    private void doForEachContentHashForUser(int userId, LongConsumer action) {
+        String sql = "SELECT content_hash FROM transactions WHERE user_id = ? AND content_hash IS NOT NULL";
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setInt(1, userId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(rs.getLong(1));
+                    }
+                }
+                c.commit();
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte läsa importerade rader", e);
+        }
+    }
+
+    /**
+     * Returnerar de av hasharna (de första count i arrayen) som redan finns för usern.
+     * En fråga för hela omgången (content_hash = ANY), via unika indexet.
+     */
+    public Set<Long> findExistingContentHashesForUser(int userId, long[] hashes, int count) {
+        long start = FIND_EXISTING_CONTENT_HASHES_FOR_USER.start();
+        try {
+            return doFindExistingContentHashesForUser(userId, hashes, count);
+        } catch (RuntimeException e) {
+            FIND_EXISTING_CONTENT_HASHES_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_EXISTING_CONTENT_HASHES_FOR_USER.stop(start);
+        }
+    }
+
+    private Set<Long> doFindExistingContentHashesForUser(int userId, long[] hashes, int count) {
+        Set<Long> existing = new HashSet<>();
+        if (count == 0) return existing;
+        String sql = "SELECT content_hash FROM transactions WHERE user_id = ? AND content_hash = ANY(?)";
+
+        Long[] values = new Long[count];
+        for (int i = 0; i < count; i++) values[i] = hashes[i];
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setArray(2, c.createArrayOf("bigint", values));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte kontrollera dubbletter", e);
+        }
+        return existing;
+    }
+
+    /**
+     * Sparar en omgång importerade rader med sina innehållshashar, i en JDBC-batch och
+     * en commit. Rader vars hash redan finns för usern hoppas över av databasen
+     * (ON CONFLICT DO NOTHING på unika indexet), så två samtidiga importer av samma fil
+     * kan inte ge dubbletter. Returnerar antal rader som faktiskt sparades.
+     * Vid fel rullas omgången tillbaka och RuntimeException kastas.
+     */
+    public int insertImportedForUser(List<Transaction> rows, long[] hashes, int userId) {
+        long start = INSERT_IMPORTED_FOR_USER.start();
+        try {
+            return doInsertImportedForUser(rows, hashes, userId);
+        } catch (RuntimeException e) {
+            INSERT_IMPORTED_FOR_USER.failed();
+            throw e;
+        } finally {
+            INSERT_IMPORTED_FOR_USER.stop(start);
+        }
+    }
+
+    private int doInsertImportedForUser(List<Transaction> rows, long[] hashes, int userId) {
+        String sql = """
+        INSERT INTO transactions (user_id, type, amount, description, created_at, date, content_hash)
+        VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, ?)
+        ON CONFLICT (user_id, content_hash) DO NOTHING
+    """;
+        int saved = 0;
+
+        try (Connection c = Database.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < rows.size(); i++) {
+                    Transaction tx = rows.get(i);
+                    ps.setInt(1, userId);
+                    ps.setString(2, tx.getAmount() >= 0 ? "INCOME" : "EXPENSE");
+                    ps.setDouble(3, tx.getAmount());
+                    ps.setString(4, tx.getDescription());
+                    ps.setDate(5, Date.valueOf(tx.getDate()));
+                    ps.setLong(6, hashes[i]);
+                    ps.addBatch();
+                }
+                for (int n : ps.executeBatch()) {
+                    if (n > 0 || n == Statement.SUCCESS_NO_INFO) saved++;
+                }
+                pruneChangesForUser(c, userId);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte importera transaktioner", e);
+        }
+        return saved;
+    }
+
+    /**
+     * Summerar inkomster och utgifter per period ("day", "week", "month" eller "year")
+     * i ett datumintervall, med en enda GROUP BY-fråga. Datumet i varje DailyTotal är
+     * periodens första dag (veckor börjar på måndag, som ISO-veckor). Kastar
+     * RuntimeException om frågan misslyckas.
+     */
+    public List<DailyTotal> findTotalsByPeriodForUser(int userId, String period, LocalDate from, LocalDate to) {
+        long start = FIND_TOTALS_BY_PERIOD_FOR_USER.start();
+        try {
+            return doFindTotalsByPeriodForUser(userId, period, from, to);
+        } catch (RuntimeException e) {
+            FIND_TOTALS_BY_PERIOD_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_TOTALS_BY_PERIOD_FOR_USER.stop(start);
+        }
+    }
+
+    private List<DailyTotal> doFindTotalsByPeriodForUser(int userId, String period, LocalDate from, LocalDate to) {
+        if (!List.of("day", "week", "month", "year").contains(period)) {
+            throw new IllegalArgumentException("Okänd period: " + period);
+        }
+
+        List<DailyTotal> list = new ArrayList<>();
+        String sql = """
+        SELECT date_trunc(?, date)::date AS period,
+               COALESCE(SUM(amount) FILTER (WHERE amount > 0), 0) AS income,
+               COALESCE(SUM(-amount) FILTER (WHERE amount < 0), 0) AS expenses
+        FROM transactions
+        WHERE user_id = ? AND date BETWEEN ? AND ?
+        GROUP BY period
+        ORDER BY period ASC
+    """;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setString(1, period);
+            ps.setInt(2, userId);
+            ps.setDate(3, Date.valueOf(from));
+            ps.setDate(4, Date.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new DailyTotal(
+                            rs.getDate("period").toLocalDate(),
+                            rs.getDouble("income"),
+                            rs.getDouble("expenses")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte summera transaktioner per period", e);
+        }
+        return list;
+    }
+
     /**
      * Sparar en transaktion för given userId.
-     * Returnerar transaktionen (oförändrad) eller loggar fel.
+     * Returnerar en kopia med id:t som databasen gav raden (RETURNING id),
+     * så att den kan tas bort igen utan att listan behöver hämtas om.
+     * Vid fel kastas RuntimeException (så att GUI:t kan ångra sin optimistiska ändring).
      */
     public Transaction saveForUser(Transaction tx, int userId) {
-        String sql = "INSERT INTO transactions (user_id, type, amount, description, created_at, date) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?)";
+        long start = SAVE_FOR_USER.start();
+        try {
+            return doSaveForUser(tx, userId);
+        } catch (RuntimeException e) {
+            SAVE_FOR_USER.failed();
+            throw e;
+        } finally {
+            SAVE_FOR_USER.stop(start);
+        }
+    }
+
+    private Transaction doSaveForUser(Transaction tx, int userId) {
+        String sql = "INSERT INTO transactions (user_id, type, amount, description, created_at, date) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?) RETURNING id";
         String type = tx.getAmount() >= 0 ? "INCOME" : "EXPENSE";
 
         try (Connection c = Database.getConnection();
@@ -94,12 +480,17 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
             ps.setDouble(3, tx.getAmount());
             ps.setString(4, tx.getDescription());
             ps.setDate(5, Date.valueOf(tx.getDate()));
-            ps.executeUpdate();
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new Transaction(rs.getInt(1), tx.getDate(), tx.getAmount(), tx.getDescription());
+                }
+            }
 
         } catch (SQLException e) {
-            System.out.println("Jag kunde inte spara transaktionen: " + e.getMessage());
+            throw new RuntimeException("Kunde inte spara transaktion", e);
         }
-        return tx;
+        throw new RuntimeException("Kunde inte spara transaktion: inget id returnerades");
     }
 
     /**
@@ -108,6 +499,18 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
      */
 
     public boolean deleteByIdForUser(int transactionId, int userId) {
+        long start = DELETE_BY_ID_FOR_USER.start();
+        try {
+            return doDeleteByIdForUser(transactionId, userId);
+        } catch (RuntimeException e) {
+            DELETE_BY_ID_FOR_USER.failed();
+            throw e;
+        } finally {
+            DELETE_BY_ID_FOR_USER.stop(start);
+        }
+    }
+
+    private boolean doDeleteByIdForUser(int transactionId, int userId) {
         String sql = """
         DELETE FROM transactions
         WHERE id = ? AND user_id = ?
@@ -131,6 +534,18 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
      * Hittar transaktioner i ett datumintervall för en user.
      */
     public List<Transaction> findByDateRangeForUser(LocalDate from, LocalDate to, int userId) {
+        long start = FIND_BY_DATE_RANGE_FOR_USER.start();
+        try {
+            return doFindByDateRangeForUser(from, to, userId);
+        } catch (RuntimeException e) {
+            FIND_BY_DATE_RANGE_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_BY_DATE_RANGE_FOR_USER.stop(start);
+        }
+    }
+
+    private List<Transaction> doFindByDateRangeForUser(LocalDate from, LocalDate to, int userId) {
         List<Transaction> list = new ArrayList<>();
         String sql = "SELECT id, date, amount, description FROM transactions WHERE user_id = ? AND date BETWEEN ? AND ? ORDER BY date ASC";
         try (Connection c = Database.getConnection();
@@ -146,6 +561,7 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
                 }
             }
         } catch (SQLException e) {
+            FIND_BY_DATE_RANGE_FOR_USER.failed();
             System.out.println("Jag kunde inte hämta transaktioner i datumintervallet: " + e.getMessage());
         }
         return list;
@@ -153,15 +569,42 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
 
     /**
      * Rensar och skriver hela listan för en user (ersätter allt).
-     * Implementerat med DELETE + batch-insert i en transaktion.
+     * Implementerat med DELETE + batch-insert i en transaktion. Rader som finns kvar
+     * (samma id) behåller sin content_hash, så att en senare import av ett överlappande
+     * utdrag fortfarande känner igen dem.
      */
     public void saveAllForUser(List<Transaction> all, int userId) {
+        long start = SAVE_ALL_FOR_USER.start();
+        try {
+            doSaveAllForUser(all, userId);
+        } catch (RuntimeException e) {
+            SAVE_ALL_FOR_USER.failed();
+            throw e;
+        } finally {
+            SAVE_ALL_FOR_USER.stop(start);
+        }
+    }
+
+    private void doSaveAllForUser(List<Transaction> all, int userId) {
+        String hashSql = "SELECT id, content_hash FROM transactions WHERE user_id = ? AND content_hash IS NOT NULL";
         String deleteSql = "DELETE FROM transactions WHERE user_id = ?";
-        String insertSql = "INSERT INTO transactions (user_id, type, amount, description, created_at, date) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?)";
+        String insertSql = "INSERT INTO transactions (user_id, type, amount, description, created_at, date, content_hash) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, ?)";
         Connection c = null;
         try {
             c = Database.getConnection();
             c.setAutoCommit(false);
+
+            // id → content_hash för importerade rader, läses innan de tas bort
+            Map<Integer, Long> hashes = new HashMap<>();
+            try (PreparedStatement ps = c.prepareStatement(hashSql)) {
+                ps.setInt(1, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        hashes.put(rs.getInt(1), rs.getLong(2));
+                    }
+                }
+            }
+
             try (PreparedStatement del = c.prepareStatement(deleteSql)) {
                 del.setInt(1, userId);
                 del.executeUpdate();
@@ -174,12 +617,21 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
                     ins.setDouble(3, t.getAmount());
                     ins.setString(4, t.getDescription());
                     ins.setDate(5, Date.valueOf(t.getDate()));
+                    // remove: samma rad två gånger i listan får bara hashen en gång (unikt index)
+                    Long hash = t.getId() > 0 ? hashes.remove(t.getId()) : null;
+                    if (hash != null) {
+                        ins.setLong(6, hash);
+                    } else {
+                        ins.setNull(6, Types.BIGINT);
+                    }
                     ins.addBatch();
                 }
                 ins.executeBatch();
             }
+            pruneChangesForUser(c, userId);
             c.commit();
         } catch (SQLException e) {
+            SAVE_ALL_FOR_USER.failed();
             if (c != null) {
                 try {
                     c.rollback();
@@ -201,27 +653,453 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
     }
 
     /**
-     * Räknar antalet transaktioner för en user.
+     * Hämtar en sida transaktioner för en user, i samma ordning som findAllForUser.
+     * Används av GUI:t för att bara hämta de rader som syns. Kastar RuntimeException
+     * om databasen inte svarar.
      */
-    public int countForUser(int userId) {
-        String sql = "SELECT COUNT(*) FROM transactions WHERE user_id = ?";
+    public List<Transaction> findPageForUser(int userId, int offset, int limit) {
+        long start = FIND_PAGE_FOR_USER.start();
+        try {
+            return doFindPageForUser(userId, offset, limit);
+        } catch (RuntimeException e) {
+            FIND_PAGE_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_PAGE_FOR_USER.stop(start);
+        }
+    }
+
+    private List<Transaction> doFindPageForUser(int userId, int offset, int limit) {
+        List<Transaction> list = new ArrayList<>();
         try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+             PreparedStatement ps = c.prepareStatement(PAGE_SQL)) {
 
             ps.setInt(1, userId);
+            ps.setInt(2, limit);
+            ps.setInt(3, offset);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(fromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            // Kastas så att en tom sida inte ser ut som ett svar (GUI:t visar felet)
+            throw new RuntimeException("Kunde inte hämta sida med transaktioner", e);
+        }
+        return list;
+    }
+
+    /**
+     * Hämtar en sida transaktioner för en user med valfritt filter (samma ordning som
+     * findPageForUser). from/to/text får vara null. text matchas som delsträng i
+     * beskrivningen (ILIKE, går via trigramindexet).
+     */
+    public List<Transaction> findPageForUser(int userId, LocalDate from, LocalDate to, String text,
+                                             int offset, int limit) {
+        long start = FIND_FILTERED_PAGE_FOR_USER.start();
+        try {
+            return doFindPageForUser(userId, from, to, text, offset, limit);
+        } catch (RuntimeException e) {
+            FIND_FILTERED_PAGE_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_FILTERED_PAGE_FOR_USER.stop(start);
+        }
+    }
+
+    private List<Transaction> doFindPageForUser(int userId, LocalDate from, LocalDate to, String text,
+                                             int offset, int limit) {
+        List<Transaction> list = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id, date, amount, description FROM transactions");
+        appendFilter(sql, from, to, text);
+        sql.append(" ORDER BY created_at ASC, id ASC LIMIT ? OFFSET ?");
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+
+            int i = bindFilter(ps, userId, from, to, text);
+            ps.setInt(i++, limit);
+            ps.setInt(i, offset);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(fromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            FIND_FILTERED_PAGE_FOR_USER.failed();
+            System.out.println("Jag kunde inte hämta sida med transaktioner: " + e.getMessage());
+        }
+        return list;
+    }
+
+    /**
+     * Räknar transaktioner för en user med samma filter som findPageForUser.
+     */
+    public int countForUser(int userId, LocalDate from, LocalDate to, String text) {
+        long start = COUNT_FILTERED_FOR_USER.start();
+        try {
+            return doCountForUser(userId, from, to, text);
+        } catch (RuntimeException e) {
+            COUNT_FILTERED_FOR_USER.failed();
+            throw e;
+        } finally {
+            COUNT_FILTERED_FOR_USER.stop(start);
+        }
+    }
+
+    private int doCountForUser(int userId, LocalDate from, LocalDate to, String text) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM transactions");
+        appendFilter(sql, from, to, text);
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+
+            bindFilter(ps, userId, from, to, text);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) return rs.getInt(1);
             }
         } catch (SQLException e) {
+            COUNT_FILTERED_FOR_USER.failed();
             System.out.println("Jag kunde inte räkna transaktioner: " + e.getMessage());
         }
         return 0;
     }
+
+    // WHERE-delen för filtren ovan (user_id alltid, resten bara om de är satta)
+    private static void appendFilter(StringBuilder sql, LocalDate from, LocalDate to, String text) {
+        sql.append(" WHERE user_id = ?");
+        if (from != null) sql.append(" AND date >= ?");
+        if (to != null) sql.append(" AND date <= ?");
+        if (text != null && !text.isBlank()) sql.append(" AND description ILIKE ? ESCAPE '\\'");
+    }
+
+    // Sätter parametrarna i samma ordning som appendFilter; returnerar nästa lediga index
+    private static int bindFilter(PreparedStatement ps, int userId, LocalDate from, LocalDate to, String text)
+            throws SQLException {
+        int i = 1;
+        ps.setInt(i++, userId);
+        if (from != null) ps.setDate(i++, Date.valueOf(from));
+        if (to != null) ps.setDate(i++, Date.valueOf(to));
+        if (text != null && !text.isBlank()) ps.setString(i++, likePattern(text));
+        return i;
+    }
+
+    // % och _ är jokertecken i LIKE, så de escapas i användarens text
+    private static String likePattern(String text) {
+        return "%" + text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Summerar alla belopp för en user (= balansen), utan att hämta raderna.
+     */
+    public double sumForUser(int userId) {
+        long start = SUM_FOR_USER.start();
+        try {
+            return doSumForUser(userId);
+        } catch (RuntimeException e) {
+            SUM_FOR_USER.failed();
+            throw e;
+        } finally {
+            SUM_FOR_USER.stop(start);
+        }
+    }
+
+    private double doSumForUser(int userId) {
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(SUM_SQL)) {
+
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            SUM_FOR_USER.failed();
+            System.out.println("Jag kunde inte räkna balansen: " + e.getMessage());
+        }
+        return 0.0;
+    }
+
+    /**
+     * Summerar inkomster och utgifter per dag för en user (GROUP BY i databasen),
+     * sorterat på datum. Används av diagrammen så att inte alla rader behöver hämtas.
+     */
+    public List<DailyTotal> findDailyTotalsForUser(int userId) {
+        long start = FIND_DAILY_TOTALS_FOR_USER.start();
+        try {
+            return doFindDailyTotalsForUser(userId);
+        } catch (RuntimeException e) {
+            FIND_DAILY_TOTALS_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_DAILY_TOTALS_FOR_USER.stop(start);
+        }
+    }
+
+    private List<DailyTotal> doFindDailyTotalsForUser(int userId) {
+        List<DailyTotal> list = new ArrayList<>();
+        String sql = """
+        SELECT date,
+               COALESCE(SUM(amount) FILTER (WHERE amount > 0), 0) AS income,
+               COALESCE(SUM(-amount) FILTER (WHERE amount < 0), 0) AS expenses
+        FROM transactions
+        WHERE user_id = ?
+        GROUP BY date
+        ORDER BY date ASC
+    """;
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new DailyTotal(
+                            rs.getDate("date").toLocalDate(),
+                            rs.getDouble("income"),
+                            rs.getDouble("expenses")));
+                }
+            }
+        } catch (SQLException e) {
+            FIND_DAILY_TOTALS_FOR_USER.failed();
+            System.out.println("Jag kunde inte summera transaktioner per dag: " + e.getMessage());
+        }
+        return list;
+    }
+
+    /**
+     * Söker i beskrivningarna för en user och returnerar id:n, bäst först (sidindelat).
+     *
+     * Använder pg_trgm (se schema.sql): en delsträng matchas med ILIKE och en
+     * felstavning med word similarity (<%). Båda går via GIN-indexet på description,
+     * så ingen hel tabellskanning behövs. Rangordning: likhet, sedan nyast först.
+     */
+    public List<Integer> searchDescriptionsForUser(int userId, String query, int offset, int limit) {
+        long start = SEARCH_DESCRIPTIONS_FOR_USER.start();
+        try {
+            return doSearchDescriptionsForUser(userId, query, offset, limit);
+        } catch (RuntimeException e) {
+            SEARCH_DESCRIPTIONS_FOR_USER.failed();
+            throw e;
+        } finally {
+            SEARCH_DESCRIPTIONS_FOR_USER.stop(start);
+        }
+    }
+
+    private List<Integer> doSearchDescriptionsForUser(int userId, String query, int offset, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        if (query == null || query.isBlank() || limit <= 0) return ids;
+
+        String sql = """
+        SELECT id
+        FROM transactions
+        WHERE user_id = ?
+          AND (description ILIKE ? ESCAPE '\\' OR ? <% description)
+        ORDER BY word_similarity(?, description) DESC, id DESC
+        LIMIT ? OFFSET ?
+    """;
+
+        String text = query.trim();
+        String pattern = likePattern(text);
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, userId);
+            ps.setString(2, pattern);
+            ps.setString(3, text);
+            ps.setString(4, text);
+            ps.setInt(5, limit);
+            ps.setInt(6, Math.max(0, offset));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+            }
+        } catch (SQLException e) {
+            SEARCH_DESCRIPTIONS_FOR_USER.failed();
+            System.out.println("Jag kunde inte söka bland transaktioner: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * Ändringar i en users transaktioner efter löpnummer since, i nummerordning,
+     * högst limit stycken. Loggen fylls av en trigger på transactions (se schema.sql),
+     * så alla sätt att ändra tabellen kommer med. Den som speglar transaktionerna
+     * sparar sista numret och frågar igen med det – arbetet blir proportionellt mot
+     * antalet ändringar, inte mot historiken. Null om ändringarna efter since har
+     * rensats (se pruneChangesForUser) – då får man hämta om allt. Vid fel kastas
+     * RuntimeException (en tom lista skulle se ut som "inget har ändrats").
+     */
+    public List<TransactionChange> findChangesSinceForUser(int userId, long since, int limit) {
+        long start = FIND_CHANGES_SINCE_FOR_USER.start();
+        try {
+            return doFindChangesSinceForUser(userId, since, limit);
+        } catch (RuntimeException e) {
+            FIND_CHANGES_SINCE_FOR_USER.failed();
+            throw e;
+        } finally {
+            FIND_CHANGES_SINCE_FOR_USER.stop(start);
+        }
+    }
+
+    private List<TransactionChange> doFindChangesSinceForUser(int userId, long since, int limit) {
+        String sql = """
+        SELECT seq, kind, transaction_id AS id, date, amount, description
+        FROM transaction_changes
+        WHERE user_id = ? AND seq > ?
+        ORDER BY seq ASC
+        LIMIT ?
+    """;
+        String floorSql = "SELECT floor_seq FROM transaction_change_floors WHERE user_id = ?";
+        List<TransactionChange> changes = new ArrayList<>();
+
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             PreparedStatement floor = c.prepareStatement(floorSql)) {
+
+            ps.setInt(1, userId);
+            ps.setLong(2, since);
+            ps.setInt(3, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TransactionChange.Kind kind = "D".equals(rs.getString("kind"))
+                            ? TransactionChange.Kind.DELETE
+                            : TransactionChange.Kind.INSERT;
+                    changes.add(new TransactionChange(rs.getLong("seq"), kind, fromResultSet(rs)));
+                }
+            }
+
+            // Gränsen läses efter ändringarna: den bara växer, så en rensning mitt i
+            // frågan syns här och svaret blir null i stället för en lista med hål
+            floor.setInt(1, userId);
+            try (ResultSet rs = floor.executeQuery()) {
+                if (rs.next() && since < rs.getLong(1)) return null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte hämta ändringar", e);
+        }
+        return changes;
+    }
+
+    /**
+     * Senaste löpnumret i en users ändringslogg (0 om inget har ändrats).
+     * Läs det innan en fullständig hämtning, så missas inget som ändras under tiden.
+     */
+    public long latestChangeSequenceForUser(int userId) {
+        long start = LATEST_CHANGE_SEQUENCE_FOR_USER.start();
+        try {
+            return doLatestChangeSequenceForUser(userId);
+        } catch (RuntimeException e) {
+            LATEST_CHANGE_SEQUENCE_FOR_USER.failed();
+            throw e;
+        } finally {
+            LATEST_CHANGE_SEQUENCE_FOR_USER.stop(start);
+        }
+    }
+
+    private long doLatestChangeSequenceForUser(int userId) {
+        // Gränsen räknas med ifall allt för usern skulle ha rensats
+        String sql = """
+        SELECT GREATEST(
+            COALESCE((SELECT MAX(seq) FROM transaction_changes WHERE user_id = ?), 0),
+            COALESCE((SELECT floor_seq FROM transaction_change_floors WHERE user_id = ?), 0))
+    """;
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, userId);
+            ps.setInt(2, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte läsa ändringsloggen", e);
+        }
+    }
+
+    // Behåller bara de CHANGE_LOG_RETENTION senaste ändringarna för usern och flyttar upp
+    // gränsen (transaction_change_floors) till det högsta numret som tagits bort. Körs i
+    // samma databastransaktion som de stora skrivningarna (saveAll och import), som är de
+    // som fyller loggen; enstaka sparningar lägger bara till en rad var.
+    private static void pruneChangesForUser(Connection c, int userId) throws SQLException {
+        String cutoffSql = "SELECT seq FROM transaction_changes WHERE user_id = ? ORDER BY seq DESC OFFSET ? LIMIT 1";
+        String deleteSql = "DELETE FROM transaction_changes WHERE user_id = ? AND seq <= ?";
+        String floorSql = """
+        INSERT INTO transaction_change_floors (user_id, floor_seq) VALUES (?, ?)
+        ON CONFLICT (user_id) DO UPDATE
+        SET floor_seq = GREATEST(transaction_change_floors.floor_seq, EXCLUDED.floor_seq)
+    """;
+        long cutoff;
+        try (PreparedStatement ps = c.prepareStatement(cutoffSql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, CHANGE_LOG_RETENTION);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return; // färre ändringar än gränsen
+                cutoff = rs.getLong(1);
+            }
+        }
+        try (PreparedStatement del = c.prepareStatement(deleteSql);
+             PreparedStatement floor = c.prepareStatement(floorSql)) {
+            del.setInt(1, userId);
+            del.setLong(2, cutoff);
+            del.executeUpdate();
+            floor.setInt(1, userId);
+            floor.setLong(2, cutoff);
+            floor.executeUpdate();
+        }
+    }
+
+    /**
+     * Räknar antalet transaktioner för en user. Kastar RuntimeException om databasen
+     * inte svarar (0 skulle se ut som en tom lista).
+     */
+    public int countForUser(int userId) {
+        long start = COUNT_FOR_USER.start();
+        try {
+            return doCountForUser(userId);
+        } catch (RuntimeException e) {
+            COUNT_FOR_USER.failed();
+            throw e;
+        } finally {
+            COUNT_FOR_USER.stop(start);
+        }
+    }
+
+    private int doCountForUser(int userId) {
+        try (Connection c = Database.getConnection();
+             PreparedStatement ps = c.prepareStatement(COUNT_SQL)) {
+
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte räkna transaktioner", e);
+        }
+        return 0;
+    }
     /**
      * Summerar all inkomst för ett visst år och användare.
      * Använder SQL + JOIN + SUM.
      */
     public double sumYearlyIncomeForUser(int userId, int year) {
+        long start = SUM_YEARLY_INCOME_FOR_USER.start();
+        try {
+            return doSumYearlyIncomeForUser(userId, year);
+        } catch (RuntimeException e) {
+            SUM_YEARLY_INCOME_FOR_USER.failed();
+            throw e;
+        } finally {
+            SUM_YEARLY_INCOME_FOR_USER.stop(start);
+        }
+    }
+
+    private double doSumYearlyIncomeForUser(int userId, int year) {
         String sql = """
         SELECT COALESCE(SUM(t.amount), 0)
         FROM transactions t
@@ -243,12 +1121,25 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
                 }
             }
         } catch (SQLException e) {
+            SUM_YEARLY_INCOME_FOR_USER.failed();
             System.out.println("Kunde inte räkna årsinkomst: " + e.getMessage());
         }
 
         return 0.0;
     }
     public double sumYearlyExpensesForUser(int userId, int year) {
+        long start = SUM_YEARLY_EXPENSES_FOR_USER.start();
+        try {
+            return doSumYearlyExpensesForUser(userId, year);
+        } catch (RuntimeException e) {
+            SUM_YEARLY_EXPENSES_FOR_USER.failed();
+            throw e;
+        } finally {
+            SUM_YEARLY_EXPENSES_FOR_USER.stop(start);
+        }
+    }
+
+    private double doSumYearlyExpensesForUser(int userId, int year) {
         String sql = """
         SELECT COALESCE(SUM(ABS(t.amount)), 0)
         FROM transactions t
@@ -270,6 +1161,7 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
                 }
             }
         } catch (SQLException e) {
+            SUM_YEARLY_EXPENSES_FOR_USER.failed();
             System.out.println("Kunde inte räkna årsutgifter: " + e.getMessage());
         }
 
@@ -318,12 +1210,25 @@ public final class JdbcTransactionRepository implements repository.TransactionRe
     /// Generisk count (alla users)
     @Override
     public int count() {
+        long start = COUNT.start();
+        try {
+            return doCount();
+        } catch (RuntimeException e) {
+            COUNT.failed();
+            throw e;
+        } finally {
+            COUNT.stop(start);
+        }
+    }
+
+    private int doCount() {
         String sql = "SELECT COUNT(*) FROM transactions";
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             if (rs.next()) return rs.getInt(1);
         } catch (SQLException e) {
+            COUNT.failed();
             System.out.println("Jag kunde inte räkna transaktioner (all): " + e.getMessage());
         }
         return 0;
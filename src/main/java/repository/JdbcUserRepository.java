@@ -1,9 +1,14 @@
 package repository;
 
 import domain.User;
+import metrics.Metrics;
+import metrics.OperationStats;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -13,12 +18,47 @@ import java.util.Optional;
  */
 public class JdbcUserRepository {
 
+    // Inloggningens fråga – förbereds i förväg av warmUp
+    private static final String FIND_BY_USERNAME_SQL = "SELECT id, password_hash FROM users WHERE username = ?";
+
+    // Antal anrop, fel och latens per operation (samma upplägg som i JdbcTransactionRepository)
+    private static final String TYPE = "JdbcUserRepository";
+    private static final OperationStats REGISTER_USER = Metrics.operation(TYPE, "registerUser");
+    private static final OperationStats AUTHENTICATE = Metrics.operation(TYPE, "authenticate");
+    private static final OperationStats FIND_BY_USERNAME = Metrics.operation(TYPE, "findByUsername");
+    private static final OperationStats FIND_BY_ID = Metrics.operation(TYPE, "findById");
+    private static final OperationStats REGISTER_USERS = Metrics.operation(TYPE, "registerUsers");
+
+    /**
+     * Förbereder inloggningens fråga på en connection (vid uppstart, se JdbcTransactionRepository.warmUp).
+     */
+    public static void warmUp(Connection c) throws SQLException {
+        for (int i = 0; i < Database.PREPARE_THRESHOLD; i++) {
+            try (PreparedStatement ps = c.prepareStatement(FIND_BY_USERNAME_SQL)) {
+                ps.setString(1, "");
+                ps.executeQuery().close();
+            }
+        }
+    }
+
     /**
      * Registrerar en ny användare.
      * Returnerar Optional<User> om registreringen lyckas,
      * Annars Optional.empty() (t.ex. om användarnamnet redan finns).
      * */
     public Optional<User> registerUser(String username, String plainPassword) {
+        long start = REGISTER_USER.start();
+        try {
+            return doRegisterUser(username, plainPassword);
+        } catch (RuntimeException e) {
+            REGISTER_USER.failed();
+            throw e;
+        } finally {
+            REGISTER_USER.stop(start);
+        }
+    }
+
+    private Optional<User> doRegisterUser(String username, String plainPassword) {
         String hash = BCrypt.hashpw(plainPassword, BCrypt.gensalt());
         String sql = "INSERT INTO users (username, password_hash) VALUES (?, ?) RETURNING id, created_at";
 
@@ -49,9 +89,20 @@ public class JdbcUserRepository {
      * Autentiserar en användare. Returnerar Optional<User> om inloggning lyckas.
      */
     public Optional<User> authenticate(String username, String plainPassword) {
-        String sql = "SELECT id, password_hash FROM users WHERE username = ?";
+        long start = AUTHENTICATE.start();
+        try {
+            return doAuthenticate(username, plainPassword);
+        } catch (RuntimeException e) {
+            AUTHENTICATE.failed();
+            throw e;
+        } finally {
+            AUTHENTICATE.stop(start);
+        }
+    }
+
+    private Optional<User> doAuthenticate(String username, String plainPassword) {
         try (Connection conn = Database.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(FIND_BY_USERNAME_SQL)) {
 
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
@@ -74,9 +125,20 @@ public class JdbcUserRepository {
      * Hittar användare efter username.
      */
     public Optional<User> findByUsername(String username) {
-        String sql = "SELECT id, password_hash FROM users WHERE username = ?";
+        long start = FIND_BY_USERNAME.start();
+        try {
+            return doFindByUsername(username);
+        } catch (RuntimeException e) {
+            FIND_BY_USERNAME.failed();
+            throw e;
+        } finally {
+            FIND_BY_USERNAME.stop(start);
+        }
+    }
+
+    private Optional<User> doFindByUsername(String username) {
         try (Connection conn = Database.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(FIND_BY_USERNAME_SQL)) {
 
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
@@ -96,6 +158,18 @@ public class JdbcUserRepository {
      * Hittar användare efter id.
      */
     public Optional<User> findById(int id) {
+        long start = FIND_BY_ID.start();
+        try {
+            return doFindById(id);
+        } catch (RuntimeException e) {
+            FIND_BY_ID.failed();
+            throw e;
+        } finally {
+            FIND_BY_ID.stop(start);
+        }
+    }
+
+    private Optional<User> doFindById(int id) {
         String sql = "SELECT username, password_hash FROM users WHERE id = ?";
         try (Connection conn = Database.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -113,4 +187,50 @@ public class JdbcUserRepository {
             throw new RuntimeException("Kunde inte hämta användare: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Skapar många användare på en gång med samma lösenord (testdata) och returnerar
+     * användarnamn → id, även för de som redan fanns. Lösenordet hashas bara en gång,
+     * eftersom BCrypt medvetet är långsamt.
+     */
+    public Map<String, Integer> registerUsers(List<String> usernames, String plainPassword) {
+        long start = REGISTER_USERS.start();
+        try {
+            return doRegisterUsers(usernames, plainPassword);
+        } catch (RuntimeException e) {
+            REGISTER_USERS.failed();
+            throw e;
+        } finally {
+            REGISTER_USERS.stop(start);
+        }
+    }
+
+    private Map<String, Integer> doRegisterUsers(List<String> usernames, String plainPassword) {
+        String hash = BCrypt.hashpw(plainPassword, BCrypt.gensalt());
+        String insertSql = "INSERT INTO users (username, password_hash) VALUES (?, ?) ON CONFLICT (username) DO NOTHING";
+        String selectSql = "SELECT id, username FROM users WHERE username = ANY(?)";
+        Map<String, Integer> ids = new HashMap<>();
+
+        try (Connection conn = Database.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                for (String username : usernames) {
+                    ps.setString(1, username);
+                    ps.setString(2, hash);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                ps.setArray(1, conn.createArrayOf("varchar", usernames.toArray()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.put(rs.getString("username"), rs.getInt("id"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Kunde inte skapa användare: " + e.getMessage(), e);
+        }
+        return ids;
+    }
 }
@@ -1,6 +1,7 @@
 package repository;
 
 import domain.Transaction;
+import domain.TransactionChange;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -49,6 +50,34 @@ public interface TransactionRepository {
         return Optional.empty();
     }
 
+    /**
+     * Söker i beskrivningarna och returnerar nycklar för träffarna, bäst först (sidindelat).
+     * Vad nyckeln är beror på lagret (id i databasen, position i filen). En position
+     * gäller bara tills nästa borttagning (raderna efter flyttas upp ett steg), så
+     * använd nycklarna direkt och sök om efter en ändring.
+     * Standard: stöds inte → tom lista.
+     */
+    default List<Integer> searchDescriptions(String query, int offset, int limit) {
+        return List.of();
+    }
+
+    /**
+     * Ändringar (tillagda och borttagna rader) efter löpnummer since, i nummerordning,
+     * högst limit stycken. Den som speglar lagret sparar sista numret och frågar igen med det.
+     * Null betyder att ändringarna inte finns kvar – då får man hämta om allt.
+     * Standard: stöds inte → null.
+     */
+    default List<TransactionChange> findChangesSince(long since, int limit) {
+        return null;
+    }
+
+    /**
+     * Senaste löpnumret i ändringsloggen. Läs det före en fullständig hämtning.
+     */
+    default long latestChangeSequence() {
+        return 0;
+    }
+
     /**
      * Antal transaktioner i lagret.
      */
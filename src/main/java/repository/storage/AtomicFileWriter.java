@@ -0,0 +1,76 @@
+package repository.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Skriver filer "allt eller inget": innehållet skrivs till en temporär fil bredvid
+ * målet, synkas till disk och byter sedan plats med målet via en atomisk rename.
+ * Kraschar programmet mitt i skrivningen finns alltid den gamla filen kvar hel.
+ */
+public final class AtomicFileWriter {
+
+    /**
+     * Skriver innehållet till en FileChannel (som inte ska stängas av skrivaren).
+     */
+    public interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Ersätter target med det som writer skriver.
+     */
+    public static void write(File target, ChannelWriter writer) throws IOException {
+        Path path = target.toPath();
+        Path tmp = tempFile(path);
+
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.write(channel);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        move(tmp, path);
+    }
+
+    /**
+     * Den temporära filen som används när target skrivs om.
+     */
+    public static Path tempFile(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Flyttar from → to atomiskt (om filsystemet klarar det) och synkar katalogen.
+     */
+    public static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(to.toAbsolutePath().getParent());
+    }
+
+    // Synkar katalogposten så att själva rename:en överlever en krasch (går inte på Windows)
+    private static void syncDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Vissa plattformar tillåter inte att man öppnar kataloger – då får OS:et sköta det
+        }
+    }
+}
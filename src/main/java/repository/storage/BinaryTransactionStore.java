@@ -0,0 +1,359 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Binärt DataStore-format för transaktioner (filändelse .pfb).
+ *
+ * Layout:
+ * <pre>
+ *   header (32 bytes): magic "PFTB", version (short), reserverat (short),
+ *                      antal poster (long), heap-offset (long), heap-storlek (long)
+ *   poster (28 bytes/st): epochDay (int), belopp i ören (long), id (int),
+ *                         beskrivningens offset i heapen (long), längd i bytes (int)
+ *   heap: alla beskrivningar som UTF-8, i samma ordning som posterna
+ * </pre>
+ * Posterna har fast bredd så att post nr i ligger på HEADER_SIZE + i * RECORD_SIZE.
+ * Beloppet sparas i ören (avrundat), så belopp med fler än två decimaler avrundas.
+ */
+public class BinaryTransactionStore implements DataStore<Transaction> {
+
+    public static final String EXTENSION = ".pfb";
+
+    static final int MAGIC = 0x50465442; // "PFTB"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 28;
+
+    // Hur stora direktbuffertar jag läser/skriver med
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    public BinaryTransactionStore(File file) {
+        this(file, true);
+    }
+
+    // create = false: filen skapas först när en sink committas (t.ex. checkpointfilen)
+    BinaryTransactionStore(File file, boolean create) {
+        this.file = file;
+        if (create) ensureFile();
+    }
+
+    // Ser till att mapp och fil finns (en tom fil betyder "inga poster")
+    private void ensureFile() {
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            if (!file.exists()) {
+                file.createNewFile();
+            }
+        } catch (IOException e) {
+            System.out.println("Kunde inte skapa fil: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Läser alla poster med en FileChannel in i direktbuffertar.
+     * Poster och heap läses båda sekventiellt, var för sig.
+     */
+    @Override
+    public List<Transaction> readAll() {
+        try (Stream<Transaction> items = stream()) {
+            return items.collect(Collectors.toCollection(ArrayList::new));
+        } catch (UncheckedIOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getCause().getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Strömmar posterna en buffert i taget. Strömmen ska stängas.
+     */
+    @Override
+    public Stream<Transaction> stream() {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return StreamSupport.stream(new Cursor(channel), false)
+                    .onClose(() -> {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            System.out.println("Kunde inte stänga fil: " + e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Skriver över filen (atomiskt via temporär fil).
+     */
+    @Override
+    public void writeAll(List<Transaction> items) {
+        try (DataSink<Transaction> sink = openSink()) {
+            for (Transaction t : items) {
+                sink.write(t);
+            }
+            sink.commit();
+        } catch (IOException e) {
+            System.out.println("Fel vid skrivning till fil: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Öppnar en sink. Eftersom antalet poster inte är känt i förväg skrivs posterna
+     * till den temporära filen och beskrivningarna till en separat heap-fil, som
+     * kopieras in efter posterna vid commit. Därefter skrivs headern och filen byts ut.
+     */
+    @Override
+    public DataSink<Transaction> openSink() throws IOException {
+        return new BinarySink();
+    }
+
+    private class BinarySink implements DataSink<Transaction> {
+        private final Path tmp = AtomicFileWriter.tempFile(file.toPath());
+        private final Path heapTmp = file.toPath().resolveSibling(file.getName() + ".heap.tmp");
+        private final FileChannel channel;
+        private final FileChannel heapChannel;
+        private final ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE / RECORD_SIZE * RECORD_SIZE);
+        private final ByteBuffer heap = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long recordPos = HEADER_SIZE;
+        private long heapSize = 0;
+        private long count = 0;
+        private boolean committed = false;
+
+        BinarySink() throws IOException {
+            channel = FileChannel.open(tmp,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            heapChannel = FileChannel.open(heapTmp,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void write(Transaction t) throws IOException {
+            byte[] desc = t.getDescription().getBytes(StandardCharsets.UTF_8);
+
+            if (records.remaining() < RECORD_SIZE) {
+                recordPos += flush(channel, records, recordPos);
+            }
+            records.putInt((int) t.getDate().toEpochDay());
+            records.putLong(Math.round(t.getAmount() * 100));
+            records.putInt(t.getId());
+            records.putLong(heapSize);
+            records.putInt(desc.length);
+
+            int written = 0;
+            while (written < desc.length) {
+                if (!heap.hasRemaining()) {
+                    flush(heapChannel, heap, heapChannel.size());
+                }
+                int n = Math.min(heap.remaining(), desc.length - written);
+                heap.put(desc, written, n);
+                written += n;
+            }
+            heapSize += desc.length;
+            count++;
+        }
+
+        @Override
+        public void commit() throws IOException {
+            recordPos += flush(channel, records, recordPos);
+            flush(heapChannel, heap, heapChannel.size());
+
+            // Heapen hamnar direkt efter sista posten
+            long heapOffset = recordPos;
+            long copied = 0;
+            while (copied < heapSize) {
+                copied += heapChannel.transferTo(copied, heapSize - copied, channel.position(heapOffset + copied));
+            }
+
+            ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.putShort((short) 0);
+            header.putLong(count);
+            header.putLong(heapOffset);
+            header.putLong(heapSize);
+            flush(channel, header, 0);
+
+            channel.force(true);
+            channel.close();
+            AtomicFileWriter.move(tmp, file.toPath());
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            heapChannel.close();
+            Files.deleteIfExists(heapTmp);
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    // Skriver ut bufferten på en viss position och tömmer den, returnerar antal bytes
+    private static int flush(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        buf.flip();
+        int n = buf.remaining();
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+        buf.clear();
+        return n;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) throw new IOException("Filen är trunkerad");
+            position += n;
+        }
+    }
+
+    /**
+     * Läser poster en buffert i taget och slår upp beskrivningarna i heapen.
+     */
+    private final class Cursor extends Spliterators.AbstractSpliterator<Transaction> {
+        private final FileChannel channel;
+        private final ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE / RECORD_SIZE * RECORD_SIZE);
+        private HeapReader heap;
+        private long position = HEADER_SIZE;
+        private long remaining = -1;
+
+        Cursor(FileChannel channel) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.channel = channel;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            try {
+                if (remaining < 0) readHeader();
+                if (remaining == 0) return false;
+
+                if (!records.hasRemaining()) {
+                    records.clear();
+                    records.limit((int) Math.min(records.capacity(), remaining * RECORD_SIZE));
+                    readFully(channel, records, position);
+                    position += records.limit();
+                    records.flip();
+                }
+
+                int epochDay = records.getInt();
+                long cents = records.getLong();
+                int id = records.getInt();
+                long descOffset = records.getLong();
+                int descLength = records.getInt();
+                remaining--;
+
+                action.accept(new Transaction(
+                        id,
+                        LocalDate.ofEpochDay(epochDay),
+                        cents / 100.0,
+                        heap.read(descOffset, descLength)));
+                return true;
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void readHeader() throws IOException {
+            records.limit(0);
+            if (channel.size() == 0) {
+                remaining = 0;
+                return;
+            }
+
+            ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Inte en binär transaktionsfil: " + file);
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Okänd version " + version + " i " + file);
+            }
+            header.getShort();
+            remaining = header.getLong();
+            long heapOffset = header.getLong();
+            long heapSize = header.getLong();
+            heap = new HeapReader(channel, heapOffset, heapSize);
+        }
+    }
+
+    /**
+     * Läser beskrivningar ur heapen via ett fönster (direktbuffert) som flyttas framåt.
+     * Eftersom beskrivningarna ligger i samma ordning som posterna läses heapen sekventiellt.
+     */
+    private static final class HeapReader {
+        private final FileChannel channel;
+        private final long heapOffset;
+        private final long heapSize;
+        private ByteBuffer window = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long windowStart = 0;
+        private int windowLength = 0;
+        private byte[] scratch = new byte[256];
+
+        HeapReader(FileChannel channel, long heapOffset, long heapSize) {
+            this.channel = channel;
+            this.heapOffset = heapOffset;
+            this.heapSize = heapSize;
+        }
+
+        String read(long offset, int length) throws IOException {
+            if (length == 0) return "";
+            if (offset < windowStart || offset + length > windowStart + windowLength) {
+                fill(offset, length);
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get((int) (offset - windowStart), scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void fill(long offset, int length) throws IOException {
+            if (offset + length > heapSize) {
+                throw new IOException("Beskrivning utanför heapen (offset " + offset + ")");
+            }
+            if (length > window.capacity()) {
+                window = ByteBuffer.allocateDirect(length);
+            }
+            window.clear();
+            window.limit((int) Math.min(window.capacity(), heapSize - offset));
+            readFully(channel, window, heapOffset + offset);
+            windowStart = offset;
+            windowLength = window.limit();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package repository.storage;
+
+import domain.Transaction;
+import domain.TransactionChange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ändringslogg i minnet för fil-lagret: de senaste ändringarna med löpnummer,
+ * så att den som speglar transaktionerna kan hämta bara det som hänt sedan sist.
+ *
+ * Loggen sparas inte på disk. I stället börjar numren vid varje start på klockan
+ * (millisekunder * 1000), så de fortsätter att öka mellan körningar. Frågar någon efter
+ * ändringar som inte längre finns kvar (från en tidigare körning, äldre än de capacity
+ * senaste, eller från före en omskrivning av hela filen) blir svaret null: "hämta om allt".
+ */
+public class ChangeLog {
+
+    // Ringbuffert: ändring nr seq ligger på plats seq % längden (numren delas ut utan hål)
+    private final TransactionChange[] ring;
+
+    // Senast utdelade löpnummer
+    private long sequence;
+    // Ändringarna efter detta nummer (till och med sequence) finns kvar i ringen
+    private long floor;
+
+    /**
+     * @param capacity hur många ändringar som sparas innan de äldsta glöms
+     */
+    public ChangeLog(int capacity) {
+        this.ring = new TransactionChange[capacity];
+        this.sequence = System.currentTimeMillis() * 1000;
+        this.floor = sequence;
+    }
+
+    /**
+     * Lägger till en ändring och returnerar dess löpnummer.
+     */
+    public synchronized long record(TransactionChange.Kind kind, Transaction tx) {
+        long seq = ++sequence;
+        ring[slot(seq)] = new TransactionChange(seq, kind, tx);
+        if (seq - floor > ring.length) {
+            floor = seq - ring.length;
+        }
+        return seq;
+    }
+
+    /**
+     * Allt har bytts ut (t.ex. hela filen skriven om): glömmer loggen, så att
+     * alla som frågar med ett äldre nummer får null och hämtar om allt.
+     */
+    public synchronized void reset() {
+        Arrays.fill(ring, null);
+        floor = ++sequence;
+    }
+
+    /**
+     * Ändringar efter since, i nummerordning, högst limit stycken.
+     * Tar tid efter antalet ändringar som hämtas, inte loggens storlek.
+     * Null om loggen inte längre räcker tillbaka till since.
+     */
+    public synchronized List<TransactionChange> since(long since, int limit) {
+        if (since < floor || since > sequence) return null;
+
+        List<TransactionChange> result = new ArrayList<>();
+        for (long seq = since + 1; seq <= sequence && result.size() < limit; seq++) {
+            result.add(ring[slot(seq)]);
+        }
+        return result;
+    }
+
+    /**
+     * Senast utdelade löpnummer.
+     */
+    public synchronized long latest() {
+        return sequence;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % ring.length);
+    }
+}
@@ -0,0 +1,477 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Kolumnformat för export av transaktioner (filändelse .pfc), betydligt mindre än CSV
+ * utan att behöva komprimeras.
+ *
+ * Raderna delas in i grupper om GROUP_ROWS. Inom en grupp ligger varje kolumn för sig
+ * och kodas på det sätt som passar den:
+ * <ul>
+ *   <li>datum: första epochDay, sedan skillnaden mot föregående rad – för en datumsorterad
+ *       export nästan alltid 0 eller 1, dvs. en byte</li>
+ *   <li>id: skillnaden mot föregående id</li>
+ *   <li>belopp: ören</li>
+ *   <li>beskrivning: gruppens ordlista (varje olika text en gång) och ett nummer per rad,
+ *       eftersom samma butiker och räkningar återkommer hela tiden</li>
+ * </ul>
+ * Alla tal är varints (7 bitar per byte) med zigzag för tal som kan vara negativa.
+ *
+ * Layout:
+ * <pre>
+ *   header (8 bytes): magic "PFTC", version (short), reserverat (short)
+ *   grupp: antal rader (int), minsta och största epochDay (int, int), datats längd (int),
+ *          ordlistans storlek (int), sedan datat: datum, id, belopp, ordlista, beskrivningsnummer
+ * </pre>
+ * Grupperna skrivs efter hand, så både skrivning och läsning har bara en grupp i minnet,
+ * och en datumfråga hoppar över grupper utan att avkoda dem.
+ */
+public class ColumnarTransactionStore implements DataStore<Transaction>, DateRangeSource {
+
+    public static final String EXTENSION = ".pfc";
+
+    static final int MAGIC = 0x50465443; // "PFTC"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int GROUP_HEADER_SIZE = 20;
+
+    // Rader per grupp: stor nog för att ordlistan ska löna sig, liten nog för lite minne
+    static final int GROUP_ROWS = 64 * 1024;
+
+    private final File file;
+
+    public ColumnarTransactionStore(File file) {
+        this(file, true);
+    }
+
+    // create = false: filen skapas först när en sink committas (t.ex. checkpointfilen)
+    ColumnarTransactionStore(File file, boolean create) {
+        this.file = file;
+        if (create) ensureFile();
+    }
+
+    // Ser till att mapp och fil finns (en tom fil betyder "inga poster")
+    private void ensureFile() {
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            if (!file.exists()) {
+                file.createNewFile();
+            }
+        } catch (IOException e) {
+            System.out.println("Kunde inte skapa fil: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Transaction> readAll() {
+        try (Stream<Transaction> items = stream()) {
+            return items.collect(Collectors.toCollection(ArrayList::new));
+        } catch (UncheckedIOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getCause().getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Avkodar bara grupper vars datumintervall överlappar [from, to].
+     */
+    @Override
+    public List<Transaction> findByDateRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) return new ArrayList<>();
+        try (Stream<Transaction> items = stream(from.toEpochDay(), to.toEpochDay())) {
+            return items
+                    .filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (UncheckedIOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getCause().getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Strömmar posterna en grupp i taget. Strömmen ska stängas.
+     */
+    @Override
+    public Stream<Transaction> stream() {
+        return stream(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private Stream<Transaction> stream(long fromDay, long toDay) {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return StreamSupport.stream(new Cursor(channel, fromDay, toDay), false)
+                    .onClose(() -> {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            System.out.println("Kunde inte stänga fil: " + e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Skriver över filen (atomiskt via temporär fil).
+     */
+    @Override
+    public void writeAll(List<Transaction> items) {
+        try (DataSink<Transaction> sink = openSink()) {
+            for (Transaction t : items) {
+                sink.write(t);
+            }
+            sink.commit();
+        } catch (IOException e) {
+            System.out.println("Fel vid skrivning till fil: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Öppnar en sink som kodar och skriver en grupp i taget till en temporär fil.
+     */
+    @Override
+    public DataSink<Transaction> openSink() throws IOException {
+        return new ColumnarSink();
+    }
+
+    // === Skrivning ===
+
+    private class ColumnarSink implements DataSink<Transaction> {
+        private final Path tmp = AtomicFileWriter.tempFile(file.toPath());
+        private final FileChannel channel;
+        private final int[] days = new int[GROUP_ROWS];
+        private final int[] ids = new int[GROUP_ROWS];
+        private final long[] cents = new long[GROUP_ROWS];
+        private final int[] descriptions = new int[GROUP_ROWS];
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private final VarintBuffer body = new VarintBuffer();
+        private int rows = 0;
+        private long position = HEADER_SIZE;
+        private boolean committed = false;
+
+        ColumnarSink() throws IOException {
+            channel = FileChannel.open(tmp,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void write(Transaction t) throws IOException {
+            days[rows] = (int) t.getDate().toEpochDay();
+            ids[rows] = t.getId();
+            cents[rows] = Math.round(t.getAmount() * 100);
+            descriptions[rows] = dictionary.computeIfAbsent(t.getDescription(), d -> {
+                entries.add(d);
+                return entries.size() - 1;
+            });
+            if (++rows == GROUP_ROWS) {
+                flushGroup();
+            }
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) return;
+            body.clear();
+
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            int previous = 0;
+            for (int i = 0; i < rows; i++) {
+                body.putSigned(days[i] - previous);
+                previous = days[i];
+                minDay = Math.min(minDay, days[i]);
+                maxDay = Math.max(maxDay, days[i]);
+            }
+            previous = 0;
+            for (int i = 0; i < rows; i++) {
+                body.putSigned(ids[i] - previous);
+                previous = ids[i];
+            }
+            for (int i = 0; i < rows; i++) {
+                body.putSigned(cents[i]);
+            }
+            for (String entry : entries) {
+                byte[] utf8 = entry.getBytes(StandardCharsets.UTF_8);
+                body.putUnsigned(utf8.length);
+                body.put(utf8);
+            }
+            for (int i = 0; i < rows; i++) {
+                body.putUnsigned(descriptions[i]);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(GROUP_HEADER_SIZE);
+            header.putInt(rows).putInt(minDay).putInt(maxDay).putInt(body.length()).putInt(entries.size());
+            header.flip();
+            position += writeFully(channel, header, position);
+            position += writeFully(channel, ByteBuffer.wrap(body.array(), 0, body.length()), position);
+
+            rows = 0;
+            dictionary.clear();
+            entries.clear();
+        }
+
+        @Override
+        public void commit() throws IOException {
+            flushGroup();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+            header.flip();
+            writeFully(channel, header, 0);
+
+            channel.force(true);
+            channel.close();
+            AtomicFileWriter.move(tmp, file.toPath());
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        int n = buf.remaining();
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+        return n;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) throw new IOException("Filen är trunkerad");
+            position += n;
+        }
+    }
+
+    // === Läsning ===
+
+    /**
+     * Läser en grupp i taget, hoppar över grupper utanför datumintervallet
+     * och lämnar ut gruppens rader från de avkodade kolumnerna.
+     */
+    private final class Cursor extends Spliterators.AbstractSpliterator<Transaction> {
+        private final FileChannel channel;
+        private final long fromDay;
+        private final long toDay;
+        private final ByteBuffer groupHeader = ByteBuffer.allocate(GROUP_HEADER_SIZE);
+        private final int[] days = new int[GROUP_ROWS];
+        private final int[] ids = new int[GROUP_ROWS];
+        private final long[] cents = new long[GROUP_ROWS];
+        private String[] entries = new String[0];
+        private final int[] descriptions = new int[GROUP_ROWS];
+        private byte[] body = new byte[0];
+        private long position = -1;
+        private int rows = 0;
+        private int next = 0;
+
+        Cursor(FileChannel channel, long fromDay, long toDay) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.channel = channel;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            try {
+                while (next == rows) {
+                    if (!readGroup()) return false;
+                }
+                int i = next++;
+                action.accept(new Transaction(
+                        ids[i], LocalDate.ofEpochDay(days[i]), cents[i] / 100.0, entries[descriptions[i]]));
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Läser och avkodar nästa grupp (eller hoppar över den). False = slut på filen.
+        private boolean readGroup() throws IOException {
+            if (position < 0) {
+                if (channel.size() == 0) return false;
+                readHeader();
+                position = HEADER_SIZE;
+            }
+            if (position >= channel.size()) return false;
+
+            groupHeader.clear();
+            readFully(channel, groupHeader, position);
+            groupHeader.flip();
+            int count = groupHeader.getInt();
+            int minDay = groupHeader.getInt();
+            int maxDay = groupHeader.getInt();
+            int length = groupHeader.getInt();
+            int entryCount = groupHeader.getInt();
+            if (count < 0 || count > GROUP_ROWS || length < 0) {
+                throw new IOException("Trasig grupp på position " + position + " i " + file);
+            }
+            long bodyStart = position + GROUP_HEADER_SIZE;
+            position = bodyStart + length;
+
+            rows = 0;
+            next = 0;
+            if (maxDay < fromDay || minDay > toDay) return true; // hela gruppen utanför intervallet
+
+            if (body.length < length) body = new byte[length];
+            readFully(channel, ByteBuffer.wrap(body, 0, length), bodyStart);
+            decode(count, entryCount, length);
+            rows = count;
+            return true;
+        }
+
+        private void decode(int count, int entryCount, int length) throws IOException {
+            VarintReader in = new VarintReader(body, length);
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += (int) in.getSigned();
+                days[i] = previous;
+            }
+            previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += (int) in.getSigned();
+                ids[i] = previous;
+            }
+            for (int i = 0; i < count; i++) {
+                cents[i] = in.getSigned();
+            }
+            entries = new String[entryCount];
+            for (int i = 0; i < entryCount; i++) {
+                entries[i] = in.getString((int) in.getUnsigned());
+            }
+            for (int i = 0; i < count; i++) {
+                int index = (int) in.getUnsigned();
+                if (index >= entryCount) throw new IOException("Ogiltigt beskrivningsnummer i " + file);
+                descriptions[i] = index;
+            }
+        }
+
+        private void readHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Inte en kolumnfil: " + file);
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Okänd version " + version + " i " + file);
+            }
+        }
+    }
+
+    // === Varints ===
+
+    /**
+     * Växande bytebuffert för varints (7 bitar per byte, högsta biten = fler bytes följer).
+     */
+    private static final class VarintBuffer {
+        private byte[] data = new byte[64 * 1024];
+        private int length = 0;
+
+        void putSigned(long v) {
+            putUnsigned((v << 1) ^ (v >> 63)); // zigzag: små negativa tal blir små positiva
+        }
+
+        void putUnsigned(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                data[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[length++] = (byte) v;
+        }
+
+        void put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+            }
+        }
+
+        void clear() {
+            length = 0;
+        }
+
+        byte[] array() {
+            return data;
+        }
+
+        int length() {
+            return length;
+        }
+    }
+
+    private static final class VarintReader {
+        private final byte[] data;
+        private final int limit;
+        private int pos = 0;
+
+        VarintReader(byte[] data, int limit) {
+            this.data = data;
+            this.limit = limit;
+        }
+
+        long getSigned() throws IOException {
+            long v = getUnsigned();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long getUnsigned() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= limit) throw new IOException("Gruppen tar slut mitt i ett tal");
+                byte b = data[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IOException("För långt tal i gruppen");
+        }
+
+        String getString(int length) throws IOException {
+            if (length < 0 || pos + length > limit) throw new IOException("Text utanför gruppen");
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Blockkomprimerat DataStore-format för arkiverade transaktioner (filändelse .pfz).
+ *
+ * Raderna är samma CSV-rader som i TransactionCsvDataStore, men grupperas i block
+ * om ungefär BLOCK_BYTES okomprimerade bytes som komprimeras var för sig med Deflater.
+ * Varje block kan därför packas upp utan de andra, vilket gör att:
+ * <ul>
+ *   <li>readAll() packar upp blocken parallellt (en tråd per kärna)</li>
+ *   <li>findByDateRange() hoppar över block vars datum ligger utanför intervallet</li>
+ * </ul>
+ *
+ * Layout:
+ * <pre>
+ *   header (16 bytes): magic "PFTZ", version (short), reserverat (short), katalogens offset (long)
+ *   block: Deflate-data, direkt efter varandra
+ *   katalog: antal block (int), sedan per block: offset (long), komprimerad längd (int),
+ *            okomprimerad längd (int), antal rader (int), minsta och största epochDay (int, int)
+ * </pre>
+ * Katalogen skrivs sist så att filen kan skrivas strömmande utan att antalet rader är känt.
+ */
+public class CompressedTransactionStore implements DataStore<Transaction>, DateRangeSource {
+
+    public static final String EXTENSION = ".pfz";
+
+    static final int MAGIC = 0x5046545A; // "PFTZ"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 28;
+
+    // Okomprimerad storlek per block: stort nog för bra komprimering, litet nog att hoppa över
+    static final int BLOCK_BYTES = 256 * 1024;
+
+    private final File file;
+    private final int level;
+
+    public CompressedTransactionStore(File file) {
+        this(file, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level Deflater-nivå (1 = snabbast, 9 = minst fil)
+     */
+    public CompressedTransactionStore(File file, int level) {
+        this(file, level, true);
+    }
+
+    // create = false: filen skapas först när en sink committas (t.ex. checkpointfilen)
+    CompressedTransactionStore(File file, int level, boolean create) {
+        this.file = file;
+        this.level = level;
+        if (create) ensureFile();
+    }
+
+    // Ser till att mapp och fil finns (en tom fil betyder "inga poster")
+    private void ensureFile() {
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            if (!file.exists()) {
+                file.createNewFile();
+            }
+        } catch (IOException e) {
+            System.out.println("Kunde inte skapa fil: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Läser alla poster. Blocken packas upp och parsas parallellt och slås ihop i filordning.
+     */
+    @Override
+    public List<Transaction> readAll() {
+        return readBlocks(null, null);
+    }
+
+    /**
+     * Läser bara de block vars datumintervall överlappar [from, to], parallellt.
+     */
+    @Override
+    public List<Transaction> findByDateRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) return new ArrayList<>();
+        List<Transaction> result = readBlocks(from, to);
+        result.removeIf(t -> t.getDate().isBefore(from) || t.getDate().isAfter(to));
+        return result;
+    }
+
+    private List<Transaction> readBlocks(LocalDate from, LocalDate to) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Block> blocks = new ArrayList<>();
+            for (Block b : readDirectory(channel)) {
+                if (from == null || (b.maxDay >= from.toEpochDay() && b.minDay <= to.toEpochDay())) {
+                    blocks.add(b);
+                }
+            }
+            return decodeParallel(channel, blocks, Runtime.getRuntime().availableProcessors());
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Strömmar posterna ett block i taget (bara ett uppackat block i minnet). Strömmen ska stängas.
+     */
+    @Override
+    public Stream<Transaction> stream() {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            Iterator<Block> blocks;
+            try {
+                blocks = readDirectory(channel).iterator();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return StreamSupport.stream(new Cursor(channel, blocks), false)
+                    .onClose(() -> {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            System.out.println("Kunde inte stänga fil: " + e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Skriver över filen (atomiskt via temporär fil).
+     */
+    @Override
+    public void writeAll(List<Transaction> items) {
+        try (DataSink<Transaction> sink = openSink()) {
+            for (Transaction t : items) {
+                sink.write(t);
+            }
+            sink.commit();
+        } catch (IOException e) {
+            System.out.println("Fel vid skrivning till fil: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Öppnar en sink som komprimerar ett block i taget till en temporär fil.
+     */
+    @Override
+    public DataSink<Transaction> openSink() throws IOException {
+        return new CompressedSink();
+    }
+
+    // === Skrivning ===
+
+    private class CompressedSink implements DataSink<Transaction> {
+        private final Path tmp = AtomicFileWriter.tempFile(file.toPath());
+        private final FileChannel channel;
+        private final TransactionLineConverter converter = new TransactionLineConverter();
+        private final Deflater deflater = new Deflater(level);
+        private final List<Block> blocks = new ArrayList<>();
+        private byte[] raw = new byte[BLOCK_BYTES + 4096];
+        private byte[] compressed = new byte[BLOCK_BYTES];
+        private int rawLength = 0;
+        private int rows = 0;
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+        private long position = HEADER_SIZE;
+        private boolean committed = false;
+
+        CompressedSink() throws IOException {
+            channel = FileChannel.open(tmp,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void write(Transaction t) throws IOException {
+            byte[] line = (converter.toLine(t) + "\n").getBytes(StandardCharsets.UTF_8);
+            if (rawLength + line.length > raw.length) {
+                raw = Arrays.copyOf(raw, Math.max(raw.length * 2, rawLength + line.length));
+            }
+            System.arraycopy(line, 0, raw, rawLength, line.length);
+            rawLength += line.length;
+            rows++;
+
+            int day = (int) t.getDate().toEpochDay();
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+
+            if (rawLength >= BLOCK_BYTES) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (rows == 0) return;
+
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+
+            writeFully(channel, ByteBuffer.wrap(compressed, 0, length), position);
+            blocks.add(new Block(position, length, rawLength, rows, minDay, maxDay));
+            position += length;
+
+            rawLength = 0;
+            rows = 0;
+            minDay = Integer.MAX_VALUE;
+            maxDay = Integer.MIN_VALUE;
+        }
+
+        @Override
+        public void commit() throws IOException {
+            flushBlock();
+
+            ByteBuffer directory = ByteBuffer.allocate(4 + blocks.size() * ENTRY_SIZE);
+            directory.putInt(blocks.size());
+            for (Block b : blocks) {
+                directory.putLong(b.offset);
+                directory.putInt(b.compressedLength);
+                directory.putInt(b.rawLength);
+                directory.putInt(b.rows);
+                directory.putInt(b.minDay);
+                directory.putInt(b.maxDay);
+            }
+            directory.flip();
+            writeFully(channel, directory, position);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.putShort((short) 0);
+            header.putLong(position);
+            header.flip();
+            writeFully(channel, header, 0);
+
+            channel.force(true);
+            channel.close();
+            AtomicFileWriter.move(tmp, file.toPath());
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) throw new IOException("Filen är trunkerad");
+            position += n;
+        }
+    }
+
+    // === Läsning ===
+
+    /**
+     * Ett block i katalogen.
+     */
+    private static final class Block {
+        final long offset;
+        final int compressedLength;
+        final int rawLength;
+        final int rows;
+        final int minDay;
+        final int maxDay;
+
+        Block(long offset, int compressedLength, int rawLength, int rows, int minDay, int maxDay) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.rows = rows;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+        }
+    }
+
+    private List<Block> readDirectory(FileChannel channel) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        if (channel.size() == 0) return blocks;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Inte en komprimerad transaktionsfil: " + file);
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("Okänd version " + version + " i " + file);
+        }
+        header.getShort();
+        long directoryOffset = header.getLong();
+
+        ByteBuffer countBuf = ByteBuffer.allocate(4);
+        readFully(channel, countBuf, directoryOffset);
+        int count = countBuf.flip().getInt();
+        if (count < 0 || directoryOffset + 4 + (long) count * ENTRY_SIZE > channel.size()) {
+            throw new IOException("Trasig blockkatalog i " + file);
+        }
+
+        ByteBuffer entries = ByteBuffer.allocate(count * ENTRY_SIZE);
+        readFully(channel, entries, directoryOffset + 4);
+        entries.flip();
+        for (int i = 0; i < count; i++) {
+            blocks.add(new Block(entries.getLong(), entries.getInt(), entries.getInt(),
+                    entries.getInt(), entries.getInt(), entries.getInt()));
+        }
+        return blocks;
+    }
+
+    // Läser, packar upp och parsar ett block
+    private List<Transaction> decode(FileChannel channel, Block block, Inflater inflater) throws IOException {
+        ByteBuffer packed = ByteBuffer.allocate(block.compressedLength);
+        readFully(channel, packed, block.offset);
+
+        byte[] raw = new byte[block.rawLength];
+        inflater.reset();
+        inflater.setInput(packed.array(), 0, block.compressedLength);
+        try {
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                int got = inflater.inflate(raw, n, raw.length - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += got;
+            }
+            if (n != raw.length) {
+                throw new IOException("Block vid " + block.offset + " gav " + n + " bytes, väntade " + raw.length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Trasigt block vid " + block.offset + ": " + e.getMessage(), e);
+        }
+
+        List<Transaction> items = new ArrayList<>(block.rows);
+        new MappedTransactionParser().parse(ByteBuffer.wrap(raw), 0, raw.length, true,
+                new MappedTransactionParser.LineHandler() {
+                    @Override
+                    public void onTransaction(Transaction tx) {
+                        items.add(tx);
+                    }
+
+                    @Override
+                    public void onBadLine(long lineNumber, String line) {
+                        System.out.println("Kunde inte läsa rad i block vid " + block.offset + ": " + line);
+                    }
+                });
+        return items;
+    }
+
+    // Packar upp blocken på flera trådar och slår ihop dem i ordning
+    private List<Transaction> decodeParallel(FileChannel channel, List<Block> blocks, int workers) throws IOException {
+        int total = 0;
+        for (Block b : blocks) total += b.rows;
+        List<Transaction> result = new ArrayList<>(total);
+
+        if (workers <= 1 || blocks.size() < 2) {
+            Inflater inflater = new Inflater();
+            try {
+                for (Block b : blocks) result.addAll(decode(channel, b, inflater));
+            } finally {
+                inflater.end();
+            }
+            return result;
+        }
+
+        int threads = Math.min(workers, blocks.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "pfz-reader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<List<Transaction>>> futures = new ArrayList<>(blocks.size());
+            for (Block b : blocks) {
+                futures.add(pool.submit(() -> {
+                    Inflater inflater = new Inflater();
+                    try {
+                        return decode(channel, b, inflater);
+                    } finally {
+                        inflater.end();
+                    }
+                }));
+            }
+            for (Future<List<Transaction>> f : futures) {
+                result.addAll(f.get());
+            }
+            return result;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Inläsningen avbröts", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Kunde inte läsa block: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Packar upp ett block i taget och lämnar ut dess poster.
+     */
+    private final class Cursor extends Spliterators.AbstractSpliterator<Transaction> {
+        private final FileChannel channel;
+        private final Iterator<Block> blocks;
+        private final Inflater inflater = new Inflater();
+        private Iterator<Transaction> current = Collections.emptyIterator();
+
+        Cursor(FileChannel channel, Iterator<Block> blocks) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.channel = channel;
+            this.blocks = blocks;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            try {
+                while (!current.hasNext()) {
+                    if (!blocks.hasNext()) {
+                        inflater.end();
+                        return false;
+                    }
+                    current = decode(channel, blocks.next(), inflater).iterator();
+                }
+                action.accept(current.next());
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package repository.storage;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Enkel implementation av DataStore som jobbar med CSV-liknande textfiler.
@@ -21,11 +29,21 @@ public class CsvDataStore<T> implements DataStore<T> {
      * @param converter omvandlar mellan objekt och text
      */
     public CsvDataStore(File file, LineConverter<T> converter) {
+        this(file, converter, true);
+    }
+
+    // create = false: filen skapas först när en sink committas (t.ex. checkpointfilen)
+    protected CsvDataStore(File file, LineConverter<T> converter, boolean create) {
         this.file = file;
         this.converter = converter;
 
         // Se till att filen finns, slipper FileNotFoundException
-        ensureFile();
+        if (create) ensureFile();
+    }
+
+    // Filen som lagret jobbar mot (används av subklasser med egen läsning)
+    protected File getFile() {
+        return file;
     }
 
     // Ser till att filer/mappstruktur finns
@@ -54,43 +72,109 @@ public class CsvDataStore<T> implements DataStore<T> {
      */
     @Override
     public List<T> readAll() {
-        List<T> items = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isBlank()) continue;
-
-                try {
-                    T item = converter.fromLine(line);
-                    items.add(item);
-                } catch (Exception e) {
-                    System.out.println("Kunde inte läsa rad: " + line);
-                }
-            }
+        try (Stream<T> items = stream()) {
+            return items.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
 
+    /**
+     * Läser filen rad för rad som en ström. Bara en rad i taget hålls i minnet.
+     * Felaktiga rader skrivs ut med radnummer och hoppas över.
+     */
+    @Override
+    public Stream<T> stream() {
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
         } catch (IOException e) {
             System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return Stream.empty();
         }
 
-        return items;
+        long[] lineNumber = {0};
+        return reader.lines()
+                .map(line -> {
+                    lineNumber[0]++;
+                    if (line.isBlank()) return null;
+                    try {
+                        return converter.fromLine(line);
+                    } catch (Exception e) {
+                        System.out.println("Kunde inte läsa rad " + lineNumber[0] + ": " + line);
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        System.out.println("Kunde inte stänga fil: " + e.getMessage());
+                    }
+                });
     }
 
-
+    /**
+     * Skriver över filen med listan. Skrivningen går till en temporär fil som sedan
+     * byter plats med den riktiga via en atomisk rename, så en krasch mitt i
+     * skrivningen lämnar den gamla filen orörd.
+     */
     @Override
     public void writeAll(List<T> items) {
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8))) {
-
+        try (DataSink<T> sink = openSink()) {
             for (T item : items) {
-                writer.write(converter.toLine(item));
-                writer.newLine();
+                sink.write(item);
             }
+            sink.commit();
 
         } catch (IOException e) {
             System.out.println("Fel vid skrivning till fil: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Öppnar en sink som skriver rader till en temporär fil. Vid commit byter den
+     * plats med den riktiga filen, så läsare ser antingen allt eller inget.
+     */
+    @Override
+    public DataSink<T> openSink() throws IOException {
+        return new CsvSink();
+    }
+
+    private class CsvSink implements DataSink<T> {
+        private final Path tmp = AtomicFileWriter.tempFile(file.toPath());
+        private final FileChannel channel;
+        private final BufferedWriter writer;
+        private boolean committed = false;
+
+        CsvSink() throws IOException {
+            channel = FileChannel.open(tmp,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            writer = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void write(T item) throws IOException {
+            writer.write(converter.toLine(item));
+            writer.newLine();
+        }
+
+        @Override
+        public void commit() throws IOException {
+            writer.flush();
+            channel.force(true);
+            channel.close();
+            AtomicFileWriter.move(tmp, file.toPath());
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package repository.storage;
+
+import java.io.IOException;
+
+/**
+ * Tar emot poster en i taget och skriver dem till ett lager.
+ * Ingenting syns i lagret förrän commit() anropas; stängs sinken utan commit
+ * kastas allt som skrivits. Används med try-with-resources:
+ * <pre>
+ *   try (DataSink&lt;T&gt; sink = store.openSink()) {
+ *       sink.write(item);
+ *       sink.commit();
+ *   }
+ * </pre>
+ */
+public interface DataSink<T> extends AutoCloseable {
+
+    /**
+     * Skriver en post.
+     */
+    void write(T item) throws IOException;
+
+    /**
+     * Gör allt som skrivits synligt i lagret (ersätter tidigare innehåll).
+     */
+    void commit() throws IOException;
+
+    /**
+     * Stänger sinken. Har commit() inte anropats kastas det som skrivits.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -1,6 +1,9 @@
 package repository.storage;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * En enkel "dataström" för att läsa/skriva en lista av objekt T.
@@ -20,4 +23,37 @@ public interface DataStore<T> {
      * @param items alla objekt som ska sparas
      */
     void writeAll(List<T> items);
-}
\ No newline at end of file
+
+    /**
+     * Läser posterna som en ström, en i taget, utan att hela lagret behöver få plats i minnet.
+     * Strömmen håller en öppen fil och ska stängas (try-with-resources).
+     * Standardimplementationen läser allt via readAll().
+     */
+    default Stream<T> stream() {
+        return readAll().stream();
+    }
+
+    /**
+     * Öppnar en sink som ersätter hela lagret med de poster som skrivs till den.
+     * Standardimplementationen samlar posterna i en lista och anropar writeAll vid commit.
+     */
+    default DataSink<T> openSink() throws IOException {
+        List<T> buffer = new ArrayList<>();
+        return new DataSink<>() {
+            @Override
+            public void write(T item) {
+                buffer.add(item);
+            }
+
+            @Override
+            public void commit() throws IOException {
+                writeAll(buffer);
+            }
+
+            @Override
+            public void close() {
+                buffer.clear();
+            }
+        };
+    }
+}
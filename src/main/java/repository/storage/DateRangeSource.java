@@ -0,0 +1,18 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Ett lager som kan svara på datumfrågor utan att läsa hela filen
+ * (t.ex. genom att hoppa över block som ligger utanför intervallet).
+ */
+public interface DateRangeSource {
+
+    /**
+     * Transaktioner mellan två datum (inklusive).
+     */
+    List<Transaction> findByDateRange(LocalDate from, LocalDate to);
+}
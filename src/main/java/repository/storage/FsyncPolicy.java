@@ -0,0 +1,16 @@
+package repository.storage;
+
+/**
+ * När WriteAheadLog ska tvinga ut skrivningar till disk (fsync).
+ */
+public enum FsyncPolicy {
+
+    /** fsync efter varje enskild post – säkrast men långsammast. */
+    ALWAYS,
+
+    /** Group commit: poster som väntar samtidigt delar på en fsync. */
+    GROUP,
+
+    /** Ingen fsync – OS:et skriver ut när det vill (snabbast, kan tappa poster vid strömavbrott). */
+    NEVER
+}
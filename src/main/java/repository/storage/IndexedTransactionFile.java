@@ -0,0 +1,383 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * En transaktionsfil (CSV) som bara håller ett radindex i minnet: byte-offset för
+ * varje rad med data. Själva raderna parsas först när någon frågar efter dem.
+ *
+ * Indexet sparas bredvid filen (datafil + ".idx") tillsammans med filens storlek och
+ * en CRC av filens sista bytes. Vid nästa start laddas det sparade indexet direkt, och
+ * om filen bara har vuxit (nya rader i slutet) indexeras enbart den nya svansen.
+ * Stämmer inget av det byggs indexet om genom att leta radbrytningar i filen.
+ *
+ * Rader som är tomma, saknar två ';' eller har ogiltigt datumformat tas inte med i
+ * indexet. Övriga fel (t.ex. ogiltigt belopp) upptäcks först när raden parsas.
+ */
+public class IndexedTransactionFile implements AutoCloseable {
+
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x50464958; // "PFIX"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int TAIL_CRC_BYTES = 4096;
+
+    // Filen mappas i regioner; varje region mappas med lite överlapp så att en
+    // rad som börjar i regionen alltid ligger helt inom samma mappning
+    private static final long REGION = 1L << 30;
+    private static final long OVERLAP = 1L << 20;
+
+    private final File file;
+    private final File indexFile;
+    private final FileChannel channel;
+    private final MappedTransactionParser parser = new MappedTransactionParser();
+
+    private long[] offsets = new long[1024];
+    private int size = 0;
+    private long indexedSize = 0;    // så här många bytes av filen täcker indexet
+
+    private MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private long mappedSize = 0;
+
+    private IndexedTransactionFile(File file) throws IOException {
+        this.file = file;
+        this.indexFile = new File(file.getPath() + INDEX_SUFFIX);
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Öppnar filen och laddar (eller bygger) indexet.
+     */
+    public static IndexedTransactionFile open(File file) throws IOException {
+        IndexedTransactionFile f = new IndexedTransactionFile(file);
+        boolean loaded = f.loadIndex();
+        long before = f.indexedSize;
+        f.scan(f.indexedSize, f.channel.size());
+        if (!loaded || f.indexedSize != before) {
+            f.saveIndex();
+        }
+        return f;
+    }
+
+    /**
+     * Antal rader i indexet (utan att någon rad behöver parsas).
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Parsar rad nr i. Returnerar null om raden inte gick att tolka.
+     */
+    public synchronized Transaction get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return parseAt(offsets[i]);
+    }
+
+    /**
+     * Parsar raderna [offset, offset + limit).
+     */
+    public synchronized List<Transaction> page(int offset, int limit) {
+        int end = (int) Math.min(size, (long) Math.max(offset, 0) + limit);
+        List<Transaction> result = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = Math.max(offset, 0); i < end; i++) {
+            Transaction t = parseAt(offsets[i]);
+            if (t != null) result.add(t);
+        }
+        return result;
+    }
+
+    /**
+     * Hittar rader i ett datumintervall. Bara datumet (10 bytes) läses för varje rad;
+     * hela raden parsas bara när datumet ligger i intervallet.
+     */
+    public synchronized List<Transaction> findByDateRange(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        List<Transaction> result = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            long day = epochDayAt(offsets[i]);
+            if (day == Long.MIN_VALUE) {
+                // Datumet gick inte att läsa snabbt → parsa hela raden
+                Transaction t = parseAt(offsets[i]);
+                if (t != null && !t.getDate().isBefore(from) && !t.getDate().isAfter(to)) result.add(t);
+            } else if (day >= fromDay && day <= toDay) {
+                Transaction t = parseAt(offsets[i]);
+                if (t != null) result.add(t);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lägger till en rad i slutet av filen och i indexet (som också uppdateras på disk).
+     */
+    public synchronized void append(Transaction tx) throws IOException {
+        long end = channel.size();
+        byte[] line = (tx.toFileFormat() + "\n").getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buf;
+        if (end > 0 && lastByte(end) != '\n') {
+            // Filen slutade utan radbrytning – avsluta den raden först
+            buf = ByteBuffer.allocate(line.length + 1);
+            buf.put((byte) '\n');
+            end++;
+        } else {
+            buf = ByteBuffer.allocate(line.length);
+        }
+        buf.put(line).flip();
+
+        long pos = channel.size();
+        while (buf.hasRemaining()) {
+            pos += channel.write(buf, pos);
+        }
+        channel.force(false);
+
+        add(end);
+        indexedSize = pos;
+        appendToIndexFile();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    // === Index ===
+
+    // Letar efter radbrytningar i filen [from, to) och lägger till rader med data
+    private void scan(long from, long to) throws IOException {
+        if (from >= to) return;
+        ensureMapped(to);
+
+        // En ofullständig sista rad från förra skanningen börjar på from – den läses om nu
+        if (size > 0 && offsets[size - 1] >= from) size--;
+
+        long lineStart = from == 0 ? bomLength() : from;
+        long pos = lineStart;
+        while (pos < to) {
+            int r = (int) (pos / REGION);
+            MappedByteBuffer buf = regions[r];
+            int local = (int) (pos - r * REGION);
+            int limit = (int) Math.min(REGION, to - r * REGION);
+
+            int nl = MappedTransactionParser.indexOf(buf, local, limit, (byte) '\n');
+            if (nl < 0) {
+                pos = r * REGION + limit;
+                continue;
+            }
+            long lineEnd = r * REGION + nl;
+            if (looksLikeRecord(lineStart, lineEnd)) add(lineStart);
+            lineStart = lineEnd + 1;
+            pos = lineStart;
+        }
+        // Sista raden utan radbrytning: tas med, men indexet täcker bara fram till dess början
+        // så att raden skannas om när den skrivits klart
+        if (lineStart < to && looksLikeRecord(lineStart, to)) add(lineStart);
+        indexedSize = lineStart < to ? lineStart : to;
+    }
+
+    private void add(long offset) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size++] = offset;
+    }
+
+    // Rad som börjar med ett datum som går att läsa snabbt och har två ';'
+    private boolean looksLikeRecord(long start, long end) {
+        if (epochDayAt(start) == Long.MIN_VALUE) return false;
+        int separators = 0;
+        for (long p = start; p < end && separators < 2; p++) {
+            if (byteAt(p) == ';') separators++;
+        }
+        return separators == 2;
+    }
+
+    // Läser sparat index om det matchar filen. Returnerar true om det kunde användas.
+    private boolean loadIndex() throws IOException {
+        if (!indexFile.exists()) return false;
+
+        try (FileChannel idx = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            if (idx.size() < HEADER_SIZE) return false;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            idx.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) return false;
+            header.getShort();
+            long dataSize = header.getLong();
+            long tailCrc = header.getLong();
+            int count = header.getInt();
+
+            if (dataSize > channel.size() || tailCrc(dataSize) != tailCrc) return false;
+            if (idx.size() < HEADER_SIZE + (long) count * 8) return false;
+
+            ByteBuffer body = idx.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) count * 8);
+            offsets = new long[Math.max(1024, count + count / 4)];
+            body.asLongBuffer().get(offsets, 0, count);
+            size = count;
+            indexedSize = dataSize;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Kunde inte läsa index, bygger om: " + e.getMessage());
+            size = 0;
+            indexedSize = 0;
+            return false;
+        }
+    }
+
+    private void saveIndex() {
+        try {
+            AtomicFileWriter.write(indexFile, idx -> {
+                ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + size * 8);
+                writeHeader(buf);
+                buf.position(HEADER_SIZE);
+                buf.asLongBuffer().put(offsets, 0, size);
+                buf.position(0);
+                while (buf.hasRemaining()) idx.write(buf);
+            });
+        } catch (IOException e) {
+            System.out.println("Kunde inte spara index: " + e.getMessage());
+        }
+    }
+
+    // Lägger till senaste offseten sist i indexfilen och skriver om headern
+    private void appendToIndexFile() {
+        try (FileChannel idx = FileChannel.open(indexFile.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer entry = ByteBuffer.allocate(8).putLong(0, offsets[size - 1]);
+            idx.write(entry, HEADER_SIZE + (long) (size - 1) * 8);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            writeHeader(header);
+            header.position(0);
+            idx.write(header, 0);
+        } catch (IOException e) {
+            // Indexfilen är bara en cache – stämmer den inte byggs den om vid nästa start
+            try {
+                Files.deleteIfExists(indexFile.toPath());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void writeHeader(ByteBuffer buf) throws IOException {
+        buf.putInt(0, MAGIC);
+        buf.putShort(4, VERSION);
+        buf.putShort(6, (short) 0);
+        buf.putLong(8, indexedSize);
+        buf.putLong(16, tailCrc(indexedSize));
+        buf.putInt(24, size);
+    }
+
+    // CRC av de sista bytesen före end – räcker för att se om filen skrivits om
+    private long tailCrc(long end) throws IOException {
+        int len = (int) Math.min(TAIL_CRC_BYTES, end);
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        long pos = end - len;
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) break;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        return crc.getValue();
+    }
+
+    // === Läsning ===
+
+    private Transaction parseAt(long offset) {
+        try {
+            ensureMapped(offset + 1);
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return null;
+        }
+        int r = (int) (offset / REGION);
+        MappedByteBuffer buf = regions[r];
+        int local = (int) (offset - r * REGION);
+
+        int nl = MappedTransactionParser.indexOf(buf, local, buf.limit(), (byte) '\n');
+        int end = nl < 0 ? buf.limit() : nl;
+        Transaction tx = parser.parseLine(buf, local, end);
+        if (tx == null) {
+            System.out.println("Kunde inte läsa rad vid position " + offset + " i " + file.getName());
+        }
+        return tx;
+    }
+
+    // yyyy-MM-dd som epochDay, eller Long.MIN_VALUE om det inte går att läsa snabbt
+    private long epochDayAt(long offset) {
+        if (offset + 10 > mappedSize) return Long.MIN_VALUE;
+        if (byteAt(offset + 4) != '-' || byteAt(offset + 7) != '-') return Long.MIN_VALUE;
+        int y = digits(offset, 4);
+        int m = digits(offset + 5, 2);
+        int d = digits(offset + 8, 2);
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > 31) return Long.MIN_VALUE;
+        try {
+            return LocalDate.of(y, m, d).toEpochDay();
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private int digits(long offset, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int c = byteAt(offset + i) - '0';
+            if (c < 0 || c > 9) return -1;
+            value = value * 10 + c;
+        }
+        return value;
+    }
+
+    private byte byteAt(long pos) {
+        int r = (int) (pos / REGION);
+        return regions[r].get((int) (pos - r * REGION));
+    }
+
+    private byte lastByte(long end) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        channel.read(one, end - 1);
+        return one.get(0);
+    }
+
+    private int bomLength() {
+        if (mappedSize >= 3 && byteAt(0) == (byte) 0xEF && byteAt(1) == (byte) 0xBB && byteAt(2) == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    // Mappar om filen om den vuxit förbi det som redan är mappat
+    private void ensureMapped(long end) throws IOException {
+        if (end <= mappedSize) return;
+        long fileSize = channel.size();
+
+        int count = (int) ((fileSize + REGION - 1) / REGION);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        for (int r = 0; r < count; r++) {
+            long start = r * REGION;
+            long len = Math.min(REGION + OVERLAP, fileSize - start);
+            mapped[r] = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        }
+        regions = mapped;
+        mappedSize = fileSize;
+    }
+}
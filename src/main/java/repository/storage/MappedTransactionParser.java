@@ -0,0 +1,383 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Snabb parser för transaktionsfiler i formatet "yyyy-MM-dd;belopp;beskrivning".
+ * Jag minnesmappar filen och letar efter ';' och radbrytningar direkt bland bytes,
+ * i stället för BufferedReader + String.split. Datum och belopp tolkas för hand,
+ * och det enda som blir en String per rad är beskrivningen.
+ *
+ * Rader som inte passar den snabba vägen (t.ex. "1.0E7" eller konstiga datum)
+ * faller tillbaka på LocalDate.parse/Double.parseDouble, så resultatet blir
+ * detsamma som med TransactionLineConverter.
+ *
+ * En instans håller lite återanvänt tillstånd (buffert, radnummer, datumcache)
+ * och är därför inte trådsäker – skapa en per tråd.
+ */
+public final class MappedTransactionParser {
+
+    // Största region jag mappar åt gången (en MappedByteBuffer kan vara max 2 GB)
+    static final long MAX_REGION = 1L << 30;
+
+    // Exakta tiopotenser som double (10^0..10^22 går att representera exakt)
+    private static final double[] POW10 = new double[23];
+
+    static {
+        double p = 1.0;
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = p;
+            p *= 10.0;
+        }
+    }
+
+    /**
+     * Tar emot resultatet av parsningen, rad för rad.
+     */
+    public interface LineHandler {
+        void onTransaction(Transaction tx);
+
+        void onBadLine(long lineNumber, String line);
+    }
+
+    // Återanvänd buffert för beskrivningar och fallback-fält
+    private byte[] scratch = new byte[256];
+
+    // Radnummer (1-baserat) för nästa rad som parsas
+    private long lineNumber = 1;
+
+    // Senaste datumet – i en historik kommer ofta många rader på samma dag i följd
+    private int lastDateKey = -1;
+    private LocalDate lastDate;
+
+    public MappedTransactionParser() {
+    }
+
+    /**
+     * Skapar en parser som börjar räkna rader från ett visst radnummer
+     * (används när en fil delas upp i bitar).
+     */
+    public MappedTransactionParser(long firstLineNumber) {
+        this.lineNumber = firstLineNumber;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Läser hela filen och returnerar alla transaktioner som gick att tolka.
+     * Felaktiga rader skrivs ut (med radnummer) och hoppas över, precis som i CsvDataStore.
+     */
+    public static List<Transaction> readAll(File file) {
+        List<Transaction> items = new ArrayList<>();
+        try {
+            new MappedTransactionParser().parseFile(file, new LineHandler() {
+                @Override
+                public void onTransaction(Transaction tx) {
+                    items.add(tx);
+                }
+
+                @Override
+                public void onBadLine(long lineNumber, String line) {
+                    System.out.println("Kunde inte läsa rad " + lineNumber + ": " + line);
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+        }
+        return items;
+    }
+
+    /**
+     * Läser filen som en ström: raderna parsas först när strömmen konsumeras,
+     * så hela filen behöver aldrig ligga i minnet. Strömmen ska stängas.
+     */
+    public static Stream<Transaction> stream(File file) {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return StreamSupport.stream(new Cursor(channel), false)
+                    .onClose(() -> {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            System.out.println("Kunde inte stänga fil: " + e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Mappar filen region för region och skickar varje rad till handlern.
+     */
+    public void parseFile(File file, LineHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            parseRange(channel, 0, channel.size(), handler);
+        }
+    }
+
+    /**
+     * Parsar bytes [start, end) i en kanal. start måste ligga i början av en rad.
+     */
+    public void parseRange(FileChannel channel, long start, long end, LineHandler handler) throws IOException {
+        long pos = start;
+        while (pos < end) {
+            long len = Math.min(MAX_REGION, end - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            boolean last = pos + len == end;
+
+            int from = 0;
+            if (pos == 0) {
+                from = skipBom(buf);
+            }
+
+            int consumed = parse(buf, from, (int) len, last, handler);
+            if (consumed == 0 && !last) {
+                throw new IOException("Rad längre än " + MAX_REGION + " bytes vid position " + pos);
+            }
+            pos += consumed;
+        }
+    }
+
+    /**
+     * Parsar alla hela rader i buf[from, to). Om atEnd är false lämnas en
+     * ofullständig sista rad kvar. Returnerar position efter sista parsade raden.
+     */
+    public int parse(ByteBuffer buf, int from, int to, boolean atEnd, LineHandler handler) {
+        int p = from;
+        while (p < to) {
+            int nl = indexOf(buf, p, to, (byte) '\n');
+            if (nl < 0) {
+                if (!atEnd) break;
+                nl = to;
+            }
+            parseLine(buf, p, nl, handler);
+            p = nl + 1;
+        }
+        return Math.min(p, to);
+    }
+
+    /**
+     * Tolkar en rad buf[start, end) (utan '\n') till en Transaction.
+     * Returnerar null för tomma och felaktiga rader.
+     */
+    public Transaction parseLine(ByteBuffer buf, int start, int end) {
+        int e = end;
+        if (e > start && buf.get(e - 1) == '\r') e--;
+        if (isBlank(buf, start, e)) return null;
+
+        int sep1 = indexOf(buf, start, e, (byte) ';');
+        int sep2 = sep1 < 0 ? -1 : indexOf(buf, sep1 + 1, e, (byte) ';');
+        if (sep2 < 0) return null;
+
+        try {
+            LocalDate date = parseDate(buf, start, sep1);
+            double amount = parseAmount(buf, sep1 + 1, sep2);
+            String description = decode(buf, sep2 + 1, e);
+            return new Transaction(date, amount, description);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    // Parsar en rad och räknar upp radnumret, skickar resultatet till handlern
+    private void parseLine(ByteBuffer buf, int start, int end, LineHandler handler) {
+        long current = lineNumber++;
+        Transaction tx = parseLine(buf, start, end);
+        if (tx != null) {
+            handler.onTransaction(tx);
+        } else if (!isBlank(buf, start, end)) {
+            handler.onBadLine(current, decode(buf, start, end).stripTrailing());
+        }
+    }
+
+    // === Fält ===
+
+    // yyyy-MM-dd direkt från bytes, annars LocalDate.parse
+    private LocalDate parseDate(ByteBuffer buf, int start, int end) {
+        if (end - start == 10 && buf.get(start + 4) == '-' && buf.get(start + 7) == '-') {
+            int y = digits(buf, start, start + 4);
+            int m = digits(buf, start + 5, start + 7);
+            int d = digits(buf, start + 8, start + 10);
+            if (y >= 0 && m >= 0 && d >= 0) {
+                int key = y * 10000 + m * 100 + d;
+                if (key != lastDateKey) {
+                    lastDate = LocalDate.of(y, m, d);
+                    lastDateKey = key;
+                }
+                return lastDate;
+            }
+        }
+        return LocalDate.parse(decode(buf, start, end));
+    }
+
+    // [-+]?siffror(.siffror)? med högst 15 siffror tolkas för hand, resten via Double.parseDouble
+    private double parseAmount(ByteBuffer buf, int start, int end) {
+        int p = start;
+        boolean negative = false;
+        if (p < end && (buf.get(p) == '-' || buf.get(p) == '+')) {
+            negative = buf.get(p) == '-';
+            p++;
+        }
+
+        long mantissa = 0;
+        int digitCount = 0;
+        int scale = -1;
+        for (; p < end; p++) {
+            byte b = buf.get(p);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digitCount++;
+                if (scale >= 0) scale++;
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (p == end && digitCount > 0 && digitCount <= 15) {
+            // mantissan < 2^53 och tiopotensen är exakt → divisionen avrundas korrekt,
+            // alltså exakt samma värde som Double.parseDouble ger
+            double value = scale > 0 ? mantissa / POW10[scale] : mantissa;
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(decode(buf, start, end));
+    }
+
+    // === Hjälpmetoder ===
+
+    private static int skipBom(ByteBuffer buf) {
+        if (buf.limit() >= 3
+                && buf.get(0) == (byte) 0xEF && buf.get(1) == (byte) 0xBB && buf.get(2) == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int digits(ByteBuffer buf, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int c = buf.get(i) - '0';
+            if (c < 0 || c > 9) return -1;
+            value = value * 10 + c;
+        }
+        return value;
+    }
+
+    static int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(ByteBuffer buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buf.get(i);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\f' && b != 0x0B) return false;
+        }
+        return true;
+    }
+
+    private String decode(ByteBuffer buf, int start, int end) {
+        int len = end - start;
+        if (len > scratch.length) {
+            scratch = new byte[Math.max(len, scratch.length * 2)];
+        }
+        buf.get(start, scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Går igenom filen en rad i taget (används av stream()).
+     * Mappar en region åt gången och mappar om när en rad når regionens slut.
+     */
+    private static final class Cursor extends Spliterators.AbstractSpliterator<Transaction> {
+        private final FileChannel channel;
+        private final MappedTransactionParser parser = new MappedTransactionParser();
+        private MappedByteBuffer buf;
+        private long regionStart = 0;
+        private int pos = 0;
+        private int limit = 0;
+        private boolean lastRegion = false;
+
+        Cursor(FileChannel channel) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.channel = channel;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            while (true) {
+                if (buf == null || pos >= limit) {
+                    if (!map(regionStart + Math.min(pos, limit))) return false;
+                }
+
+                int nl = indexOf(buf, pos, limit, (byte) '\n');
+                if (nl < 0) {
+                    if (!lastRegion) {
+                        if (pos == 0) {
+                            throw new UncheckedIOException(new IOException(
+                                    "Rad längre än " + MAX_REGION + " bytes vid position " + regionStart));
+                        }
+                        map(regionStart + pos);
+                        continue;
+                    }
+                    nl = limit;
+                }
+
+                long lineNumber = parser.lineNumber++;
+                Transaction tx = parser.parseLine(buf, pos, nl);
+                int start = pos;
+                pos = nl + 1;
+
+                if (tx != null) {
+                    action.accept(tx);
+                    return true;
+                }
+                if (!isBlank(buf, start, nl)) {
+                    System.out.println("Kunde inte läsa rad " + lineNumber + ": "
+                            + parser.decode(buf, start, nl).stripTrailing());
+                }
+            }
+        }
+
+        // Mappar nästa region från en viss position, returnerar false vid filens slut
+        private boolean map(long start) {
+            try {
+                long size = channel.size();
+                if (start >= size) return false;
+
+                long len = Math.min(MAX_REGION, size - start);
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+                regionStart = start;
+                limit = (int) len;
+                lastRegion = start + len == size;
+                pos = start == 0 ? skipBom(buf) : 0;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
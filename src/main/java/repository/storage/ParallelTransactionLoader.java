@@ -0,0 +1,171 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Läser stora transaktionsfiler parallellt.
+ * Filen delas upp i byte-intervall som alltid börjar direkt efter en radbrytning,
+ * varje intervall parsas av en egen tråd med MappedTransactionParser, och
+ * resultaten slås ihop i samma ordning som i filen.
+ *
+ * Felaktiga rader rapporteras med sitt riktiga radnummer: varje del räknar sina
+ * rader lokalt och numren justeras när alla delar är klara.
+ */
+public final class ParallelTransactionLoader {
+
+    // Under den här storleken lönar det sig inte att starta trådar
+    static final long PARALLEL_THRESHOLD = 8L * 1024 * 1024;
+
+    private ParallelTransactionLoader() {
+    }
+
+    /**
+     * Läser hela filen med en tråd per processorkärna (eller sekventiellt om filen är liten).
+     */
+    public static List<Transaction> readAll(File file) {
+        return readAll(file, Runtime.getRuntime().availableProcessors(), PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Läser hela filen uppdelad på högst {@code workers} delar.
+     * @param threshold filer mindre än så här läses sekventiellt
+     */
+    public static List<Transaction> readAll(File file, int workers, long threshold) {
+        if (workers <= 1 || file.length() < threshold) {
+            return MappedTransactionParser.readAll(file);
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = split(channel, workers);
+            List<Chunk> chunks = parseChunks(channel, bounds);
+
+            int total = 0;
+            for (Chunk c : chunks) total += c.items.size();
+
+            // Slår ihop i filordning och skriver ut felaktiga rader med globalt radnummer
+            List<Transaction> items = new ArrayList<>(total);
+            long firstLine = 1;
+            for (Chunk c : chunks) {
+                items.addAll(c.items);
+                for (int i = 0; i < c.badLineNumbers.size(); i++) {
+                    long lineNumber = firstLine + c.badLineNumbers.get(i) - 1;
+                    System.out.println("Kunde inte läsa rad " + lineNumber + ": " + c.badLines.get(i));
+                }
+                firstLine += c.lineCount;
+            }
+            return items;
+
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Delar [0, size) i ungefär lika stora intervall som slutar efter en '\n'
+    static long[] split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < parts; i++) {
+            long target = Math.max(size * i / parts, bounds.get(bounds.size() - 1));
+            long boundary = nextLineStart(channel, target, size, probe);
+            if (boundary > bounds.get(bounds.size() - 1) && boundary < size) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    // Returnerar positionen direkt efter första '\n' på eller efter pos (eller size)
+    private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer probe) throws IOException {
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static List<Chunk> parseChunks(FileChannel channel, long[] bounds) throws IOException {
+        int parts = bounds.length - 1;
+        ExecutorService pool = Executors.newFixedThreadPool(parts, r -> {
+            Thread t = new Thread(r, "csv-loader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<Chunk>> futures = new ArrayList<>();
+            for (int i = 0; i < parts; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                futures.add(pool.submit(() -> Chunk.parse(channel, start, end)));
+            }
+
+            List<Chunk> chunks = new ArrayList<>(parts);
+            for (Future<Chunk> f : futures) {
+                chunks.add(f.get());
+            }
+            return chunks;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Inläsningen avbröts", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Kunde inte läsa del av filen: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Resultatet av en del: transaktioner, antal rader och felaktiga rader (med lokala radnummer).
+     */
+    private static final class Chunk implements MappedTransactionParser.LineHandler {
+        final List<Transaction> items = new ArrayList<>();
+        final List<Long> badLineNumbers = new ArrayList<>();
+        final List<String> badLines = new ArrayList<>();
+        long lineCount;
+
+        static Chunk parse(FileChannel channel, long start, long end) throws IOException {
+            Chunk chunk = new Chunk();
+            MappedTransactionParser parser = new MappedTransactionParser(1);
+            parser.parseRange(channel, start, end, chunk);
+            chunk.lineCount = parser.getLineNumber() - 1;
+            return chunk;
+        }
+
+        @Override
+        public void onTransaction(Transaction tx) {
+            items.add(tx);
+        }
+
+        @Override
+        public void onBadLine(long lineNumber, String line) {
+            badLineNumbers.add(lineNumber);
+            badLines.add(line);
+        }
+    }
+}
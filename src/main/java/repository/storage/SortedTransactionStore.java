@@ -0,0 +1,429 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Transaktionsfil (filändelse .pfs) där raderna alltid ligger sorterade på datum.
+ * Själva filen är vanlig CSV i samma format som TransactionCsvDataStore, men
+ * delas upp i block om BLOCK_ROWS rader. Bredvid filen (datafil + ".blk") sparas
+ * ett glest index med första datumet och byte-offseten för varje block.
+ *
+ * En datumfråga slår upp första och sista blocket som kan innehålla träffar i
+ * indexet och läser bara de bytes som ligger mellan dem, utan att resten av
+ * filen läses eller parsas.
+ *
+ * Indexet sparar datafilens storlek. Stämmer den inte (t.ex. efter en krasch mellan
+ * datafil och index) byggs indexet om från filen. Är filen inte sorterad (ändrad för
+ * hand) används inget index, och frågan filtrerar hela filen i stället.
+ */
+public class SortedTransactionStore extends TransactionCsvDataStore implements DateRangeSource {
+
+    public static final String EXTENSION = ".pfs";
+    public static final String INDEX_SUFFIX = ".blk";
+
+    static final int BLOCK_ROWS = 4096;
+
+    private static final int MAGIC = 0x5046424B; // "PFBK"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 12;
+
+    private static final Comparator<Transaction> BY_DATE = Comparator.comparing(Transaction::getDate);
+
+    private final File indexFile;
+
+    // Index i minnet (laddas vid första frågan). firstDays[i] = epochDay för blockets första rad.
+    private int[] firstDays;
+    private long[] blockOffsets;
+    private long indexedSize = -1;
+
+    public SortedTransactionStore(File file) {
+        this(file, true);
+    }
+
+    SortedTransactionStore(File file, boolean create) {
+        super(file, create);
+        this.indexFile = new File(file.getPath() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Hittar transaktioner mellan två datum (inklusive) genom att bara läsa berörda block.
+     */
+    @Override
+    public synchronized List<Transaction> findByDateRange(LocalDate from, LocalDate to) {
+        List<Transaction> result = new ArrayList<>();
+        if (to.isBefore(from)) return result;
+
+        try (FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!ensureIndex(size)) {
+                // Inget användbart index → filtrera hela filen
+                try (Stream<Transaction> all = stream()) {
+                    all.filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to)).forEach(result::add);
+                }
+                return result;
+            }
+
+            if (firstDays.length == 0) return result;
+
+            long start = blockOffsets[startBlock(from.toEpochDay())];
+            long end = endOffset(to.toEpochDay(), size);
+
+            new MappedTransactionParser().parseRange(channel, start, end, new MappedTransactionParser.LineHandler() {
+                @Override
+                public void onTransaction(Transaction tx) {
+                    if (!tx.getDate().isBefore(from) && !tx.getDate().isAfter(to)) result.add(tx);
+                }
+
+                @Override
+                public void onBadLine(long lineNumber, String line) {
+                    System.out.println("Kunde inte läsa rad: " + line);
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Fel vid läsning av fil: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Antal block i indexet (0 om filen saknar användbart index).
+     */
+    public synchronized int blockCount() {
+        try {
+            return ensureIndex(Files.size(getFile().toPath())) ? firstDays.length : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Sista blocket vars första datum är < from (rader med from kan finnas i slutet av det),
+    // eller block 0
+    private int startBlock(long fromDay) {
+        int lo = 0, hi = firstDays.length - 1, found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firstDays[mid] < fromDay) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // Början på första blocket vars första datum är > to, eller filens slut
+    private long endOffset(long toDay, long size) {
+        int lo = 0, hi = firstDays.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firstDays[mid] <= toDay) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo < firstDays.length ? blockOffsets[lo] : size;
+    }
+
+    // === Skrivning ===
+
+    /**
+     * Öppnar en sink som skriver raderna sorterade på datum, tillsammans med blockindexet.
+     * Rader som kommer i datumordning (t.ex. när en sorterad fil skrivs om) går direkt
+     * till filen; bara de som kommer i fel ordning hålls i minnet och flätas in vid commit.
+     */
+    @Override
+    public DataSink<Transaction> openSink() throws IOException {
+        return new SortedSink();
+    }
+
+    private class SortedSink implements DataSink<Transaction> {
+        private final Path target = getFile().toPath();
+        private final Path tmp = AtomicFileWriter.tempFile(target);
+        private final Path runTmp = target.resolveSibling(target.getFileName() + ".run.tmp");
+        private final TransactionLineConverter converter = new TransactionLineConverter();
+        private final List<Transaction> late = new ArrayList<>();
+        private BlockWriter run;
+        private LocalDate last;
+        private boolean committed = false;
+
+        SortedSink() throws IOException {
+            run = new BlockWriter(runTmp, converter);
+        }
+
+        @Override
+        public void write(Transaction t) throws IOException {
+            if (last != null && t.getDate().isBefore(last)) {
+                late.add(t);
+                return;
+            }
+            run.write(t);
+            last = t.getDate();
+        }
+
+        @Override
+        public void commit() throws IOException {
+            BlockWriter out;
+            if (late.isEmpty()) {
+                out = run;
+                out.finish();
+            } else {
+                run.finish();
+                late.sort(BY_DATE);
+                out = new BlockWriter(tmp, converter);
+                merge(runTmp, out);
+                out.finish();
+                Files.deleteIfExists(runTmp);
+            }
+            AtomicFileWriter.move(out.path, target);
+            committed = true;
+
+            synchronized (SortedTransactionStore.this) {
+                firstDays = out.firstDays();
+                blockOffsets = out.blockOffsets();
+                indexedSize = out.size;
+                saveIndex();
+            }
+        }
+
+        // Flätar ihop den sorterade körningen på disk med de sena raderna (stabilt: filen först)
+        private void merge(Path sorted, BlockWriter out) throws IOException {
+            Iterator<Transaction> extra = late.iterator();
+            Transaction next = extra.hasNext() ? extra.next() : null;
+            try (Stream<Transaction> rows = MappedTransactionParser.stream(sorted.toFile())) {
+                Iterator<Transaction> it = rows.iterator();
+                while (it.hasNext()) {
+                    Transaction t = it.next();
+                    while (next != null && next.getDate().isBefore(t.getDate())) {
+                        out.write(next);
+                        next = extra.hasNext() ? extra.next() : null;
+                    }
+                    out.write(t);
+                }
+            }
+            while (next != null) {
+                out.write(next);
+                next = extra.hasNext() ? extra.next() : null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                run.abort();
+                Files.deleteIfExists(tmp);
+            }
+            Files.deleteIfExists(runTmp);
+            late.clear();
+        }
+    }
+
+    /**
+     * Skriver CSV-rader och noterar första datum och offset för vart BLOCK_ROWS:e rad.
+     */
+    private static final class BlockWriter {
+        private final Path path;
+        private final TransactionLineConverter converter;
+        private final FileChannel channel;
+        private final OutputStream out;
+        private int[] days = new int[64];
+        private long[] offsets = new long[64];
+        private int blocks = 0;
+        private long rows = 0;
+        private long size = 0;
+
+        BlockWriter(Path path, TransactionLineConverter converter) throws IOException {
+            this.path = path;
+            this.converter = converter;
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        }
+
+        void write(Transaction t) throws IOException {
+            if (rows % BLOCK_ROWS == 0) {
+                if (blocks == days.length) {
+                    days = Arrays.copyOf(days, blocks * 2);
+                    offsets = Arrays.copyOf(offsets, blocks * 2);
+                }
+                days[blocks] = (int) t.getDate().toEpochDay();
+                offsets[blocks] = size;
+                blocks++;
+            }
+            byte[] line = (converter.toLine(t) + "\n").getBytes(StandardCharsets.UTF_8);
+            out.write(line);
+            size += line.length;
+            rows++;
+        }
+
+        void finish() throws IOException {
+            out.flush();
+            channel.force(true);
+            channel.close();
+        }
+
+        void abort() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+
+        int[] firstDays() {
+            return Arrays.copyOf(days, blocks);
+        }
+
+        long[] blockOffsets() {
+            return Arrays.copyOf(offsets, blocks);
+        }
+    }
+
+    // === Index ===
+
+    // Ser till att indexet i minnet hör till en fil av storleken size. false = filen saknar index.
+    private synchronized boolean ensureIndex(long size) {
+        if (indexedSize == size) return firstDays != null;
+        if (loadIndex(size)) return true;
+
+        rebuildIndex(size);
+        if (firstDays != null) saveIndex();
+        return firstDays != null;
+    }
+
+    private boolean loadIndex(long size) {
+        if (!indexFile.exists()) return false;
+        try (FileChannel idx = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && idx.read(header, header.position()) > 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION) {
+                return false;
+            }
+            header.getShort();
+            long dataSize = header.getLong();
+            int count = header.getInt();
+            if (dataSize != size || idx.size() != HEADER_SIZE + (long) count * ENTRY_SIZE) return false;
+
+            ByteBuffer body = ByteBuffer.allocate(count * ENTRY_SIZE);
+            while (body.hasRemaining() && idx.read(body, HEADER_SIZE + body.position()) > 0) {
+            }
+            body.flip();
+            int[] days = new int[count];
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                days[i] = body.getInt();
+                offsets[i] = body.getLong();
+            }
+            firstDays = days;
+            blockOffsets = offsets;
+            indexedSize = size;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Kunde inte läsa blockindex, bygger om: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Läser filen rad för rad och noterar var blocken börjar. Osorterad fil → inget index.
+    // Raderna tolkas med samma parser som vid läsning, så samma rader räknas.
+    private void rebuildIndex(long size) {
+        firstDays = null;
+        blockOffsets = null;
+        indexedSize = size;
+
+        int[] days = new int[64];
+        long[] offsets = new long[64];
+        int blocks = 0;
+        long rows = 0;
+        long previous = Long.MIN_VALUE;
+        MappedTransactionParser parser = new MappedTransactionParser();
+
+        try (FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+            long pos = 0;
+            while (pos < size) {
+                int len = (int) Math.min(MappedTransactionParser.MAX_REGION, size - pos);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                boolean last = pos + len == size;
+
+                int p = pos == 0 && len >= 3
+                        && buf.get(0) == (byte) 0xEF && buf.get(1) == (byte) 0xBB && buf.get(2) == (byte) 0xBF ? 3 : 0;
+                while (p < len) {
+                    int nl = MappedTransactionParser.indexOf(buf, p, len, (byte) '\n');
+                    if (nl < 0) {
+                        if (!last) break;
+                        nl = len;
+                    }
+                    Transaction t = parser.parseLine(buf, p, nl);
+                    if (t != null) {
+                        long day = t.getDate().toEpochDay();
+                        if (day < previous) {
+                            System.out.println("Filen är inte sorterad på datum, använder inget blockindex: " + getFile());
+                            return;
+                        }
+                        if (rows % BLOCK_ROWS == 0) {
+                            if (blocks == days.length) {
+                                days = Arrays.copyOf(days, blocks * 2);
+                                offsets = Arrays.copyOf(offsets, blocks * 2);
+                            }
+                            days[blocks] = (int) day;
+                            offsets[blocks] = pos + p;
+                            blocks++;
+                        }
+                        previous = day;
+                        rows++;
+                    }
+                    p = nl + 1;
+                }
+                if (p == 0 && !last) {
+                    throw new IOException("Rad längre än " + MappedTransactionParser.MAX_REGION + " bytes vid position " + pos);
+                }
+                pos += Math.min(p, len);
+            }
+        } catch (IOException e) {
+            System.out.println("Kunde inte bygga blockindex: " + e.getMessage());
+            return;
+        }
+        firstDays = Arrays.copyOf(days, blocks);
+        blockOffsets = Arrays.copyOf(offsets, blocks);
+    }
+
+    private void saveIndex() {
+        try {
+            AtomicFileWriter.write(indexFile, idx -> {
+                ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + firstDays.length * ENTRY_SIZE);
+                buf.putInt(MAGIC);
+                buf.putShort(VERSION);
+                buf.putShort((short) 0);
+                buf.putLong(indexedSize);
+                buf.putInt(firstDays.length);
+                buf.putInt(0);
+                for (int i = 0; i < firstDays.length; i++) {
+                    buf.putInt(firstDays[i]);
+                    buf.putLong(blockOffsets[i]);
+                }
+                buf.flip();
+                while (buf.hasRemaining()) idx.write(buf);
+            });
+        } catch (IOException e) {
+            System.out.println("Kunde inte spara blockindex: " + e.getMessage());
+        }
+    }
+}
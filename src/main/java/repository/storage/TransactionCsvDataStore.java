@@ -0,0 +1,40 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * CsvDataStore för transaktioner.
+ * Skrivningen är densamma som i CsvDataStore, men läsningen går via
+ * MappedTransactionParser som tolkar filen direkt från minnesmappade bytes
+ * (uppdelad på flera trådar när filen är stor).
+ */
+public class TransactionCsvDataStore extends CsvDataStore<Transaction> {
+
+    public TransactionCsvDataStore(File file) {
+        this(file, true);
+    }
+
+    TransactionCsvDataStore(File file, boolean create) {
+        super(file, new TransactionLineConverter(), create);
+    }
+
+    /**
+     * Läser alla transaktioner via den snabba parsern, parallellt för stora filer.
+     */
+    @Override
+    public List<Transaction> readAll() {
+        return ParallelTransactionLoader.readAll(getFile());
+    }
+
+    /**
+     * Strömmar transaktionerna direkt från den minnesmappade filen, en rad i taget.
+     */
+    @Override
+    public Stream<Transaction> stream() {
+        return MappedTransactionParser.stream(getFile());
+    }
+}
@@ -0,0 +1,251 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Bevakar en transaktionsfil (CSV) som en annan process kan skriva till.
+ *
+ * Jag kommer ihåg hur långt i filen jag har läst (offset efter sista hela raden),
+ * filens identitet (fileKey, t.ex. inode) och en CRC av de sista bytesen före offseten.
+ * När filen ändras:
+ * <ul>
+ *   <li>har den bara vuxit → bara den nya svansen läses, och lyssnaren får de nya raderna</li>
+ *   <li>är den kortare, utbytt (ny fileKey) eller ändrad före offseten → hela filen läses om</li>
+ * </ul>
+ * En halvskriven sista rad (utan radbrytning) läses inte förrän den är klar.
+ *
+ * Bevakningen startas med start() och körs på en egen daemon-tråd med WatchService.
+ * start() räknar filens nuvarande innehåll som känt. poll() kan också anropas direkt,
+ * men då ska resync() ha anropats först. Alla kontroller sker under låset som ges i
+ * konstruktorn, så ägaren kan skriva till filen och anropa resync() utan att
+ * de egna ändringarna rapporteras som främmande.
+ */
+public class TransactionFileWatcher implements AutoCloseable {
+
+    /**
+     * Tar emot ändringar i filen.
+     */
+    public interface Listener {
+        /** Nya rader har lagts till sist i filen. */
+        void onAppended(List<Transaction> added);
+
+        /** Filen har skrivits om – all är hela det nya innehållet. */
+        void onReloaded(List<Transaction> all);
+    }
+
+    private static final int TAIL_CRC_BYTES = 4096;
+
+    private final Path path;
+    private final Object lock;
+    private final Listener listener;
+
+    // Skyddas av lock
+    private long offset;
+    private long tailCrc;
+    private Object fileKey;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param file filen som ska bevakas
+     * @param lock låset som alla kontroller (och ägarens egna skrivningar) sker under
+     * @param listener får ändringarna
+     */
+    public TransactionFileWatcher(File file, Object lock, Listener listener) {
+        this.path = file.toPath().toAbsolutePath();
+        this.lock = lock;
+        this.listener = listener;
+    }
+
+    /**
+     * Markerar filens nuvarande innehåll som redan känt (t.ex. efter en egen skrivning).
+     */
+    public void resync() {
+        synchronized (lock) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                offset = lastLineEnd(channel, channel.size());
+                tailCrc = tailCrc(channel, offset);
+                fileKey = fileKey();
+            } catch (NoSuchFileException e) {
+                offset = 0;
+                tailCrc = 0;
+                fileKey = null;
+            } catch (IOException e) {
+                System.out.println("Kunde inte läsa fil: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Börjar bevaka filens katalog på en bakgrundstråd. Det som redan finns i filen
+     * räknas som känt.
+     */
+    public void start() throws IOException {
+        if (thread != null) return;
+        resync();
+
+        watchService = FileSystems.getDefault().newWatchService();
+        path.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::run, "file-watcher-" + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean ours = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // OVERFLOW = händelser har tappats → kontrollera ändå
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || path.getFileName().equals(event.context())) {
+                        ours = true;
+                    }
+                }
+                key.reset();
+                if (ours) poll();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close() anropad – avsluta tråden
+        }
+    }
+
+    /**
+     * Kontrollerar filen direkt och meddelar lyssnaren om något har ändrats.
+     * Returnerar true om något ändrades.
+     */
+    public boolean poll() {
+        synchronized (lock) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                boolean rewritten = size < offset
+                        || !Objects.equals(fileKey, fileKey())
+                        || tailCrc(channel, offset) != tailCrc;
+
+                if (rewritten) {
+                    long end = lastLineEnd(channel, size);
+                    List<Transaction> all = parse(channel, 0, end);
+                    offset = end;
+                    tailCrc = tailCrc(channel, end);
+                    fileKey = fileKey();
+                    listener.onReloaded(all);
+                    return true;
+                }
+
+                long end = lastLineEnd(channel, size);
+                if (end <= offset) return false;
+
+                List<Transaction> added = parse(channel, offset, end);
+                offset = end;
+                tailCrc = tailCrc(channel, end);
+                if (!added.isEmpty()) listener.onAppended(added);
+                return !added.isEmpty();
+
+            } catch (NoSuchFileException e) {
+                // Filen finns inte just nu (t.ex. mitt i en rename) – nästa händelse tar den
+                return false;
+            } catch (IOException e) {
+                System.out.println("Kunde inte läsa ändringar i fil: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Hur långt i filen som är läst (bytes).
+     */
+    public long getOffset() {
+        synchronized (lock) {
+            return offset;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private List<Transaction> parse(FileChannel channel, long start, long end) throws IOException {
+        List<Transaction> items = new ArrayList<>();
+        if (start >= end) return items;
+
+        new MappedTransactionParser().parseRange(channel, start, end, new MappedTransactionParser.LineHandler() {
+            @Override
+            public void onTransaction(Transaction tx) {
+                items.add(tx);
+            }
+
+            @Override
+            public void onBadLine(long lineNumber, String line) {
+                System.out.println("Kunde inte läsa rad: " + line);
+            }
+        });
+        return items;
+    }
+
+    private Object fileKey() throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    // Position direkt efter sista '\n' före size (0 om filen saknar radbrytning)
+    private static long lastLineEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - buf.capacity());
+            buf.clear();
+            buf.limit((int) (end - start));
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, start + buf.position()) < 0) break;
+            }
+            for (int i = buf.position() - 1; i >= 0; i--) {
+                if (buf.get(i) == '\n') return start + i + 1;
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    // CRC av de sista bytesen före end – ändras om någon skrivit om innehållet före offseten
+    private static long tailCrc(FileChannel channel, long end) throws IOException {
+        int len = (int) Math.min(TAIL_CRC_BYTES, end);
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        long pos = end - len;
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) break;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        return crc.getValue();
+    }
+}
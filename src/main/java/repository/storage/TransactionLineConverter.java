@@ -0,0 +1,31 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.time.LocalDate;
+
+/**
+ * Konverterar mellan Transaction och en CSV-rad ("2024-03-01;1000.0;Lön").
+ * Detta är den "vanliga" vägen via String.split, LocalDate.parse och Double.parseDouble.
+ */
+public class TransactionLineConverter implements LineConverter<Transaction> {
+
+    @Override
+    public Transaction fromLine(String line) throws Exception {
+        String[] parts = line.split(";", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Ogiltig rad (fel antal fält): " + line);
+        }
+
+        LocalDate date = LocalDate.parse(parts[0]);
+        double amount = Double.parseDouble(parts[1]);
+        String description = parts[2];
+
+        return new Transaction(date, amount, description);
+    }
+
+    @Override
+    public String toLine(Transaction item) {
+        return item.toFileFormat();
+    }
+}
@@ -0,0 +1,57 @@
+package repository.storage;
+
+import domain.Transaction;
+
+import java.io.File;
+import java.util.zip.Deflater;
+
+/**
+ * Väljer vilket DataStore som ska användas för en transaktionsfil, utifrån filändelsen.
+ * .pfb = binärt format, .pfs = datumsorterad CSV med blockindex,
+ * .pfz = blockkomprimerad CSV, .pfc = kolumnformat (export), allt annat = CSV.
+ */
+public final class TransactionStores {
+
+    private TransactionStores() {
+    }
+
+    public static DataStore<Transaction> forFile(File file) {
+        return forFile(file, true);
+    }
+
+    /**
+     * Som forFile, men filen skapas inte i förväg. Den finns först när en sink från
+     * openSink() har committats, så en misslyckad skrivning lämnar ingen tom fil efter sig.
+     * Använd bara openSink() på lagret (läsning kräver att filen finns).
+     */
+    public static DataStore<Transaction> forOutputFile(File file) {
+        return forFile(file, false);
+    }
+
+    private static DataStore<Transaction> forFile(File file, boolean create) {
+        if (file.getName().endsWith(BinaryTransactionStore.EXTENSION)) {
+            return new BinaryTransactionStore(file, create);
+        }
+        if (file.getName().endsWith(SortedTransactionStore.EXTENSION)) {
+            return new SortedTransactionStore(file, create);
+        }
+        if (file.getName().endsWith(CompressedTransactionStore.EXTENSION)) {
+            return new CompressedTransactionStore(file, Deflater.DEFAULT_COMPRESSION, create);
+        }
+        if (file.getName().endsWith(ColumnarTransactionStore.EXTENSION)) {
+            return new ColumnarTransactionStore(file, create);
+        }
+        return new TransactionCsvDataStore(file, create);
+    }
+
+    /**
+     * Om filen är vanlig CSV där nya rader kan läggas till sist (krävs för radindexet i LAZY-läge).
+     */
+    public static boolean isAppendableCsv(File file) {
+        String name = file.getName();
+        return !name.endsWith(BinaryTransactionStore.EXTENSION)
+                && !name.endsWith(SortedTransactionStore.EXTENSION)
+                && !name.endsWith(CompressedTransactionStore.EXTENSION)
+                && !name.endsWith(ColumnarTransactionStore.EXTENSION);
+    }
+}
@@ -0,0 +1,203 @@
+package repository.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverterat index över beskrivningar, uppdelade i trigram (tre tecken i följd).
+ *
+ * Texten delas upp på samma sätt som pg_trgm i Postgres: gemener, ord (bokstäver och
+ * siffror) med två mellanslag före och ett efter, och alla trigram i varje ord.
+ * "ICA Maxi" blir alltså "  i", " ic", "ica", "ca ", "  m", " ma", ...
+ * För varje trigram sparas en sorterad lista med nycklar (posting list).
+ *
+ * En sökning slår upp frågans trigram och räknar hur många av dem varje nyckel har.
+ * Poängen är andelen av frågans trigram som finns i texten (som word_similarity i pg_trgm),
+ * så en exakt delsträng ger 1.0 och en felstavning fortfarande ger en träff.
+ * Träffar under MIN_SCORE kastas, resten sorteras på poäng och sedan nyast (högst nyckel) först.
+ *
+ * Nycklar ska läggas till i stigande ordning. Indexet kan sparas till och läsas från
+ * en fil tillsammans med en stämpel, så att ett inaktuellt index kan upptäckas.
+ */
+public class TrigramIndex {
+
+    public static final String SUFFIX = ".tri";
+
+    // Samma gräns som word_similarity_threshold i pg_trgm
+    static final double MIN_SCORE = 0.6;
+
+    private static final int MAGIC = 0x50465447; // "PFTG"
+    private static final int VERSION = 1;
+
+    // Sorterad lista med nycklar för ett trigram
+    private static final class Posting {
+        int[] keys = new int[4];
+        int size;
+
+        void add(int key) {
+            // Samma trigram två gånger i en text ger bara en post
+            if (size > 0 && keys[size - 1] == key) return;
+            if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+            keys[size++] = key;
+        }
+    }
+
+    private final Map<String, Posting> postings = new HashMap<>();
+    private int size = 0;
+    private int lastKey = Integer.MIN_VALUE;
+
+    /**
+     * Lägger till en text under en nyckel. Nycklar måste komma i stigande ordning.
+     */
+    public synchronized void add(int key, String text) {
+        if (key <= lastKey && size > 0) {
+            throw new IllegalArgumentException("Nycklar måste läggas till i stigande ordning: " + key);
+        }
+        lastKey = key;
+        size++;
+
+        for (String trigram : trigrams(text)) {
+            postings.computeIfAbsent(trigram, t -> new Posting()).add(key);
+        }
+    }
+
+    /**
+     * Antal texter i indexet.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Nycklarna som matchar query, bäst först, från offset och högst limit stycken.
+     */
+    public synchronized List<Integer> search(String query, int offset, int limit) {
+        Set<String> queryTrigrams = trigrams(query);
+        List<Integer> result = new ArrayList<>();
+        if (queryTrigrams.isEmpty() || limit <= 0) return result;
+
+        // Antal av frågans trigram som varje nyckel har
+        Map<Integer, Integer> hits = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Posting posting = postings.get(trigram);
+            if (posting == null) continue;
+            for (int i = 0; i < posting.size; i++) {
+                hits.merge(posting.keys[i], 1, Integer::sum);
+            }
+        }
+
+        int needed = (int) Math.ceil(MIN_SCORE * queryTrigrams.size());
+        List<int[]> matches = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : hits.entrySet()) {
+            if (e.getValue() >= needed) matches.add(new int[]{e.getKey(), e.getValue()});
+        }
+        matches.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(b[0], a[0]));
+
+        int to = (int) Math.min(matches.size(), (long) offset + limit);
+        for (int i = Math.max(0, offset); i < to; i++) {
+            result.add(matches.get(i)[0]);
+        }
+        return result;
+    }
+
+    /**
+     * Delar upp en text i trigram på samma sätt som pg_trgm.
+     */
+    static Set<String> trigrams(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text == null) return result;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lower.length()) {
+            while (i < lower.length() && !Character.isLetterOrDigit(lower.charAt(i))) i++;
+            int start = i;
+            while (i < lower.length() && Character.isLetterOrDigit(lower.charAt(i))) i++;
+            if (start == i) continue;
+
+            String word = "  " + lower.substring(start, i) + " ";
+            for (int j = 0; j + 3 <= word.length(); j++) {
+                result.add(word.substring(j, j + 3));
+            }
+        }
+        return result;
+    }
+
+    // === Fil ===
+
+    /**
+     * Sparar indexet. Stämpeln (t.ex. datafilens storlek och ändringstid) sparas med,
+     * så att read() kan avgöra om indexet fortfarande gäller.
+     * Skrivs atomiskt, så en krasch lämnar antingen det gamla eller det nya indexet.
+     */
+    public synchronized void write(File file, long stamp) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp);
+            out.writeInt(size);
+            out.writeInt(lastKey);
+            out.writeInt(postings.size());
+            for (Map.Entry<String, Posting> e : postings.entrySet()) {
+                Posting posting = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeInt(posting.size);
+                for (int i = 0; i < posting.size; i++) {
+                    out.writeInt(posting.keys[i]);
+                }
+            }
+        }
+        AtomicFileWriter.move(tmp.toPath(), file.toPath());
+    }
+
+    /**
+     * Läser ett sparat index. Returnerar null om filen saknas, är trasig
+     * eller har en annan stämpel (dvs. är inaktuell).
+     */
+    public static TrigramIndex read(File file, long stamp) {
+        if (!file.exists()) return null;
+
+        try (InputStream is = new FileInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (in.readLong() != stamp) return null;
+
+            TrigramIndex index = new TrigramIndex();
+            index.size = in.readInt();
+            index.lastKey = in.readInt();
+            int trigrams = in.readInt();
+            for (int t = 0; t < trigrams; t++) {
+                String trigram = in.readUTF();
+                Posting posting = new Posting();
+                posting.size = in.readInt();
+                posting.keys = new int[Math.max(4, posting.size)];
+                for (int i = 0; i < posting.size; i++) {
+                    posting.keys[i] = in.readInt();
+                }
+                index.postings.put(trigram, posting);
+            }
+            return index;
+        } catch (IOException e) {
+            System.out.println("Kunde inte läsa sökindex, bygger om: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package repository.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Enkel write-ahead log: textposter läggs till i slutet av en fil, var och en
+ * inramad som [längd][CRC32][UTF-8-bytes]. Vid återställning läses posterna upp
+ * till första trasiga ramen (t.ex. en halvskriven post efter en krasch).
+ *
+ * Skrivning sker i två steg så att ordningen kan bestämmas under ett lås hos
+ * anroparen, medan väntan på disk sker utanför låset:
+ * <pre>
+ *   long seq = log.enqueue(post);   // snabbt, bestämmer ordningen
+ *   log.awaitDurable(seq);          // väntar tills posten ligger på disk
+ * </pre>
+ * Med FsyncPolicy.GROUP blir den tråd som först behöver skriva "ledare": den
+ * skriver alla poster som köats hittills och gör en fsync för hela gruppen,
+ * medan övriga trådar väntar. Poster som köas under tiden tas av nästa ledare.
+ *
+ * Misslyckas en skrivning (eller fsync) kan en halv ram ligga kvar i filen, och allt
+ * som skrivs efter den går inte att läsa vid återställning. Därför räknas ingen post
+ * efter felet som skriven: alla som väntar på en senare post får IOException, tills
+ * programmet startas om (då läses loggen fram till den trasiga ramen).
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final int FRAME_HEADER = 8;
+
+    private final File file;
+    private final FsyncPolicy policy;
+    private final FileChannel channel;
+
+    // Allt nedan skyddas av "lock"
+    private final Object lock = new Object();
+    private List<byte[]> pending = new ArrayList<>();
+    private long lastQueued = 0;     // sekvensnummer för senast köade posten
+    private long durable = 0;        // alla poster t.o.m. detta nummer är skrivna (och ev. synkade)
+    private boolean flushing = false;
+    private IOException failure;     // första skrivfelet – därefter blir inget mer "skrivet"
+
+    public WriteAheadLog(File file, FsyncPolicy policy) throws IOException {
+        this.file = file;
+        this.policy = policy;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Lägger en post i kön och returnerar dess sekvensnummer. Skriver inget till disk.
+     */
+    public long enqueue(String record) {
+        byte[] frame = frame(record);
+        synchronized (lock) {
+            pending.add(frame);
+            return ++lastQueued;
+        }
+    }
+
+    /**
+     * Väntar tills posten med sekvensnummer seq (och alla före) är skriven enligt policyn.
+     */
+    public void awaitDurable(long seq) throws IOException {
+        awaitDurable(seq, policy != FsyncPolicy.NEVER);
+    }
+
+    /**
+     * Köar och väntar in en post i ett anrop.
+     */
+    public void append(String record) throws IOException {
+        awaitDurable(enqueue(record));
+    }
+
+    /**
+     * Köar en post och synkar den till disk oavsett policy (används för checkpoint-markörer).
+     */
+    public void appendAndSync(String record) throws IOException {
+        awaitDurable(enqueue(record), true);
+    }
+
+    private void awaitDurable(long seq, boolean sync) throws IOException {
+        while (true) {
+            List<byte[]> batch;
+            long batchEnd;
+
+            synchronized (lock) {
+                while (flushing && durable < seq) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Avbruten i väntan på loggen", e);
+                    }
+                }
+                if (durable >= seq) return;
+                if (failure != null) {
+                    throw new IOException("Kunde inte skriva till loggen: " + failure.getMessage(), failure);
+                }
+
+                // Ingen skriver just nu → jag blir ledare för allt som ligger i kön
+                flushing = true;
+                if (policy == FsyncPolicy.ALWAYS) {
+                    // En post per fsync, ingen gruppering
+                    batch = new ArrayList<>(pending.subList(0, 1));
+                    pending.remove(0);
+                    batchEnd = durable + 1;
+                } else {
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    batchEnd = lastQueued;
+                }
+            }
+
+            IOException error = null;
+            try {
+                writeFrames(batch);
+                if (sync) channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (lock) {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = batchEnd;
+                }
+                flushing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void writeFrames(List<byte[]> frames) throws IOException {
+        int total = 0;
+        for (byte[] f : frames) total += f.length;
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        for (byte[] f : frames) buf.put(f);
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * Läser alla hela poster från början av loggen (för återställning vid start).
+     */
+    public List<String> readRecords() throws IOException {
+        List<String> records = new ArrayList<>();
+        synchronized (lock) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            long pos = 0;
+
+            while (pos + FRAME_HEADER <= size) {
+                header.clear();
+                channel.read(header, pos);
+                header.flip();
+                int length = header.getInt();
+                int crc = header.getInt();
+                if (length < 0 || pos + FRAME_HEADER + length > size) break;
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                while (payload.hasRemaining()) {
+                    if (channel.read(payload, pos + FRAME_HEADER + payload.position()) < 0) break;
+                }
+                if (checksum(payload.array(), length) != crc) break;
+
+                records.add(new String(payload.array(), StandardCharsets.UTF_8));
+                pos += FRAME_HEADER + length;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Tömmer loggen (efter en lyckad checkpoint).
+     */
+    public void reset() throws IOException {
+        synchronized (lock) {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Storlek på loggen i bytes.
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] frame(String record) {
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+        buf.putInt(payload.length);
+        buf.putInt(checksum(payload, payload.length));
+        buf.put(payload);
+        return buf.array();
+    }
+
+    private static int checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,58 @@
+package service;
+
+/**
+ * Bloomfilter över 64-bitars hashvärden.
+ *
+ * Svarar "finns säkert inte" eller "finns kanske" med en liten andel falska ja
+ * (falsePositiveRate), och tar bara ungefär 10 bitar per värde vid 1 %.
+ * Värdena ska redan vara väl spridda hashvärden; de k bitpositionerna tas fram
+ * med dubbelhashning av värdets två halvor.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expected ungefär hur många värden som ska läggas in
+     * @param falsePositiveRate önskad andel falska "finns kanske" (t.ex. 0.01)
+     */
+    public BloomFilter(long expected, double falsePositiveRate) {
+        long n = Math.max(1, expected);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, m);
+        this.bits = new long[(int) ((m + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * False = värdet har säkert inte lagts in. True = det har troligen lagts in.
+     */
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Filtrets storlek i byte.
+     */
+    public long sizeInBytes() {
+        return bits.length * 8L;
+    }
+}
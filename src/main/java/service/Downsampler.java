@@ -0,0 +1,85 @@
+package service;
+
+/**
+ * Minskar antalet punkter i en tidsserie innan den ritas, så att ett diagram med
+ * t.ex. 20 års dagliga värden bara behöver rita ungefär en punkt per pixel.
+ *
+ * Jag använder Largest-Triangle-Three-Buckets (LTTB): serien delas i lika stora
+ * "hinkar", och från varje hink väljs den punkt som bildar störst triangel med
+ * punkten som valdes i förra hinken och medelvärdet av nästa hink. Det behåller
+ * toppar och dalar mycket bättre än att bara ta var n:te punkt.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Väljer högst threshold punkter ur x[from, to) / y[from, to) med LTTB.
+     * x måste vara stigande. Första och sista punkten tas alltid med.
+     *
+     * @return index (i x/y) för de valda punkterna, i stigande ordning
+     */
+    public static int[] lttb(double[] x, double[] y, int from, int to, int threshold) {
+        int n = to - from;
+        if (n <= 0 || threshold <= 0) return new int[0];
+        if (n <= threshold) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = from + i;
+            return all;
+        }
+        // För få punkter för LTTB – ta första (och sista)
+        if (threshold == 1) return new int[]{from};
+        if (threshold == 2) return new int[]{from, to - 1};
+
+        int[] selected = new int[threshold];
+        int s = 0;
+        selected[s++] = from;
+
+        // Hinkarna täcker alla punkter utom första och sista
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int a = from;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            int bucketStart = from + 1 + (int) Math.floor(i * bucketSize);
+            int bucketEnd = from + 1 + (int) Math.floor((i + 1) * bucketSize);
+
+            // Medelpunkt för nästa hink (eller sista punkten)
+            int nextStart = bucketEnd;
+            int nextEnd = Math.min(from + 1 + (int) Math.floor((i + 2) * bucketSize), to);
+            double avgX;
+            double avgY;
+            if (nextStart >= to - 1 || nextEnd <= nextStart) {
+                avgX = x[to - 1];
+                avgY = y[to - 1];
+            } else {
+                avgX = 0;
+                avgY = 0;
+                for (int j = nextStart; j < nextEnd; j++) {
+                    avgX += x[j];
+                    avgY += y[j];
+                }
+                avgX /= nextEnd - nextStart;
+                avgY /= nextEnd - nextStart;
+            }
+
+            // Punkten i hinken som ger störst triangel
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int chosen = bucketStart;
+            for (int j = bucketStart; j < bucketEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            selected[s++] = chosen;
+            a = chosen;
+        }
+
+        selected[s] = to - 1;
+        return selected;
+    }
+}
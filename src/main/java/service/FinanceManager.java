@@ -1,15 +1,21 @@
 package service;
 
+import domain.DailyTotal;
 import domain.Transaction;
+import domain.TransactionChange;
 import domain.User;
+import metrics.CacheStats;
+import metrics.Metrics;
 import repository.JdbcTransactionRepository;
 import repository.JdbcUserRepository;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoField;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Service-klass som innehåller applikationens affärslogik.
@@ -33,10 +39,28 @@ public class FinanceManager {
     // Inloggad användares användarnamn
     private String currentUsername = null;
 
+    // Sökindex för inloggad användare (null tills loadSearchIndex har körts)
+    private volatile TransactionSearchIndex searchIndex = null;
+
+    // Ändringar som görs medan sökindexet läses in – spelas upp på det nya indexet när
+    // inläsningen är klar (null när ingen inläsning pågår). Ökas när indexet kastas, så
+    // att en inläsning som pågick då inte publiceras. Båda skyddas av searchIndexLock.
+    private final Object searchIndexLock = new Object();
+    private List<Consumer<TransactionSearchIndex>> pendingIndexEdits = null;
+    private int searchIndexVersion = 0;
+
+    // Träff = sökning med inläst index, miss = index saknas, borttagen = kastat vid in-/utloggning
+    // eller import (JMX, se metrics.Metrics)
+    private static final CacheStats SEARCH_INDEX_STATS = Metrics.cache("searchIndex");
+
     // Skapar repositories vid start av applikationen
     public FinanceManager() {
         this.txRepository = new JdbcTransactionRepository();
         this.userRepository = new JdbcUserRepository();
+        SEARCH_INDEX_STATS.setSize(() -> {
+            TransactionSearchIndex index = searchIndex;
+            return index == null ? 0 : index.size();
+        });
     }
 
     // ===== Autentisering / konto =====
@@ -93,12 +117,14 @@ public class FinanceManager {
         if (user == null) return;
         this.currentUserId = user.getId();
         this.currentUsername = user.getUsername();
+        dropSearchIndex();
     }
 
     // Loggar ut aktuell användare
     public void logout() {
         this.currentUserId = null;
         this.currentUsername = null;
+        dropSearchIndex();
     }
 
     // Kontrollerar om någon användare är inloggad
@@ -127,21 +153,145 @@ public class FinanceManager {
 
     /**
      * Lägger till en ny transaktion för inloggad användare.
+     * Returnerar den sparade transaktionen (med id från databasen).
+     * Kastar RuntimeException om den inte kunde sparas.
      */
-    public void addTransaction(Transaction tx) {
+    public Transaction addTransaction(Transaction tx) {
         if (!isAuthenticated()) throw new IllegalStateException("Ingen användare inloggad");
-        txRepository.saveForUser(tx, this.currentUserId);
+        Transaction saved = txRepository.saveForUser(tx, this.currentUserId);
+        updateSearchIndex(index -> index.add(saved),
+                // Raden kan redan ha kommit med i inläsningen
+                index -> {
+                    if (!index.contains(saved.getId())) index.add(saved);
+                });
+        return saved;
     }
 
     /**
      * Tar bort en transaktion baserat på index.
      */
     public boolean removeTransaction(Transaction tx) {
+        return removeTransactionById(tx.getId());
+    }
+
+    /**
+     * Tar bort en transaktion via dess id (utan att hämta listan först).
+     * Returnerar false om den inte finns eller tillhör någon annan.
+     */
+    public boolean removeTransactionById(int transactionId) {
         if (!isAuthenticated()) return false;
-        return txRepository.deleteByIdForUser(tx.getId(), currentUserId);
+        boolean removed = txRepository.deleteByIdForUser(transactionId, currentUserId);
+        if (removed) {
+            updateSearchIndex(index -> index.remove(transactionId), index -> index.remove(transactionId));
+        }
+        return removed;
+    }
+
+    // ===== Sökning =====
+
+    /**
+     * Läser alla transaktioner för inloggad användare in i ett sökindex (tar en stund för
+     * en stor historik, så anropa den i bakgrunden). Därefter hålls indexet uppdaterat
+     * av addTransaction och removeTransaction, även för ändringar under inläsningen.
+     * En inläsning i taget.
+     */
+    public void loadSearchIndex() {
+        if (!isAuthenticated()) return;
+        int userId = this.currentUserId;
+        int version;
+        List<Consumer<TransactionSearchIndex>> edits = new ArrayList<>();
+        synchronized (searchIndexLock) {
+            version = searchIndexVersion;
+            pendingIndexEdits = edits;
+        }
+
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        try {
+            txRepository.forEachForUser(userId, index::add);
+        } catch (RuntimeException e) {
+            synchronized (searchIndexLock) {
+                if (pendingIndexEdits == edits) pendingIndexEdits = null;
+            }
+            throw e;
+        }
+
+        synchronized (searchIndexLock) {
+            if (pendingIndexEdits == edits) pendingIndexEdits = null;
+            // Har någon loggat ut/in eller importerat under tiden är indexet inaktuellt
+            if (version == searchIndexVersion) {
+                for (Consumer<TransactionSearchIndex> edit : edits) {
+                    edit.accept(index);
+                }
+                searchIndex = index;
+            }
+        }
+    }
+
+    /**
+     * True när sökindexet är inläst.
+     */
+    public boolean isSearchReady() {
+        return searchIndex != null;
+    }
+
+    /**
+     * Söker bland inloggad användares transaktioner (kräver loadSearchIndex).
+     *
+     * @param cancelled kontrolleras under sökningen; blir den true avbryts sökningen
+     */
+    public TransactionSearchIndex.Result search(TransactionSearchIndex.Query query, BooleanSupplier cancelled) {
+        TransactionSearchIndex index = searchIndex;
+        if (index == null) {
+            SEARCH_INDEX_STATS.miss();
+            throw new IllegalStateException("Sökindexet är inte inläst");
+        }
+        SEARCH_INDEX_STATS.hit();
+        return index.search(query, cancelled);
     }
 
+    // Kastar sökindexet (byggs om av nästa loadSearchIndex)
+    private void dropSearchIndex() {
+        synchronized (searchIndexLock) {
+            if (searchIndex != null) SEARCH_INDEX_STATS.evicted();
+            searchIndex = null;
+            searchIndexVersion++;
+        }
+    }
+
+    // Ändrar det inlästa indexet med live, och sparar pending till en pågående inläsning
+    private void updateSearchIndex(Consumer<TransactionSearchIndex> live, Consumer<TransactionSearchIndex> pending) {
+        synchronized (searchIndexLock) {
+            if (searchIndex != null) live.accept(searchIndex);
+            if (pendingIndexEdits != null) pendingIndexEdits.add(pending);
+        }
+    }
+
+
+
+    /**
+     * Hämtar en sida transaktioner (offset/limit) för inloggad användare.
+     */
+    public List<Transaction> getTransactionPage(int offset, int limit) {
+        if (!isAuthenticated()) return new ArrayList<>();
+        return txRepository.findPageForUser(this.currentUserId, offset, limit);
+    }
+
+    /**
+     * Hämtar en sida transaktioner med valfritt filter (datumintervall och/eller text
+     * i beskrivningen, null = inget villkor) för inloggad användare.
+     */
+    public List<Transaction> getTransactionPage(LocalDate from, LocalDate to, String text, int offset, int limit) {
+        if (!isAuthenticated()) return new ArrayList<>();
+        return txRepository.findPageForUser(this.currentUserId, from, to, text, offset, limit);
+    }
 
+    /**
+     * Antal transaktioner som matchar filtret (samma som getTransactionPage).
+     */
+    public int getTransactionCount(LocalDate from, LocalDate to, String text) {
+        if (!isAuthenticated()) return 0;
+        return txRepository.countForUser(this.currentUserId, from, to, text);
+    }
 
     /**
      * Returnerar antal transaktioner för inloggad användare.
@@ -188,8 +338,8 @@ public class FinanceManager {
      * Beräknar aktuell balans (inkomster - utgifter).
      */
     public double getBalance() {
-        var all = getAllTransactions();
-        return all.stream().mapToDouble(Transaction::getAmount).sum();
+        if (!isAuthenticated()) return 0.0;
+        return txRepository.sumForUser(this.currentUserId);
     }
 
     /**
@@ -210,70 +360,100 @@ public class FinanceManager {
      * Returnerar inkomst för en specifik månad.
      */
     public double getMonthlyIncome(int year, int month) {
-        var all = getAllTransactions();
-        return all.stream()
-                .filter(t -> t.getDate() != null && t.getDate().getYear() == year && t.getDate().getMonthValue() == month)
-                .mapToDouble(t -> t.getAmount() > 0 ? t.getAmount() : 0.0)
-                .sum();
+        return TransactionTotals.monthlyIncome(getAllTransactions(), year, month);
     }
 
     /**
      * Returnerar utgifter för en specifik månad.
      */
     public double getMonthlyExpenses(int year, int month) {
-        var all = getAllTransactions();
-        return all.stream()
-                .filter(t -> t.getDate() != null && t.getDate().getYear() == year && t.getDate().getMonthValue() == month)
-                .mapToDouble(t -> t.getAmount() < 0 ? Math.abs(t.getAmount()) : 0.0)
-                .sum();
+        return TransactionTotals.monthlyExpenses(getAllTransactions(), year, month);
     }
 
     /**
      * Returnerar inkomst för en specifik vecka.
      */
     public double getWeeklyIncome(int year, int week) {
-        var all = getAllTransactions();
-        return all.stream()
-                .filter(t -> t.getDate() != null && t.getDate().getYear() == year && weekOfYear(t.getDate()) == week)
-                .mapToDouble(t -> t.getAmount() > 0 ? t.getAmount() : 0.0)
-                .sum();
+        return TransactionTotals.weeklyIncome(getAllTransactions(), year, week);
     }
 
     /**
      * Returnerar utgifter för en specifik vecka.
      */
     public double getWeeklyExpenses(int year, int week) {
-        var all = getAllTransactions();
-        return all.stream()
-                .filter(t -> t.getDate() != null && t.getDate().getYear() == year && weekOfYear(t.getDate()) == week)
-                .mapToDouble(t -> t.getAmount() < 0 ? Math.abs(t.getAmount()) : 0.0)
-                .sum();
+        return TransactionTotals.weeklyExpenses(getAllTransactions(), year, week);
     }
 
     /**
      * Returnerar inkomst för ett specifikt datum.
      */
     public double getDailyIncome(LocalDate date) {
-        var all = getAllTransactions();
-        return all.stream()
-                .filter(t -> t.getDate() != null && t.getDate().isEqual(date))
-                .mapToDouble(t -> t.getAmount() > 0 ? t.getAmount() : 0.0)
-                .sum();
+        return TransactionTotals.dailyIncome(getAllTransactions(), date);
     }
 
     /**
      * Returnerar utgifter för ett specifikt datum.
      */
     public double getDailyExpenses(LocalDate date) {
-        var all = getAllTransactions();
-        return all.stream()
-                .filter(t -> t.getDate() != null && t.getDate().isEqual(date))
-                .mapToDouble(t -> t.getAmount() < 0 ? Math.abs(t.getAmount()) : 0.0)
-                .sum();
+        return TransactionTotals.dailyExpenses(getAllTransactions(), date);
+    }
+
+    /**
+     * Dagliga inkomster, utgifter och löpande balans för inloggad användare (till diagrammen).
+     * Summeringen per dag görs i databasen.
+     */
+    public TimeSeries getDailySeries() {
+        if (!isAuthenticated()) return TimeSeries.fromDailyTotals(new ArrayList<>());
+        return TimeSeries.fromDailyTotals(txRepository.findDailyTotalsForUser(currentUserId));
+    }
+
+    // ===== Ändringar (inkrementell synk) =====
+
+    /**
+     * Ändringar i inloggad användares transaktioner efter löpnummer since, i nummerordning
+     * (högst limit). Spara sista numret och fråga igen med det för att hålla en kopia i synk.
+     * Null om ändringarna inte finns kvar – hämta då om allt.
+     */
+    public List<TransactionChange> getChangesSince(long since, int limit) {
+        if (!isAuthenticated()) return new ArrayList<>();
+        return txRepository.findChangesSinceForUser(this.currentUserId, since, limit);
     }
 
-    // Hjälpmetod för att räkna ut veckonummer från datum
-    private int weekOfYear(LocalDate date) {
-        return date.get(ChronoField.ALIGNED_WEEK_OF_YEAR);
+    /**
+     * Senaste löpnumret för inloggad användare. Läs det innan allt hämtas,
+     * och synka sedan från det numret.
+     */
+    public long getLatestChangeSequence() {
+        if (!isAuthenticated()) return 0;
+        return txRepository.latestChangeSequenceForUser(this.currentUserId);
+    }
+
+    // ===== Batch (import/export/rapporter utan meny) =====
+
+    /**
+     * Importerar transaktioner strömmande för inloggad användare (batch-insert).
+     * Rader som redan finns (t.ex. från ett tidigare, överlappande utdrag) hoppas över.
+     */
+    public TransactionImporter.Result importTransactions(Iterator<Transaction> rows) {
+        if (!isAuthenticated()) throw new IllegalStateException("Ingen användare inloggad");
+        dropSearchIndex(); // byggs om vid nästa sökning
+        return new TransactionImporter(txRepository, this.currentUserId).importAll(rows);
+    }
+
+    /**
+     * Skickar inloggad användares transaktioner i ett datumintervall (sorterade på datum)
+     * till action, en i taget. from/to får vara null.
+     */
+    public void exportTransactions(LocalDate from, LocalDate to, Consumer<Transaction> action) {
+        if (!isAuthenticated()) return;
+        txRepository.forEachInDateRangeForUser(this.currentUserId, from, to, action);
+    }
+
+    /**
+     * Inkomster och utgifter per period ("day", "week", "month", "year") mellan två datum.
+     */
+    public List<DailyTotal> getTotalsByPeriod(String period, LocalDate from, LocalDate to) {
+        if (!isAuthenticated()) return new ArrayList<>();
+        return txRepository.findTotalsByPeriodForUser(this.currentUserId, period, from, to);
     }
 }
@@ -0,0 +1,93 @@
+package service;
+
+import repository.ConnectionPool;
+import repository.Database;
+import repository.JdbcTransactionRepository;
+import repository.JdbcUserRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Värmer upp databasdelen medan användaren loggar in, så att första skärmen efter
+ * inloggningen inte får betala för allt som görs första gången.
+ *
+ * Faser (tiden för var och en skrivs ut):
+ * <ol>
+ *   <li>inställningar och JDBC-drivrutin (Database-klassens static-block)</li>
+ *   <li>poolens minsta antal connections öppnas, parallellt</li>
+ *   <li>på varje connection förbereds frågorna som körs efter inloggning</li>
+ * </ol>
+ * Misslyckas något (t.ex. databasen är nere) skrivs det bara ut; det riktiga felet
+ * visas när inloggningen försöker använda databasen.
+ */
+public final class StartupWarmup {
+
+    private StartupWarmup() {
+    }
+
+    /**
+     * Startar uppvärmningen på bakgrundstrådar och returnerar direkt.
+     * Framtiden blir klar när alla faser är klara (eller har misslyckats).
+     */
+    public static CompletableFuture<Void> start() {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "startup-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    long t0 = System.nanoTime();
+                    ConnectionPool pool = Database.getPool(); // kör static-blocket
+                    logPhase("drivrutin", t0);
+                    return pool;
+                }, executor)
+                .thenCompose(pool -> {
+                    List<CompletableFuture<Void>> connections = new ArrayList<>();
+                    for (int i = 0; i < Database.getPoolMin(); i++) {
+                        connections.add(CompletableFuture.runAsync(() -> warmConnection(pool), executor));
+                    }
+                    return CompletableFuture.allOf(connections.toArray(new CompletableFuture<?>[0]));
+                })
+                .handle((ok, e) -> {
+                    if (e != null) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        System.out.println("Uppvärmningen misslyckades: " + cause.getMessage());
+                    }
+                    logPhase("uppvärmning totalt", start);
+                    executor.shutdown();
+                    return null;
+                });
+    }
+
+    /**
+     * Skriver ut hur lång tid en fas tog (från startNanos till nu).
+     */
+    public static void logPhase(String phase, long startNanos) {
+        System.out.printf("Uppstart: %-22s %6d ms%n", phase, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    // Öppnar en ny connection (om poolen inte redan har sitt minsta antal) och förbereder frågorna
+    private static void warmConnection(ConnectionPool pool) {
+        long t0 = System.nanoTime();
+        try (Connection c = pool.openIfBelow(Database.getPoolMin())) {
+            if (c == null) return; // redan tillräckligt många öppna
+            logPhase("anslutning", t0);
+
+            long t1 = System.nanoTime();
+            JdbcUserRepository.warmUp(c);
+            JdbcTransactionRepository.warmUp(c);
+            logPhase("förberedda frågor", t1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package service;
+
+import domain.Transaction;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Påhittad men rimlig transaktionshistorik för en användare, för test i stor skala.
+ *
+ * Samma frö och användarnummer ger alltid exakt samma rader, oberoende av andra
+ * användare, så historiker kan skapas parallellt och ändå bli likadana varje gång.
+ * Raderna kommer dag för dag i datumordning och bara en dag i taget hålls i minnet.
+ *
+ * Innehåll:
+ * <ul>
+ *   <li>lön den 25:e (fredagen innan om den 25:e är en helg), med lönehöjning varje år
+ *       och semesterersättning i juni</li>
+ *   <li>fasta räkningar: hyra, mobil, streamingtjänster, hemförsäkring varje kvartal,
+ *       el som är dyrast på vintern och ibland CSN</li>
+ *   <li>vardagsköp: några per dag, fler på fredagar, lördagar och i december; butiken
+ *       väljs snett (Zipf) så att några få butiker står för de flesta köpen, och beloppet
+ *       varierar kring butikens typiska belopp (lognormalt)</li>
+ *   <li>ibland en swish in och en skatteåterbäring på försommaren</li>
+ * </ul>
+ * Nivåerna (lön, hyra, köpvanor) slumpas per användare.
+ */
+public class SyntheticHistory implements Iterator<Transaction> {
+
+    // Butiker i popularitetsordning, med typiskt belopp i kr
+    private static final String[] MERCHANTS = {
+            "ICA Nära", "Coop", "Willys", "Pressbyrån", "SL", "Lidl", "ICA Maxi", "Espresso House",
+            "Max Hamburgare", "Apotek Hjärtat", "Systembolaget", "Circle K", "Hemköp", "Foodora",
+            "Clas Ohlson", "H&M", "Åhléns", "Biltema", "Jula", "Stadium", "Kjell & Company",
+            "IKEA", "Elgiganten", "Akademibokhandeln", "SF Bio", "Bauhaus", "Lindex", "Apoteket",
+            "Webhallen", "Zalando", "Normal", "Naturkompaniet", "Mediamarkt", "Dressmann",
+            "Granngården", "Tiger of Sweden", "Synsam", "Rusta", "Ur&Penn", "Stadium Outlet"
+    };
+    private static final double[] MERCHANT_AMOUNTS = {
+            180, 320, 650, 45, 42, 280, 1100, 65,
+            120, 210, 340, 620, 260, 240,
+            190, 450, 390, 520, 480, 700, 310,
+            1800, 2400, 260, 150, 900, 420, 180,
+            1300, 800, 120, 1100, 2100, 600,
+            380, 2500, 1900, 240, 95, 550
+    };
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final double[] MERCHANT_CDF = zipfCdf(MERCHANTS.length, ZIPF_EXPONENT);
+
+    // Spridning på köpbeloppen (lognormal sigma)
+    private static final double AMOUNT_SIGMA = 0.55;
+
+    private final SplittableRandom random;
+    private final LocalDate end;
+    private final ArrayDeque<Transaction> today = new ArrayDeque<>();
+    private LocalDate day;
+
+    // Användarens nivåer
+    private double salary;
+    private final double rent;
+    private final double electricity;
+    private final double purchasesPerDay;
+    private final boolean studentLoan;
+    private final int streamingServices;
+    private int salaryYear;
+
+    /**
+     * @param seed gemensamt frö för hela datamängden
+     * @param userIndex användarens nummer (0, 1, 2, ...)
+     * @param from första dagen
+     * @param to sista dagen (inklusive)
+     */
+    public SyntheticHistory(long seed, int userIndex, LocalDate from, LocalDate to) {
+        // Egen slumpström per användare, härledd ur fröet (samma resultat i vilken tråd som helst)
+        this.random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + userIndex);
+        this.day = from;
+        this.end = to;
+        this.salaryYear = from.getYear();
+
+        this.salary = roundTo(logNormal(29_000, 0.3), 100);
+        this.rent = roundTo(salary * (0.22 + random.nextDouble() * 0.15), 10);
+        this.electricity = 250 + random.nextDouble() * 600;
+        this.purchasesPerDay = 0.8 + random.nextDouble() * 2.2;
+        this.studentLoan = random.nextDouble() < 0.3;
+        this.streamingServices = random.nextInt(4);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (today.isEmpty() && !day.isAfter(end)) {
+            generate(day);
+            day = day.plusDays(1);
+        }
+        return !today.isEmpty();
+    }
+
+    @Override
+    public Transaction next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return today.poll();
+    }
+
+    private void generate(LocalDate d) {
+        int dayOfMonth = d.getDayOfMonth();
+        int month = d.getMonthValue();
+
+        // Lön (med årlig höjning från första lönen på nya året)
+        if (dayOfMonth >= 23 && dayOfMonth <= 25 && d.equals(payday(d))) {
+            if (d.getYear() != salaryYear) {
+                salaryYear = d.getYear();
+                salary = roundTo(salary * (1.02 + random.nextDouble() * 0.025), 10);
+            }
+            add(d, salary, "Lön");
+            if (month == 6) add(d, roundTo(salary * 0.12, 1), "Semesterersättning");
+        }
+
+        // Fasta räkningar
+        if (dayOfMonth == 1) add(d, -rent, "Hyra");
+        if (dayOfMonth == 12) add(d, -299, "Mobilabonnemang");
+        if (dayOfMonth == 28) {
+            // Elen kostar mest i januari och minst i juli
+            double season = 1 + 0.6 * Math.cos(2 * Math.PI * (month - 1) / 12.0);
+            add(d, -electricity * season * (0.9 + random.nextDouble() * 0.2), "Elräkning");
+        }
+        if (dayOfMonth == 5 && streamingServices > 0) add(d, -119, "Spotify");
+        if (dayOfMonth == 8 && streamingServices > 1) add(d, -149, "Netflix");
+        if (dayOfMonth == 17 && streamingServices > 2) add(d, -109, "Viaplay");
+        if (dayOfMonth == 10 && (month - 1) % 3 == 0) add(d, -435, "Hemförsäkring");
+        if (studentLoan && dayOfMonth == d.lengthOfMonth()) add(d, -1_650, "CSN");
+
+        // Vardagsköp
+        int purchases = poisson(purchasesPerDay * weekdayFactor(d.getDayOfWeek()) * monthFactor(month));
+        for (int i = 0; i < purchases; i++) {
+            int m = merchant();
+            add(d, -logNormal(MERCHANT_AMOUNTS[m], AMOUNT_SIGMA), MERCHANTS[m]);
+        }
+
+        // Ibland pengar in
+        if (random.nextDouble() < 0.03) add(d, 50 + random.nextInt(20) * 25, "Swish");
+        if (month == 6 && dayOfMonth == 3 && random.nextDouble() < 0.6) {
+            add(d, 500 + random.nextInt(80) * 100, "Skatteåterbäring");
+        }
+    }
+
+    private void add(LocalDate d, double amount, String description) {
+        today.add(new Transaction(d, Math.round(amount * 100) / 100.0, description));
+    }
+
+    // Den 25:e, eller fredagen innan om den 25:e är lördag/söndag
+    private static LocalDate payday(LocalDate d) {
+        LocalDate p = d.withDayOfMonth(25);
+        return switch (p.getDayOfWeek()) {
+            case SATURDAY -> p.minusDays(1);
+            case SUNDAY -> p.minusDays(2);
+            default -> p;
+        };
+    }
+
+    private static double weekdayFactor(DayOfWeek dow) {
+        return switch (dow) {
+            case FRIDAY -> 1.4;
+            case SATURDAY -> 1.6;
+            case SUNDAY -> 0.7;
+            default -> 1.0;
+        };
+    }
+
+    private static double monthFactor(int month) {
+        return switch (month) {
+            case 12 -> 1.35;
+            case 7 -> 1.15;
+            case 1 -> 0.85;
+            default -> 1.0;
+        };
+    }
+
+    // Butik enligt Zipf-fördelningen (binärsökning i den kumulativa fördelningen)
+    private int merchant() {
+        double u = random.nextDouble();
+        int lo = 0, hi = MERCHANT_CDF.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (MERCHANT_CDF[mid] < u) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Poissonfördelat antal (Knuths metod, räcker för små medelvärden)
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double p = random.nextDouble();
+        int k = 0;
+        while (p > limit) {
+            p *= random.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+    // Lognormalt tal med givet medelvärde
+    private double logNormal(double mean, double sigma) {
+        return mean * Math.exp(sigma * random.nextGaussian() - sigma * sigma / 2);
+    }
+
+    private static double roundTo(double value, double step) {
+        return Math.round(value / step) * step;
+    }
+
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,103 @@
+package service;
+
+import domain.DailyTotal;
+import domain.Transaction;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dagliga inkomster, utgifter och löpande balans som parallella arrayer,
+ * sorterade på datum. Det är det här diagrammen ritas ifrån (inte enskilda rader),
+ * så storleken beror på antal dagar, inte antal transaktioner.
+ */
+public final class TimeSeries {
+
+    private final double[] days;      // epochDay som double (x-axeln)
+    private final double[] income;
+    private final double[] expenses;
+    private final double[] balance;   // löpande summa av netto t.o.m. dagen
+
+    private TimeSeries(double[] days, double[] income, double[] expenses, double[] balance) {
+        this.days = days;
+        this.income = income;
+        this.expenses = expenses;
+        this.balance = balance;
+    }
+
+    /**
+     * Bygger serien från färdiga dagssummor (t.ex. GROUP BY date i databasen).
+     * Listan måste vara sorterad på datum.
+     */
+    public static TimeSeries fromDailyTotals(List<DailyTotal> totals) {
+        int n = totals.size();
+        double[] days = new double[n];
+        double[] income = new double[n];
+        double[] expenses = new double[n];
+        double[] balance = new double[n];
+
+        double running = 0;
+        for (int i = 0; i < n; i++) {
+            DailyTotal t = totals.get(i);
+            days[i] = t.getDate().toEpochDay();
+            income[i] = t.getIncome();
+            expenses[i] = t.getExpenses();
+            running += t.getNet();
+            balance[i] = running;
+        }
+        return new TimeSeries(days, income, expenses, balance);
+    }
+
+    /**
+     * Summerar enskilda transaktioner per dag (för lagring utan SQL, t.ex. filer).
+     */
+    public static List<DailyTotal> aggregateDaily(List<Transaction> transactions) {
+        Map<LocalDate, double[]> perDay = new TreeMap<>();
+        for (Transaction t : transactions) {
+            double[] sums = perDay.computeIfAbsent(t.getDate(), d -> new double[2]);
+            if (t.getAmount() > 0) sums[0] += t.getAmount();
+            else sums[1] += -t.getAmount();
+        }
+        List<DailyTotal> result = new ArrayList<>(perDay.size());
+        for (Map.Entry<LocalDate, double[]> e : perDay.entrySet()) {
+            result.add(new DailyTotal(e.getKey(), e.getValue()[0], e.getValue()[1]));
+        }
+        return result;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public double[] getDays() {
+        return days;
+    }
+
+    public double[] getIncome() {
+        return income;
+    }
+
+    public double[] getExpenses() {
+        return expenses;
+    }
+
+    public double[] getBalance() {
+        return balance;
+    }
+
+    /**
+     * Första index vars dag är >= day (size() om ingen).
+     */
+    public int indexAtOrAfter(double day) {
+        int i = Arrays.binarySearch(days, day);
+        if (i >= 0) {
+            while (i > 0 && days[i - 1] == day) i--;
+            return i;
+        }
+        return -i - 1;
+    }
+}
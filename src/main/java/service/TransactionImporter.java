@@ -0,0 +1,207 @@
+package service;
+
+import domain.Transaction;
+import repository.JdbcTransactionRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importerar kontoutdrag utan att samma rad sparas två gånger, även när utdragen överlappar.
+ *
+ * Varje rad normaliseras (beskrivningen trimmas och blanksteg slås ihop, beloppet
+ * avrundas till ören) och får en innehållshash av (datum, belopp, beskrivning).
+ * Hashen sparas i content_hash, som har ett unikt index per användare.
+ *
+ * För att slippa fråga databasen om varje rad läses användarens befintliga hashar först
+ * in i ett Bloomfilter (ca 10 bitar per rad). Säger filtret "finns inte" är raden ny
+ * och skickas direkt; säger det "finns kanske" kontrolleras hela omgångens kandidater
+ * med en enda fråga. Insättningen använder ändå ON CONFLICT DO NOTHING, så filtret
+ * behöver aldrig ha rätt för att resultatet ska bli rätt – det sparar bara arbete.
+ *
+ * Två likadana köp samma dag (två kaffe à 35 kr) är inte dubbletter. Därför räknas
+ * förekomsten av samma innehåll inom samma datum in i hashen: andra kaffet får en annan
+ * hash än det första, och samma utdrag importerat igen ger samma två hashar.
+ * Räknaren nollställs när datumet byts, vilket kräver att filen är sorterad på datum,
+ * stigande eller fallande (som bankernas utdrag är). Annars kunde samma dags rader
+ * räknas i två omgångar och det andra kaffet få samma hash som det första och försvinna,
+ * så en fil där datumen byter riktning avbryts med IllegalArgumentException.
+ * Minnet är konstant: filtret, en omgång rader och en dags räknare.
+ */
+public class TransactionImporter {
+
+    // Antal rader per omgång (en dubblettfråga, en JDBC-batch och en commit)
+    static final int BATCH_SIZE = 5_000;
+
+    // Andel falska "finns kanske" i Bloomfiltret
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Utfall av en import.
+     */
+    public static final class Result {
+        private final long read;
+        private final long imported;
+        private final long duplicates;
+
+        Result(long read, long imported, long duplicates) {
+            this.read = read;
+            this.imported = imported;
+            this.duplicates = duplicates;
+        }
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+    }
+
+    private final JdbcTransactionRepository repository;
+    private final int userId;
+    private final MessageDigest sha256;
+
+    public TransactionImporter(JdbcTransactionRepository repository, int userId) {
+        this.repository = repository;
+        this.userId = userId;
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 saknas i JVM:en", e);
+        }
+    }
+
+    /**
+     * Läser raderna en i taget och sparar de som inte redan finns.
+     * Vid fel kastas RuntimeException; omgångar som redan är sparade behålls,
+     * och en ny import av samma fil fortsätter där den slutade (resten är ju dubbletter).
+     */
+    public Result importAll(Iterator<Transaction> rows) {
+        BloomFilter seen = new BloomFilter(repository.countForUser(userId), FALSE_POSITIVE_RATE);
+        repository.forEachContentHashForUser(userId, seen::add);
+
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        long[] hashes = new long[BATCH_SIZE];
+        long[] candidates = new long[BATCH_SIZE];
+        int candidateCount = 0;
+
+        Map<String, Integer> occurrences = new HashMap<>();
+        LocalDate currentDate = null;
+        int direction = 0; // 1 = stigande datum, -1 = fallande, 0 = inte känt än
+        long read = 0;
+        long imported = 0;
+
+        while (rows.hasNext()) {
+            Transaction tx = normalize(rows.next());
+            read++;
+
+            if (!tx.getDate().equals(currentDate)) {
+                if (currentDate != null) {
+                    int step = tx.getDate().isAfter(currentDate) ? 1 : -1;
+                    if (direction == 0) {
+                        direction = step;
+                    } else if (step != direction) {
+                        throw new IllegalArgumentException("Filen är inte sorterad på datum (rad " + read
+                                + ": " + tx.getDate() + " efter " + currentDate + ")");
+                    }
+                }
+                currentDate = tx.getDate();
+                occurrences.clear();
+            }
+            String key = contentKey(tx);
+            int occurrence = occurrences.merge(key, 1, Integer::sum);
+            long hash = contentHash(key + '|' + occurrence);
+
+            hashes[batch.size()] = hash;
+            batch.add(tx);
+            if (seen.mightContain(hash)) {
+                candidates[candidateCount++] = hash;
+            }
+
+            if (batch.size() == BATCH_SIZE) {
+                imported += flush(batch, hashes, candidates, candidateCount);
+                batch.clear();
+                candidateCount = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            imported += flush(batch, hashes, candidates, candidateCount);
+        }
+        return new Result(read, imported, read - imported);
+    }
+
+    // Tar bort omgångens rader som redan finns och sparar resten. Returnerar antal sparade.
+    private int flush(List<Transaction> batch, long[] hashes, long[] candidates, int candidateCount) {
+        Set<Long> existing = repository.findExistingContentHashesForUser(userId, candidates, candidateCount);
+        if (existing.isEmpty()) {
+            return repository.insertImportedForUser(batch, hashes, userId);
+        }
+
+        List<Transaction> fresh = new ArrayList<>(batch.size() - existing.size());
+        long[] freshHashes = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            if (existing.contains(hashes[i])) continue;
+            freshHashes[fresh.size()] = hashes[i];
+            fresh.add(batch.get(i));
+        }
+        return fresh.isEmpty() ? 0 : repository.insertImportedForUser(fresh, freshHashes, userId);
+    }
+
+    /**
+     * Normaliserar en rad från ett utdrag: beskrivningen trimmas och alla blanksteg
+     * i följd blir ett mellanslag, beloppet avrundas till hela ören.
+     */
+    public static Transaction normalize(Transaction tx) {
+        double amount = Math.round(tx.getAmount() * 100) / 100.0;
+        return new Transaction(tx.getId(), tx.getDate(), amount, collapseWhitespace(tx.getDescription()));
+    }
+
+    // Nyckeln som hashas: datum|ören|beskrivning (gemener, så att "ICA" och "Ica" räknas som samma).
+    // Locale.ROOT så att samma rad ger samma nyckel oavsett JVM:ens språk (t.ex. "I" på turkiska).
+    private static String contentKey(Transaction tx) {
+        long cents = Math.round(tx.getAmount() * 100);
+        return tx.getDate() + "|" + cents + "|" + tx.getDescription().toLowerCase(Locale.ROOT);
+    }
+
+    // De första 8 byten av SHA-256 (stabilt mellan körningar och JVM:er, till skillnad från hashCode)
+    private long contentHash(String key) {
+        byte[] digest = sha256.digest(key.getBytes(StandardCharsets.UTF_8));
+        long h = 0;
+        for (int i = 0; i < 8; i++) {
+            h = (h << 8) | (digest[i] & 0xFF);
+        }
+        return h;
+    }
+
+    private static String collapseWhitespace(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = false;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) sb.append(' ');
+                sb.append(ch);
+                space = false;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package service;
+
+import domain.Transaction;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoField;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Summerar inkomster och utgifter per månad, vecka och dag över en lista i minnet.
+ * Rena statiska metoder (ingen inloggning eller databas), så att FinanceManager
+ * och benchmarkerna (src/jmh) kör exakt samma kod. Rader utan datum räknas inte.
+ * Utgifter returneras som ett positivt tal.
+ */
+public final class TransactionTotals {
+
+    private TransactionTotals() {
+    }
+
+    public static double monthlyIncome(List<Transaction> all, int year, int month) {
+        return income(all, d -> d.getYear() == year && d.getMonthValue() == month);
+    }
+
+    public static double monthlyExpenses(List<Transaction> all, int year, int month) {
+        return expenses(all, d -> d.getYear() == year && d.getMonthValue() == month);
+    }
+
+    public static double weeklyIncome(List<Transaction> all, int year, int week) {
+        return income(all, d -> d.getYear() == year && weekOfYear(d) == week);
+    }
+
+    public static double weeklyExpenses(List<Transaction> all, int year, int week) {
+        return expenses(all, d -> d.getYear() == year && weekOfYear(d) == week);
+    }
+
+    public static double dailyIncome(List<Transaction> all, LocalDate date) {
+        return income(all, d -> d.isEqual(date));
+    }
+
+    public static double dailyExpenses(List<Transaction> all, LocalDate date) {
+        return expenses(all, d -> d.isEqual(date));
+    }
+
+    // Hjälpmetod för att räkna ut veckonummer från datum
+    private static int weekOfYear(LocalDate date) {
+        return date.get(ChronoField.ALIGNED_WEEK_OF_YEAR);
+    }
+
+    private static double income(List<Transaction> all, Predicate<LocalDate> period) {
+        return all.stream()
+                .filter(t -> t.getDate() != null && period.test(t.getDate()))
+                .mapToDouble(t -> t.getAmount() > 0 ? t.getAmount() : 0.0)
+                .sum();
+    }
+
+    private static double expenses(List<Transaction> all, Predicate<LocalDate> period) {
+        return all.stream()
+                .filter(t -> t.getDate() != null && period.test(t.getDate()))
+                .mapToDouble(t -> t.getAmount() < 0 ? Math.abs(t.getAmount()) : 0.0)
+                .sum();
+    }
+}
@@ -0,0 +1,110 @@
+package test;
+
+import domain.Transaction;
+import repository.storage.CompressedTransactionStore;
+import repository.storage.TransactionCsvDataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Jämför vanlig CSV (TransactionCsvDataStore) med blockkomprimerad .pfz
+ * (CompressedTransactionStore, snabbaste och standardnivå): filstorlek,
+ * komprimeringsgrad, läsning av hela filen och en datumfråga över en månad.
+ *
+ * Körs med: java test.CompressionBenchmark [antal rader] [varv]
+ */
+public class CompressionBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<Transaction> sample = sample(rows);
+        LocalDate from = sample.get(rows / 2).getDate();
+        LocalDate to = from.plusMonths(1);
+
+        File csvFile = Files.createTempFile("pf-bench", ".csv").toFile();
+        File fastFile = Files.createTempFile("pf-bench-1", CompressedTransactionStore.EXTENSION).toFile();
+        File defaultFile = Files.createTempFile("pf-bench-6", CompressedTransactionStore.EXTENSION).toFile();
+        csvFile.deleteOnExit();
+        fastFile.deleteOnExit();
+        defaultFile.deleteOnExit();
+
+        TransactionCsvDataStore csv = new TransactionCsvDataStore(csvFile);
+        CompressedTransactionStore fast = new CompressedTransactionStore(fastFile, Deflater.BEST_SPEED);
+        CompressedTransactionStore standard = new CompressedTransactionStore(defaultFile);
+
+        long csvWrite = time(() -> csv.writeAll(sample));
+        long fastWrite = time(() -> fast.writeAll(sample));
+        long defaultWrite = time(() -> standard.writeAll(sample));
+
+        // Uppvärmning
+        for (int i = 0; i < rounds; i++) {
+            csv.readAll();
+            fast.readAll();
+            standard.readAll();
+        }
+
+        long csvRead = 0, fastRead = 0, defaultRead = 0;
+        long csvRange = 0, fastRange = 0, defaultRange = 0;
+        for (int i = 0; i < rounds; i++) {
+            csvRead += time(csv::readAll);
+            fastRead += time(fast::readAll);
+            defaultRead += time(standard::readAll);
+            csvRange += time(() -> csv.readAll().removeIf(t -> t.getDate().isBefore(from) || t.getDate().isAfter(to)));
+            fastRange += time(() -> fast.findByDateRange(from, to));
+            defaultRange += time(() -> standard.findByDateRange(from, to));
+        }
+        if (fast.readAll().size() != rows || standard.readAll().size() != rows) {
+            throw new IllegalStateException("Fel antal rader efter läsning");
+        }
+
+        System.out.printf("%d rader, %d kärnor, datumfråga %s – %s%n%n",
+                rows, Runtime.getRuntime().availableProcessors(), from, to);
+        System.out.printf("%-12s %10s %8s %10s %12s %14s %12s%n",
+                "Format", "Storlek", "Kvot", "Skriv ms", "Läs ms", "Läs MB/s", "Intervall ms");
+        report("CSV", csvFile.length(), csvFile.length(), csvWrite, csvRead / rounds, csvRange / rounds);
+        report(".pfz nivå 1", fastFile.length(), csvFile.length(), fastWrite, fastRead / rounds, fastRange / rounds);
+        report(".pfz nivå 6", defaultFile.length(), csvFile.length(), defaultWrite, defaultRead / rounds, defaultRange / rounds);
+    }
+
+    // Läshastigheten räknas på CSV-storleken, dvs. hur mycket "rådata" som läses per sekund
+    private static void report(String name, long size, long csvSize, long writeNanos, long readNanos, long rangeNanos) {
+        System.out.printf("%-12s %8.1f MB %7.2fx %10.0f %12.1f %14.1f %12.1f%n",
+                name,
+                size / (1024.0 * 1024.0),
+                (double) csvSize / size,
+                writeNanos / 1e6,
+                readNanos / 1e6,
+                csvSize / (1024.0 * 1024.0) / (readNanos / 1e9),
+                rangeNanos / 1e6);
+    }
+
+    private static long time(Runnable r) {
+        long t0 = System.nanoTime();
+        r.run();
+        return System.nanoTime() - t0;
+    }
+
+    // Samma slags data som i CsvParseBenchmark: datum i stigande ordning, blandade belopp
+    private static List<Transaction> sample(int rows) {
+        String[] descriptions = {"lön", "ICA Maxi", "hyra", "nocco", "pizza", "el; nät", "Spotify", "SL-kort"};
+        Random random = new Random(42);
+        LocalDate date = LocalDate.of(2000, 1, 1);
+
+        List<Transaction> items = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            if (random.nextInt(4) == 0) date = date.plusDays(1);
+            double amount = (random.nextInt(2_000_000) - 1_000_000) / 100.0;
+            items.add(new Transaction(date, amount, descriptions[random.nextInt(descriptions.length)]));
+        }
+        return items;
+    }
+}
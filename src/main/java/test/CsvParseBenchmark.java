@@ -0,0 +1,94 @@
+package test;
+
+import domain.Transaction;
+import repository.storage.CsvDataStore;
+import repository.storage.MappedTransactionParser;
+import repository.storage.ParallelTransactionLoader;
+import repository.storage.TransactionLineConverter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Enkel benchmark: jämför CsvDataStore + TransactionLineConverter (BufferedReader, split,
+ * LocalDate.parse, Double.parseDouble) med MappedTransactionParser, sekventiellt och
+ * uppdelad på alla kärnor via ParallelTransactionLoader, på samma fil.
+ *
+ * Körs med: java test.CsvParseBenchmark [antal rader] [varv]
+ */
+public class CsvParseBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        File file = Files.createTempFile("pf-bench", ".csv").toFile();
+        file.deleteOnExit();
+        writeSample(file, rows);
+        System.out.printf("Fil: %d rader, %.1f MB%n", rows, file.length() / (1024.0 * 1024.0));
+
+        CsvDataStore<Transaction> lineStore = new CsvDataStore<>(file, new TransactionLineConverter());
+
+        // Uppvärmning så att JIT hinner kompilera alla vägar
+        for (int i = 0; i < rounds; i++) {
+            lineStore.readAll();
+            MappedTransactionParser.readAll(file);
+            ParallelTransactionLoader.readAll(file, workers, 0);
+        }
+
+        long lineNanos = 0;
+        long mappedNanos = 0;
+        long parallelNanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            List<Transaction> a = lineStore.readAll();
+            long t1 = System.nanoTime();
+            List<Transaction> b = MappedTransactionParser.readAll(file);
+            long t2 = System.nanoTime();
+            List<Transaction> c = ParallelTransactionLoader.readAll(file, workers, 0);
+            long t3 = System.nanoTime();
+
+            if (a.size() != b.size() || a.size() != c.size()) {
+                throw new IllegalStateException("Olika antal rader: " + a.size() + " / " + b.size() + " / " + c.size());
+            }
+            lineNanos += t1 - t0;
+            mappedNanos += t2 - t1;
+            parallelNanos += t3 - t2;
+        }
+
+        report("LineConverter", rows, lineNanos / rounds);
+        report("Mappad parser", rows, mappedNanos / rounds);
+        report("Parallell (" + workers + ")", rows, parallelNanos / rounds);
+        System.out.printf("Förbättring: %.2fx (sekventiell), %.2fx (parallell)%n",
+                (double) lineNanos / mappedNanos, (double) lineNanos / parallelNanos);
+    }
+
+    private static void report(String name, int rows, long nanos) {
+        double ms = nanos / 1_000_000.0;
+        System.out.printf("%-15s %8.1f ms  %,12.0f rader/s%n", name, ms, rows / (nanos / 1e9));
+    }
+
+    // Skriver en fil med blandade belopp och beskrivningar i samma format som toFileFormat()
+    private static void writeSample(File file, int rows) throws IOException {
+        String[] descriptions = {"lön", "ICA Maxi", "hyra", "nocco", "pizza", "el; nät", "Spotify", "SL-kort"};
+        Random random = new Random(42);
+        LocalDate date = LocalDate.of(2000, 1, 1);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                if (random.nextInt(4) == 0) date = date.plusDays(1);
+                double amount = (random.nextInt(2_000_000) - 1_000_000) / 100.0;
+                String description = descriptions[random.nextInt(descriptions.length)];
+                writer.write(new Transaction(date, amount, description).toFileFormat());
+                writer.newLine();
+            }
+        }
+    }
+}
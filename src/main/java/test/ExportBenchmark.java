@@ -0,0 +1,84 @@
+package test;
+
+import domain.Transaction;
+import repository.storage.ColumnarTransactionStore;
+import repository.storage.DataSink;
+import repository.storage.TransactionCsvDataStore;
+import repository.storage.TransactionStores;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Mäter exporten till CSV och kolumnformatet (.pfc): raderna skapas en i taget och skrivs
+ * direkt till sinken, precis som när de kommer från databascursorn i batchläget,
+ * så ingen lista med alla rader byggs upp. Skriver ut storlek, rader/s och MB/s.
+ *
+ * Körs med: java test.ExportBenchmark [antal rader] [varv]
+ */
+public class ExportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File csvFile = Files.createTempFile("pf-export", ".csv").toFile();
+        File columnarFile = Files.createTempFile("pf-export", ColumnarTransactionStore.EXTENSION).toFile();
+        csvFile.deleteOnExit();
+        columnarFile.deleteOnExit();
+
+        // Uppvärmning
+        for (int i = 0; i < rounds; i++) {
+            export(csvFile, rows);
+            export(columnarFile, rows);
+        }
+
+        long csvNanos = 0, columnarNanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            csvNanos += export(csvFile, rows);
+            columnarNanos += export(columnarFile, rows);
+        }
+        if (new TransactionCsvDataStore(csvFile).readAll().size() != rows
+                || new ColumnarTransactionStore(columnarFile).readAll().size() != rows) {
+            throw new IllegalStateException("Fel antal rader efter export");
+        }
+
+        System.out.printf("%d rader, medel av %d varv%n%n", rows, rounds);
+        System.out.printf("%-8s %10s %8s %10s %14s %10s%n", "Format", "Storlek", "Kvot", "ms", "rader/s", "MB/s");
+        report("CSV", rows, csvFile.length(), csvFile.length(), csvNanos / rounds);
+        report(".pfc", rows, columnarFile.length(), csvFile.length(), columnarNanos / rounds);
+    }
+
+    // Skriver rows genererade rader till filen via dess sink, returnerar tiden i ns
+    private static long export(File file, int rows) throws IOException {
+        String[] descriptions = {"lön", "ICA Maxi", "hyra", "nocco", "pizza", "el; nät", "Spotify", "SL-kort"};
+        Random random = new Random(42);
+        LocalDate date = LocalDate.of(2000, 1, 1);
+
+        long t0 = System.nanoTime();
+        try (DataSink<Transaction> sink = TransactionStores.forFile(file).openSink()) {
+            for (int i = 0; i < rows; i++) {
+                if (random.nextInt(4) == 0) date = date.plusDays(1);
+                double amount = (random.nextInt(2_000_000) - 1_000_000) / 100.0;
+                sink.write(new Transaction(i + 1, date, amount, descriptions[random.nextInt(descriptions.length)]));
+            }
+            sink.commit();
+        }
+        return System.nanoTime() - t0;
+    }
+
+    // MB/s räknas på den skrivna filens storlek
+    private static void report(String name, int rows, long size, long csvSize, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-8s %7.1f MB %7.2fx %10.0f %14.0f %10.1f%n",
+                name,
+                size / (1024.0 * 1024.0),
+                (double) csvSize / size,
+                nanos / 1e6,
+                rows / seconds,
+                size / (1024.0 * 1024.0) / seconds);
+    }
+}
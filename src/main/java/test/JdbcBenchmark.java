@@ -0,0 +1,259 @@
+package test;
+
+import app.CommandLineOptions;
+import domain.Transaction;
+import domain.User;
+import metrics.Metrics;
+import metrics.OperationStats;
+import repository.Database;
+import repository.JdbcTransactionRepository;
+import repository.JdbcUserRepository;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Mäter JdbcTransactionRepository mot en lokal PostgreSQL (inställningarna i
+ * application.properties) när tabellen växer och när flera trådar frågar samtidigt.
+ *
+ * För varje datastorlek får varje testanvändare så många rader (via saveAllForUser),
+ * och sedan körs varje operation med varje antal trådar. Trådarna delar på användarna.
+ * För varje kombination skrivs antal anrop, anrop/s och latens (p50, p90, p99, max) ut
+ * som en tabell, och som en JSON-rad per mätning i resultatfilen.
+ *
+ * Körs med:
+ * <pre>
+ *   java test.JdbcBenchmark [--users 4] [--sizes 1000,10000,100000] [--threads 1,4,8]
+ *                           [--ops 200] [--rewrites 3] [--out jdbc-benchmark.jsonl] [--keep]
+ * </pre>
+ * --ops är antal anrop per tråd, --rewrites antal saveAllForUser per tråd (skriver om hela
+ * historiken, så det är dyrt). Testanvändarna heter pfbench-N och tas bort efteråt
+ * om inte --keep anges. Fler trådar än jdbc.pool.max får vänta på en connection.
+ *
+ * Repositoryt skriver ut vissa databasfel och returnerar ett tomt svar i stället för
+ * att kasta, och ett sådant anrop går fort. Därför jämförs operationens felräknare
+ * (metrics.Metrics) före och efter varje mätning, och körningen avbryts om något
+ * anrop misslyckats – annars skulle felen se ut som snabba lyckade anrop.
+ */
+public class JdbcBenchmark {
+
+    private static final String USER_PREFIX = "pfbench-";
+
+    // Historikerna sprids över tio år; årssummorna frågar om året i mitten
+    private static final LocalDate START = LocalDate.of(2015, 1, 1);
+    private static final int DAYS = 3653;
+    private static final int YEAR = 2020;
+    private static final String[] DESCRIPTIONS = {"lön", "ICA Maxi", "hyra", "nocco", "pizza", "el", "Spotify", "SL-kort"};
+
+    // En operation som mäts: anropas med trådens användare och ett löpnummer
+    private interface Operation {
+        void run(int userId, int i);
+    }
+
+    private final JdbcTransactionRepository repository = new JdbcTransactionRepository();
+    private final Map<Integer, List<Transaction>> histories = new HashMap<>();
+    private final PrintWriter out;
+    private final int ops;
+    private final int rewrites;
+
+    private JdbcBenchmark(PrintWriter out, int ops, int rewrites) {
+        this.out = out;
+        this.ops = ops;
+        this.rewrites = rewrites;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "4"));
+        int[] sizes = parseInts(options.getOrDefault("sizes", "1000,10000,100000"));
+        int[] threadCounts = parseInts(options.getOrDefault("threads", "1,4,8"));
+        int ops = Integer.parseInt(options.getOrDefault("ops", "200"));
+        int rewrites = Integer.parseInt(options.getOrDefault("rewrites", "3"));
+        Path outFile = Paths.get(options.getOrDefault("out", "jdbc-benchmark.jsonl"));
+
+        if (!Database.testConnection()) {
+            System.out.println("Ingen kontakt med databasen – kontrollera application.properties.");
+            return;
+        }
+
+        int[] userIds = createUsers(users);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(outFile, StandardCharsets.UTF_8))) {
+            JdbcBenchmark benchmark = new JdbcBenchmark(out, ops, rewrites);
+            System.out.printf("%-24s %9s %7s %8s %11s %9s %9s %9s %9s%n",
+                    "Operation", "Rader", "Trådar", "Anrop", "Anrop/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+            for (int size : sizes) {
+                benchmark.seed(userIds, size);
+                for (int threads : threadCounts) {
+                    benchmark.runAll(userIds, size, threads);
+                }
+            }
+        } finally {
+            if (!options.containsKey("keep")) deleteUsers(userIds);
+            Database.getPool().close();
+        }
+        System.out.println("Resultat: " + outFile.toAbsolutePath());
+    }
+
+    // Ger varje användare en historik med size rader (ersätter det som fanns)
+    private void seed(int[] userIds, int size) {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < userIds.length; i++) {
+            List<Transaction> history = history(size, i);
+            histories.put(userIds[i], history);
+            repository.saveAllForUser(history, userIds[i]);
+        }
+        System.out.printf("-- %d användare × %d rader seedade på %.1f s%n",
+                userIds.length, size, (System.nanoTime() - t0) / 1e9);
+    }
+
+    private void runAll(int[] userIds, int size, int threads) throws Exception {
+        measure("findAllForUser", userIds, size, threads, ops, (u, i) -> repository.findAllForUser(u));
+        measure("countForUser", userIds, size, threads, ops, (u, i) -> repository.countForUser(u));
+        measure("sumYearlyIncomeForUser", userIds, size, threads, ops, (u, i) -> repository.sumYearlyIncomeForUser(u, YEAR));
+        measure("sumYearlyExpensesForUser", userIds, size, threads, ops, (u, i) -> repository.sumYearlyExpensesForUser(u, YEAR));
+        // Historiken växer med högst trådar × ops rader, och nästa storlek seedas om från början
+        measure("saveForUser", userIds, size, threads, ops,
+                (u, i) -> repository.saveForUser(new Transaction(LocalDate.of(YEAR, 6, 1), -(i + 1), "bench"), u));
+        // Två trådar som skriver om samma användares historik samtidigt ger dubbletter,
+        // så här används högst en tråd per användare
+        measure("saveAllForUser", userIds, size, Math.min(threads, userIds.length), rewrites,
+                (u, i) -> repository.saveAllForUser(histories.get(u), u));
+    }
+
+    /**
+     * Kör op calls gånger per tråd (samtidigt start för alla trådar) och rapporterar.
+     * Tråd t använder användare t % antal användare. name är operationens namn i
+     * JdbcTransactionRepository (för felräknaren). Misslyckades något anrop skrivs
+     * antalet ut och IllegalStateException kastas.
+     */
+    private void measure(String name, int[] userIds, int size, int threads, int calls, Operation op) throws Exception {
+        OperationStats stats = Metrics.operation("JdbcTransactionRepository", name);
+        long errorsBefore = stats.getErrors();
+
+        // En uppvärmningsrunda med en tråd (drivrutinens förberedda satser, JIT)
+        for (int i = 0; i < Math.min(calls, 5); i++) op.run(userIds[0], i);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int userId = userIds[t % userIds.length];
+            results.add(pool.submit(() -> {
+                long[] latencies = new long[calls];
+                start.await();
+                for (int i = 0; i < calls; i++) {
+                    long t0 = System.nanoTime();
+                    op.run(userId, i);
+                    latencies[i] = System.nanoTime() - t0;
+                }
+                return latencies;
+            }));
+        }
+
+        long t0 = System.nanoTime();
+        long[] all = new long[threads * calls];
+        try {
+            start.countDown();
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(results.get(t).get(), 0, all, t * calls, calls);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        long errors = stats.getErrors() - errorsBefore;
+        if (errors > 0) {
+            System.out.printf("%-24s %9d %7d   %d av %d anrop misslyckades – mätningen avbryts%n",
+                    name, size, threads, errors, all.length);
+            out.println(String.format(Locale.ROOT,
+                    "{\"op\":\"%s\",\"rows\":%d,\"users\":%d,\"threads\":%d,\"calls\":%d,\"errors\":%d}",
+                    name, size, userIds.length, threads, all.length, errors));
+            out.flush();
+            throw new IllegalStateException(errors + " anrop till " + name + " misslyckades");
+        }
+
+        Arrays.sort(all);
+        double rate = all.length / seconds;
+        double p50 = percentile(all, 0.50), p90 = percentile(all, 0.90), p99 = percentile(all, 0.99);
+        double max = all[all.length - 1] / 1e6;
+
+        System.out.printf("%-24s %9d %7d %8d %11.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name, size, threads, all.length, rate, p50, p90, p99, max);
+        out.println(String.format(Locale.ROOT,
+                "{\"op\":\"%s\",\"rows\":%d,\"users\":%d,\"threads\":%d,\"calls\":%d,\"errors\":0,\"seconds\":%.3f,"
+                        + "\"opsPerSec\":%.1f,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                name, size, userIds.length, threads, all.length, seconds, rate, p50, p90, p99, max));
+        out.flush();
+    }
+
+    // Percentil i ms ur sorterade latenser i ns (närmaste rang)
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Skapar testanvändarna (eller återanvänder dem om de finns kvar från en avbruten körning)
+    private static int[] createUsers(int count) {
+        JdbcUserRepository users = new JdbcUserRepository();
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            String name = USER_PREFIX + i;
+            User user = users.findByUsername(name)
+                    .or(() -> users.registerUser(name, "pfbench"))
+                    .orElseThrow(() -> new IllegalStateException("Kunde inte skapa testanvändare " + name));
+            ids[i] = user.getId();
+        }
+        return ids;
+    }
+
+    // Tar bort testanvändarna (transaktionerna följer med via ON DELETE CASCADE) och deras ändringslogg
+    private static void deleteUsers(int[] userIds) throws SQLException {
+        Integer[] ids = Arrays.stream(userIds).boxed().toArray(Integer[]::new);
+        try (Connection c = Database.getConnection();
+             PreparedStatement users = c.prepareStatement("DELETE FROM users WHERE id = ANY(?)");
+             PreparedStatement changes = c.prepareStatement("DELETE FROM transaction_changes WHERE user_id = ANY(?)");
+             PreparedStatement floors = c.prepareStatement("DELETE FROM transaction_change_floors WHERE user_id = ANY(?)")) {
+            users.setArray(1, c.createArrayOf("integer", ids));
+            users.executeUpdate();
+            changes.setArray(1, c.createArrayOf("integer", ids));
+            changes.executeUpdate();
+            floors.setArray(1, c.createArrayOf("integer", ids));
+            floors.executeUpdate();
+        }
+    }
+
+    // Samma slags data som i de andra benchmarkerna
+    private static List<Transaction> history(int rows, long seed) {
+        Random random = new Random(seed);
+        List<Transaction> items = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            LocalDate date = START.plusDays((long) i * DAYS / rows);
+            double amount = (random.nextInt(2_000_000) - 1_000_000) / 100.0;
+            items.add(new Transaction(date, amount, DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]));
+        }
+        return items;
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
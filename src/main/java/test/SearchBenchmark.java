@@ -0,0 +1,67 @@
+package test;
+
+import domain.Transaction;
+import service.TransactionSearchIndex;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Mäter hur lång tid sökningar i TransactionSearchIndex tar (samma index som
+ * sökfältet i GUI:t använder): fritext, beloppsintervall, datumintervall och allt på en gång.
+ *
+ * Körs med: java test.SearchBenchmark [antal rader] [varv]
+ */
+public class SearchBenchmark {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        long t0 = System.nanoTime();
+        TransactionSearchIndex index = sample(rows);
+        System.out.printf("%d rader indexerade på %.0f ms%n%n", rows, (System.nanoTime() - t0) / 1e6);
+
+        LocalDate from = LocalDate.of(2015, 1, 1);
+        LocalDate to = LocalDate.of(2015, 12, 31);
+        run(index, rounds, "Text \"ica\"", new TransactionSearchIndex.Query("ica", null, null, null, null));
+        run(index, rounds, "Text \"spotify 7\"", new TransactionSearchIndex.Query("spotify 7", null, null, null, null));
+        run(index, rounds, "Belopp -500..-100", new TransactionSearchIndex.Query(null, -500.0, -100.0, null, null));
+        run(index, rounds, "Datum 2015", new TransactionSearchIndex.Query(null, null, null, from, to));
+        run(index, rounds, "Allt", new TransactionSearchIndex.Query("ica", -500.0, -100.0, from, to));
+    }
+
+    private static void run(TransactionSearchIndex index, int rounds, String name, TransactionSearchIndex.Query query) {
+        // Uppvärmning
+        for (int i = 0; i < rounds; i++) index.search(query, () -> false);
+
+        long total = 0, worst = 0;
+        int hits = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            hits = index.search(query, () -> false).size();
+            long t = System.nanoTime() - t0;
+            total += t;
+            worst = Math.max(worst, t);
+        }
+        System.out.printf("%-20s %8d träffar  snitt %6.1f ms  max %6.1f ms%n",
+                name, hits, total / 1e6 / rounds, worst / 1e6);
+    }
+
+    // Slumpade datum 2005–2024 och ett par tusen olika beskrivningar
+    private static TransactionSearchIndex sample(int rows) {
+        String[] shops = {"ICA Maxi", "Coop", "hyra", "lön", "Spotify", "SL-kort", "pizza", "Systembolaget", "el; nät"};
+        Random random = new Random(42);
+        int firstDay = (int) LocalDate.of(2005, 1, 1).toEpochDay();
+        int days = (int) (LocalDate.of(2024, 12, 31).toEpochDay() - firstDay);
+
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        for (int i = 0; i < rows; i++) {
+            LocalDate date = LocalDate.ofEpochDay(firstDay + random.nextInt(days));
+            double amount = (random.nextInt(2_000_000) - 1_000_000) / 100.0;
+            String description = shops[random.nextInt(shops.length)] + " " + random.nextInt(300);
+            index.add(new Transaction(i + 1, date, amount, description));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,72 @@
+package test;
+
+import domain.Transaction;
+import repository.FileTransactionRepository;
+import repository.FileTransactionRepository.LoadMode;
+import repository.storage.FsyncPolicy;
+import repository.storage.TransactionLineConverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Mäter uppstartstiden för FileTransactionRepository på en stor CSV-fil:
+ * IN_MEMORY (allt parsas) mot LAZY (första gången byggs indexet, sedan läses det sparade).
+ *
+ * Körs med: java test.StartupBenchmark [antal rader]
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Path dir = Files.createTempDirectory("pf-startup");
+        Path file = dir.resolve("transactions.csv");
+        generate(file, rows);
+        System.out.printf("Fil: %,d rader, %,d bytes%n%n", rows, Files.size(file));
+
+        measure("IN_MEMORY", file, LoadMode.IN_MEMORY);
+        measure("LAZY (bygger index)", file, LoadMode.LAZY);
+        measure("LAZY (sparat index)", file, LoadMode.LAZY);
+
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static void measure(String label, Path file, LoadMode mode) {
+        long start = System.nanoTime();
+        FileTransactionRepository repo = new FileTransactionRepository(file.toString(), FsyncPolicy.GROUP, mode);
+        long opened = System.nanoTime();
+        int count = repo.count();
+        int page = repo.findPage(count / 2, 50).size();
+        long done = System.nanoTime();
+
+        System.out.printf("%-22s start %,8d ms   count+sida %,6d ms   (%,d rader, sida %d)%n",
+                label, (opened - start) / 1_000_000, (done - opened) / 1_000_000, count, page);
+    }
+
+    private static void generate(Path file, int rows) throws IOException {
+        TransactionLineConverter converter = new TransactionLineConverter();
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2015, 1, 1);
+        String[] descriptions = {"ICA Maxi", "Lön", "Hyra", "SL-kort", "Systembolaget", "Spotify"};
+
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                Transaction t = new Transaction(
+                        start.plusDays(i / 300),
+                        Math.round((random.nextDouble() * 2000 - 1500) * 100) / 100.0,
+                        descriptions[random.nextInt(descriptions.length)]);
+                out.write(converter.toLine(t));
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package test;
+
+import domain.Transaction;
+import repository.FileTransactionRepository;
+import repository.storage.FsyncPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mäter hur många save() per sekund FileTransactionRepository klarar med olika
+ * fsync-policyer och antal samtidiga trådar (group commit syns när trådarna blir fler).
+ *
+ * Körs med: java test.WalCommitBenchmark [sekunder per mätning]
+ */
+public class WalCommitBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int[] threadCounts = {1, 4, 16};
+
+        System.out.printf("%-8s %8s %15s%n", "Policy", "Trådar", "Commits/s");
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            for (int threads : threadCounts) {
+                double rate = run(policy, threads, seconds);
+                System.out.printf("%-8s %8d %,15.0f%n", policy, threads, rate);
+            }
+        }
+    }
+
+    private static double run(FsyncPolicy policy, int threads, int seconds) throws Exception {
+        Path dir = Files.createTempDirectory("pf-wal");
+        FileTransactionRepository repo =
+                new FileTransactionRepository(dir.resolve("transactions.csv").toString(), policy);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder commits = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        Transaction tx = new Transaction(LocalDate.of(2024, 1, 1), -42.5, "benchmark");
+
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                while (running.get()) {
+                    repo.save(tx);
+                    commits.increment();
+                }
+            });
+            workers.add(t);
+            t.start();
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : workers) t.join();
+
+        deleteRecursively(dir);
+        return commits.sum() / (double) seconds;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+}
@@ -13,7 +13,7 @@ CREATE TABLE transactions (
                               type VARCHAR(10) NOT NULL,
                               amount DOUBLE PRECISION NOT NULL,
                               description TEXT,
-                              date DATE,
+                              date DATE NOT NULL,
                               created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
 
                               CONSTRAINT fk_transactions_user
@@ -21,3 +21,78 @@ CREATE TABLE transactions (
                                       REFERENCES users(id)
                                       ON DELETE CASCADE
 );
+
+-- Trigramindex för sökning i beskrivningar (ILIKE '%...%' och word similarity)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_transactions_description_trgm
+    ON transactions USING gin (description gin_trgm_ops);
+
+-- Index för frågorna per användare (antal, balans och sidorna i tabellen, i samma ordning)
+CREATE INDEX IF NOT EXISTS idx_transactions_user_created
+    ON transactions (user_id, created_at, id);
+
+-- Innehållshash för importerade rader (datum, belopp, beskrivning), se TransactionImporter.
+-- Unik per användare så att ett överlappande kontoutdrag inte kan ge dubbletter.
+-- Rader som lagts till för hand har ingen hash (NULL krockar aldrig).
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS content_hash BIGINT;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_transactions_user_content_hash
+    ON transactions (user_id, content_hash);
+
+-- Ändringslogg: varje insert och delete i transactions får ett löpnummer (seq), så att den
+-- som speglar en användares transaktioner kan hämta bara det som ändrats sedan sist.
+-- Triggern tar ett lås per användare fram till commit innan numret delas ut, så en
+-- användares ändringar blir synliga i nummerordning och ingen läsare hoppar över ett nummer.
+CREATE TABLE IF NOT EXISTS transaction_changes (
+    seq BIGSERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    kind CHAR(1) NOT NULL,          -- 'I' = tillagd, 'D' = borttagen
+    transaction_id INTEGER NOT NULL,
+    amount DOUBLE PRECISION,
+    description TEXT,
+    date DATE,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_transaction_changes_user_seq
+    ON transaction_changes (user_id, seq);
+
+-- Loggen rensas per användare efter stora skrivningar (bara de senaste ändringarna sparas).
+-- floor_seq är det högsta numret som rensats bort; frågar någon efter ändringar från före
+-- det får den null ("hämta om allt"), se JdbcTransactionRepository.findChangesSinceForUser.
+CREATE TABLE IF NOT EXISTS transaction_change_floors (
+    user_id INTEGER PRIMARY KEY,
+    floor_seq BIGINT NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION log_transaction_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM pg_advisory_xact_lock(NEW.user_id);
+        INSERT INTO transaction_changes (user_id, kind, transaction_id, amount, description, date)
+        VALUES (NEW.user_id, 'I', NEW.id, NEW.amount, NEW.description, NEW.date);
+        RETURN NEW;
+    END IF;
+    PERFORM pg_advisory_xact_lock(OLD.user_id);
+    INSERT INTO transaction_changes (user_id, kind, transaction_id, amount, description, date)
+    VALUES (OLD.user_id, 'D', OLD.id, OLD.amount, OLD.description, OLD.date);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_transactions_change_log ON transactions;
+CREATE TRIGGER trg_transactions_change_log
+    AFTER INSERT OR DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION log_transaction_change();
+
+-- Datum krävs (Transaction kan inte sakna datum). Äldre rader utan datum har inte synts
+-- i appen, så de får sitt skapandedatum och loggas som nya rader i ändringsloggen.
+-- Därefter kan ingen ändring i loggen sakna datum.
+WITH fixed AS (
+    UPDATE transactions SET date = COALESCE(created_at::date, CURRENT_DATE)
+    WHERE date IS NULL
+    RETURNING user_id, id, amount, description, date
+)
+INSERT INTO transaction_changes (user_id, kind, transaction_id, amount, description, date)
+SELECT user_id, 'I', id, amount, description, date FROM fixed;
+UPDATE transaction_changes SET date = COALESCE(changed_at::date, CURRENT_DATE) WHERE date IS NULL;
+ALTER TABLE transactions ALTER COLUMN date SET NOT NULL;
+ALTER TABLE transaction_changes ALTER COLUMN date SET NOT NULL;